@@ -0,0 +1,72 @@
+package se.pbt.tvm.benchmarks;
+
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Generates reproducible subscription datasets for benchmarks.
+ * <p>
+ * Subscriptions are spread over chats with {@value #SUBSCRIPTIONS_PER_CHAT} subscriptions
+ * each, use keywords from a fixed vocabulary and rotate through schedules and languages,
+ * roughly like the data the bot produces.
+ */
+public final class SubscriptionDatasets {
+
+    /** Average number of subscriptions per chat in generated datasets. */
+    public static final int SUBSCRIPTIONS_PER_CHAT = 5;
+
+    private static final List<String> LANGUAGES = List.of("en", "sv", "de", "fr", "es");
+    private static final List<String> TICKERS = List.of("AAPL", "TSLA", "MSFT", "NVDA", "GOOG", "AMZN");
+    private static final TimeZone TIMEZONE = TimeZone.getTimeZone("Europe/Stockholm");
+    private static final int VOCABULARY_SIZE = 5_000;
+
+    private SubscriptionDatasets() {}
+
+    /**
+     * Creates {@code size} subscriptions with generated IDs; the same size always yields the same data.
+     */
+    public static List<Subscription> generate(int size) {
+        Random random = new Random(size);
+        List<Subscription> subscriptions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long chatId = chatId(i);
+            String keyword = "keyword" + random.nextInt(VOCABULARY_SIZE);
+            Subscription sub = subscription(chatId, List.of(keyword, "topic" + (i % 97)), LANGUAGES.get(i % LANGUAGES.size()));
+            sub.setId("sub-" + chatId + "-" + keyword + "-" + i);
+            subscriptions.add(sub);
+        }
+        return subscriptions;
+    }
+
+    /**
+     * Returns the chat the {@code index}-th generated subscription belongs to.
+     */
+    public static long chatId(int index) {
+        return 1_000_000L + index / SUBSCRIPTIONS_PER_CHAT;
+    }
+
+    /**
+     * Creates a subscription without ID, ready to be saved through the service.
+     */
+    public static Subscription subscription(long chatId, List<String> keywords, String language) {
+        SubscriptionFilter filter = new SubscriptionFilter();
+        filter.setKeywords(keywords);
+        filter.setTickers(List.of(TICKERS.get((int) Math.floorMod(chatId, TICKERS.size()))));
+        filter.setLanguage(language);
+
+        Subscription sub = new Subscription();
+        sub.setChatId(chatId);
+        sub.setSchedule(SchedulePreset.values()[(int) Math.floorMod(chatId, SchedulePreset.values().length)]);
+        sub.setTimezone(TIMEZONE);
+        sub.setFilter(filter);
+        sub.setMaxItems(5);
+        sub.setEnabled(true);
+        return sub;
+    }
+}
@@ -0,0 +1,99 @@
+package se.pbt.tvm.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.pbt.tvm.subscription.config.SubscriptionStorageProperties;
+import se.pbt.tvm.subscription.format.SubscriptionFormatter;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.CachedSubscriptionRepository;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+import se.pbt.tvm.subscription.persistence.SubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.SubscriptionSnapshot;
+import se.pbt.tvm.subscription.policy.SubscriptionIdGenerator;
+import se.pbt.tvm.subscription.policy.SubscriptionValidator;
+import se.pbt.tvm.subscription.service.SubscriptionService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the subscription commands against a repository of the given size.
+ * <p>
+ * Persistence is replaced by a no-op, so the numbers show the cost of validation,
+ * ID generation, indexing and lookups as the store grows. Disk costs are covered by
+ * {@link SubscriptionStorageBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SubscriptionServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private CachedSubscriptionRepository repository;
+    private SubscriptionService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var properties = new SubscriptionStorageProperties();
+        properties.setFlushDelay(Duration.ZERO);
+        repository = new CachedSubscriptionRepository(new InMemoryPersistence(SubscriptionDatasets.generate(size)), properties);
+        service = new SubscriptionService(repository, new SubscriptionIdGenerator(),
+                new SubscriptionValidator(), new SubscriptionFormatter());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+
+    /**
+     * A {@code /subscribe} followed by an {@code /unsubscribe}, which keeps the store size stable.
+     */
+    @Benchmark
+    public boolean saveAndRemove() {
+        long chatId = randomChat();
+        Subscription sub = SubscriptionDatasets.subscription(chatId, List.of("benchmark"), "en");
+        service.save(sub);
+        return service.removeByIdOrKeyword(chatId, "benchmark");
+    }
+
+    @Benchmark
+    public List<String> listByChatId() {
+        return service.listByChatId(randomChat());
+    }
+
+    /**
+     * A removal that matches nothing, isolating the cost of finding candidates.
+     */
+    @Benchmark
+    public boolean removeWithoutMatch() {
+        return service.removeByIdOrKeyword(randomChat(), "no-such-keyword");
+    }
+
+    private long randomChat() {
+        return SubscriptionDatasets.chatId(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    /**
+     * Persistence that starts from a generated dataset and discards all writes.
+     */
+    private record InMemoryPersistence(List<Subscription> initial) implements SubscriptionPersistence {
+
+        @Override
+        public SubscriptionSnapshot load() {
+            return SubscriptionSnapshot.of(initial);
+        }
+
+        @Override
+        public void persist(List<SubscriptionChange> changes, Supplier<SubscriptionSnapshot> snapshot) {
+            // Disk costs are measured separately
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package se.pbt.tvm.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SnapshotFormat;
+import se.pbt.tvm.subscription.persistence.SubscriptionStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures loading and saving the whole subscription file at different sizes and formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SubscriptionStorageBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"YAML", "BINARY"})
+    public SnapshotFormat format;
+
+    private final SubscriptionStorage storage = new SubscriptionStorage();
+    private Path directory;
+    private String loadFile;
+    private String saveFile;
+    private List<Subscription> subscriptions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("subscription-benchmark");
+        loadFile = directory.resolve("load.dat").toString();
+        saveFile = directory.resolve("save.dat").toString();
+        subscriptions = SubscriptionDatasets.generate(size);
+        storage.writeSubscriptions(subscriptions, loadFile, format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Subscription> load() {
+        return storage.loadSubscriptions(loadFile);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        storage.writeSubscriptions(subscriptions, saveFile, format);
+    }
+}
@@ -0,0 +1,14 @@
+package se.pbt.tvm.matching.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the matching module.
+ * <p>
+ * Registers {@link MatchingProperties}.
+ */
+@Configuration
+@EnableConfigurationProperties(MatchingProperties.class)
+public class MatchingConfig {
+}
@@ -0,0 +1,36 @@
+package se.pbt.tvm.matching.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for news matching.
+ * <p>
+ * Values are loaded from the application's configuration (module: {@code app-runner})
+ * using the prefix {@code matching}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "matching")
+public class MatchingProperties {
+
+    /**
+     * Number of subscription changes collected in the delta before it is merged into the base
+     * matcher right away.
+     */
+    private int mergeThreshold = 1000;
+
+    /**
+     * How long a smaller delta is kept before it is merged into the base matcher.
+     */
+    private Duration mergeDelay = Duration.ofSeconds(5);
+
+    /**
+     * Number of threads used to match a batch of articles. 0 uses one thread per available
+     * processor, 1 matches batches on the calling thread.
+     */
+    private int parallelism = 0;
+}
@@ -0,0 +1,136 @@
+package se.pbt.tvm.matching.engine;
+
+import se.pbt.tvm.core.news.NewsItem;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The searchable text of a {@link NewsItem}, normalized once and shared by every matcher that
+ * evaluates the article.
+ * <p>
+ * Title and description are Unicode-normalized (NFKC), lowercased and split into tokens of
+ * letters and digits, which are joined by single spaces. Keywords are normalized the same way
+ * with {@link #normalize}, so the multi-word keyword "AI stocks" matches "AI&nbsp;stocks",
+ * "ai-stocks" and "AI  Stocks", but never text where the words are not adjacent tokens. Title
+ * and description are kept apart so a phrase cannot span both.
+ * <p>
+ * Phrase counts are cached, so scoring many subscriptions that share a keyword against the
+ * same article counts each keyword once. Instances are safe to share between threads.
+ */
+public final class ArticleText {
+
+    private final NewsItem item;
+    private final String title;
+    private final String description;
+    // Normalized phrase -> occurrences in the title and in the description
+    private final Map<String, int[]> hits = new ConcurrentHashMap<>();
+
+    private ArticleText(NewsItem item, String title, String description) {
+        this.item = item;
+        this.title = title;
+        this.description = description;
+    }
+
+    /**
+     * Normalizes the title and description of an article.
+     */
+    public static ArticleText of(NewsItem item) {
+        return new ArticleText(item, normalize(item.title()), normalize(item.description()));
+    }
+
+    /**
+     * Returns the tokens of a text, normalized and joined by single spaces, or an empty string
+     * if the text has no tokens.
+     */
+    public static String normalize(CharSequence text) {
+        if (text == null || text.isEmpty()) return "";
+
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder tokens = new StringBuilder(folded.length());
+        boolean inToken = false;
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isTokenPart(codePoint)) {
+                if (!inToken && !tokens.isEmpty()) {
+                    tokens.append(' ');
+                }
+                tokens.appendCodePoint(codePoint);
+                inToken = true;
+            } else {
+                inToken = false;
+            }
+        }
+        return tokens.toString();
+    }
+
+    /**
+     * Returns the article this text was taken from.
+     */
+    public NewsItem item() {
+        return item;
+    }
+
+    /**
+     * Returns the normalized title.
+     */
+    public String title() {
+        return title;
+    }
+
+    /**
+     * Returns the normalized description.
+     */
+    public String description() {
+        return description;
+    }
+
+    /**
+     * Returns how often a {@link #normalize normalized} phrase occurs as whole tokens in the title.
+     */
+    public int titleHits(String phrase) {
+        return hits(phrase)[0];
+    }
+
+    /**
+     * Returns how often a {@link #normalize normalized} phrase occurs as whole tokens in the
+     * description.
+     */
+    public int descriptionHits(String phrase) {
+        return hits(phrase)[1];
+    }
+
+    /**
+     * Returns the ticker symbols the article is tagged with.
+     */
+    public List<String> tickers() {
+        return item.tickers();
+    }
+
+    private int[] hits(String phrase) {
+        if (phrase == null || phrase.isEmpty()) return new int[2];
+        return hits.computeIfAbsent(phrase, p -> new int[] {count(title, p), count(description, p)});
+    }
+
+    private static int count(String text, String phrase) {
+        int count = 0;
+        for (int at = text.indexOf(phrase); at >= 0; at = text.indexOf(phrase, at + 1)) {
+            int end = at + phrase.length();
+            if ((at == 0 || text.charAt(at - 1) == ' ') && (end == text.length() || text.charAt(end) == ' ')) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Combining marks stay in their token, so decomposed letters are not split
+    private static boolean isTokenPart(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) return true;
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+}
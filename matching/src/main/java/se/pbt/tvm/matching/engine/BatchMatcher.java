@@ -0,0 +1,128 @@
+package se.pbt.tvm.matching.engine;
+
+import se.pbt.tvm.core.news.NewsItem;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Matches a batch of articles on a dedicated {@link ForkJoinPool}.
+ * <p>
+ * The batch is split into ranges of consecutive articles. Each range is matched on its own
+ * into a private map from subscription ID to articles, and the maps of neighbouring ranges are
+ * merged as the tasks are joined, so the workers never share mutable state. Articles keep their
+ * batch order within each subscription, and subscriptions appear in the order they first matched.
+ * <p>
+ * Batches that are too small to be worth splitting, and every batch when the parallelism is 1,
+ * are matched on the calling thread.
+ */
+public final class BatchMatcher implements AutoCloseable {
+
+    /** Number of articles a single task matches without splitting further. */
+    static final int LEAF_SIZE = 16;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a matcher using up to {@code parallelism} worker threads. A value below 1 uses one
+     * thread per available processor.
+     */
+    public BatchMatcher(int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = threads > 1 ? new ForkJoinPool(threads, namedWorkers(), null, false) : null;
+    }
+
+    /**
+     * Returns the articles of the batch that each subscription wants, keyed by subscription ID.
+     * <p>
+     * {@code matcher} must be safe to call from several threads at once, which holds for the
+     * immutable matchers of this package.
+     */
+    public Map<String, List<NewsItem>> match(List<NewsItem> items, Function<NewsItem, List<String>> matcher) {
+        if (items == null || items.isEmpty()) return Map.of();
+
+        List<NewsItem> batch = List.copyOf(items);
+        MatchTask task = new MatchTask(batch, 0, batch.size(), matcher);
+        if (pool == null || batch.size() <= LEAF_SIZE) {
+            return task.compute();
+        }
+        return pool.invoke(task);
+    }
+
+    /**
+     * Returns the number of worker threads, or 1 if batches are matched on the calling thread.
+     */
+    public int parallelism() {
+        return pool != null ? pool.getParallelism() : 1;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory namedWorkers() {
+        return pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("matcher-batch-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Matches the articles in {@code [from, to)}, splitting the range in halves until it is small.
+     */
+    private static final class MatchTask extends RecursiveTask<Map<String, List<NewsItem>>> {
+
+        private final List<NewsItem> items;
+        private final int from;
+        private final int to;
+        private final Function<NewsItem, List<String>> matcher;
+
+        MatchTask(List<NewsItem> items, int from, int to, Function<NewsItem, List<String>> matcher) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.matcher = matcher;
+        }
+
+        @Override
+        protected Map<String, List<NewsItem>> compute() {
+            if (to - from <= LEAF_SIZE || getPool() == null) {
+                return matchRange();
+            }
+            int middle = (from + to) >>> 1;
+            MatchTask right = new MatchTask(items, middle, to, matcher);
+            right.fork();
+            Map<String, List<NewsItem>> left = new MatchTask(items, from, middle, matcher).compute();
+            return merge(left, right.join());
+        }
+
+        private Map<String, List<NewsItem>> matchRange() {
+            Map<String, List<NewsItem>> result = new LinkedHashMap<>();
+            for (int i = from; i < to; i++) {
+                NewsItem item = items.get(i);
+                for (String subscriptionId : matcher.apply(item)) {
+                    result.computeIfAbsent(subscriptionId, id -> new ArrayList<>()).add(item);
+                }
+            }
+            return result;
+        }
+
+        // Both maps are private to this task, so the left one is reused as the result
+        private static Map<String, List<NewsItem>> merge(Map<String, List<NewsItem>> left, Map<String, List<NewsItem>> right) {
+            if (right.isEmpty()) return left;
+            if (left.isEmpty()) return right;
+            right.forEach((subscriptionId, articles) -> left.merge(subscriptionId, articles, (earlier, later) -> {
+                earlier.addAll(later);
+                return earlier;
+            }));
+            return left;
+        }
+    }
+}
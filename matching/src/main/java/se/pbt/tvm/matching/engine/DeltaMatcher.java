@@ -0,0 +1,285 @@
+package se.pbt.tvm.matching.engine;
+
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable matcher made of a large compiled base and a small delta of recent changes.
+ * <p>
+ * Applying a change never touches the base: the affected ID is hidden in the base and its
+ * current version, if any, goes into the delta, which is recompiled on its own. Since the
+ * delta is partitioned by language as well, a subscribe only recompiles the delta partition
+ * of one language. {@link #merged()} folds the delta into a new base, reusing every base
+ * partition it does not affect.
+ * <p>
+ * Applying a change that is already part of the base is harmless, so changes may be replayed.
+ * <p>
+ * The snapshots of one base share an append-only log of their changes; each snapshot sees a
+ * prefix of it. Applying changes appends to the log instead of copying it, and IDs are hidden
+ * by the position of their first change, so the list of changes and the hidden IDs are never
+ * copied. Only the delta itself, and the map of current versions it is compiled from, are
+ * rebuilt, once per batch of changes.
+ * <p>
+ * Each snapshot also carries the {@link SubscriptionMasks} of all its subscriptions, so bitmap
+ * match results and masks always describe the same state.
+ */
+public final class DeltaMatcher {
+
+    private final LanguagePartitionedMatcher base;
+    // Changes applied since the base was compiled, oldest first; this snapshot sees the first size
+    private final ChangeLog log;
+    private final int size;
+    // Ordinals of the IDs whose base version is outdated or deleted
+    private final RoaringBitmap hiddenOrdinals;
+    // Current versions of changed subscriptions, by ID
+    private final Map<String, Subscription> added;
+    private final LanguagePartitionedMatcher delta;
+    private final SubscriptionMasks masks;
+
+    private DeltaMatcher(LanguagePartitionedMatcher base, ChangeLog log, int size,
+                         RoaringBitmap hiddenOrdinals, Map<String, Subscription> added, LanguagePartitionedMatcher delta,
+                         SubscriptionMasks masks) {
+        this.base = base;
+        this.log = log;
+        this.size = size;
+        this.hiddenOrdinals = hiddenOrdinals;
+        this.added = added;
+        this.delta = delta;
+        this.masks = masks;
+    }
+
+    /**
+     * Returns a matcher for the given base without pending changes.
+     */
+    public static DeltaMatcher of(LanguagePartitionedMatcher base) {
+        return new DeltaMatcher(base, new ChangeLog(), 0, new RoaringBitmap(), Map.of(),
+                LanguagePartitionedMatcher.empty(base.ordinals()),
+                SubscriptionMasks.compile(base.subscriptions(), base.ordinals()));
+    }
+
+    /**
+     * Returns a copy with one more change applied.
+     */
+    public DeltaMatcher apply(SubscriptionChange change) {
+        return apply(List.of(change));
+    }
+
+    /**
+     * Returns a copy with the given changes applied in order. The delta is recompiled once.
+     */
+    public DeltaMatcher apply(List<SubscriptionChange> newChanges) {
+        if (newChanges.isEmpty()) return this;
+
+        ChangeLog nextLog = log.append(size, newChanges);
+        RoaringBitmap nextHiddenOrdinals = hiddenOrdinals.clone();
+        Map<String, Subscription> nextAdded = new LinkedHashMap<>(added);
+        for (SubscriptionChange change : newChanges) {
+            if (change.id() == null) continue;
+            int ordinal = base.ordinals().ordinalOf(change.id());
+            if (ordinal != SubscriptionOrdinals.NO_ORDINAL) {
+                nextHiddenOrdinals.add(ordinal);
+            }
+            nextAdded.remove(change.id());
+            if (change.type() == SubscriptionChange.Type.PUT) {
+                nextAdded.put(change.id(), change.subscription());
+            }
+        }
+        return new DeltaMatcher(base, nextLog, size + newChanges.size(), nextHiddenOrdinals,
+                Collections.unmodifiableMap(nextAdded), delta.update(nextAdded.values()), masks.apply(newChanges));
+    }
+
+    /**
+     * Returns the changes applied after {@code earlier}, which must share this matcher's base.
+     */
+    public List<SubscriptionChange> changesSince(DeltaMatcher earlier) {
+        if (earlier.base != base) {
+            throw new IllegalStateException("Matchers do not share the same base");
+        }
+        return log.range(earlier.size, size);
+    }
+
+    /**
+     * Compiles a new base that contains the delta, recompiling only the affected languages.
+     */
+    public LanguagePartitionedMatcher merged() {
+        if (size == 0) return base;
+
+        List<Subscription> all = new ArrayList<>();
+        for (Subscription subscription : base.subscriptions()) {
+            if (subscription.getId() == null || !isHidden(subscription.getId())) {
+                all.add(subscription);
+            }
+        }
+        all.addAll(added.values());
+        return base.update(all);
+    }
+
+    /**
+     * Returns the IDs that were deleted since the base was compiled and not put back.
+     */
+    public Set<String> removedIds() {
+        Set<String> removed = new HashSet<>();
+        log.changedIds(size).forEach(id -> {
+            if (!added.containsKey(id)) removed.add(id);
+        });
+        return removed;
+    }
+
+    /**
+     * Returns the IDs of the subscriptions matching the article, base matches first.
+     */
+    public List<String> match(NewsItem item) {
+        return item != null ? match(ArticleText.of(item)) : List.of();
+    }
+
+    /**
+     * Same as {@link #match(NewsItem)} for an article that is already normalized.
+     */
+    public List<String> match(ArticleText text) {
+        List<String> fromBase = base.match(text);
+        List<String> fromDelta = delta.match(text);
+        if (size == 0) return fromBase;
+
+        List<String> result = new ArrayList<>(fromBase.size() + fromDelta.size());
+        for (String id : fromBase) {
+            if (!isHidden(id)) {
+                result.add(id);
+            }
+        }
+        result.addAll(fromDelta);
+        return result;
+    }
+
+    /**
+     * Returns the ordinals of the subscriptions matching the article as a new bitmap owned by
+     * the caller.
+     */
+    public RoaringBitmap matchOrdinals(NewsItem item) {
+        RoaringBitmap result = new RoaringBitmap();
+        if (item == null) return result;
+
+        ArticleText text = ArticleText.of(item);
+        base.matchOrdinals(text, result);
+        if (!hiddenOrdinals.isEmpty()) {
+            result.andNot(hiddenOrdinals);
+        }
+        delta.matchOrdinals(text, result);
+        return result;
+    }
+
+    /**
+     * Returns the masks of the subscriptions in this snapshot.
+     */
+    public SubscriptionMasks masks() {
+        return masks;
+    }
+
+    /**
+     * Returns the ordinals that {@link #matchOrdinals} and {@link #masks()} refer to.
+     */
+    public SubscriptionOrdinals ordinals() {
+        return base.ordinals();
+    }
+
+    /**
+     * Returns the number of changes not yet merged into the base.
+     */
+    public int pendingChanges() {
+        return size;
+    }
+
+    /**
+     * Returns the compiled base.
+     */
+    public LanguagePartitionedMatcher base() {
+        return base;
+    }
+
+    /**
+     * Returns {@code true} if the base version of the ID is outdated or deleted in this snapshot.
+     */
+    private boolean isHidden(String id) {
+        return log.firstChangeOf(id) < size;
+    }
+
+    /**
+     * Append-only list of the changes applied to one base, shared by all its snapshots.
+     * <p>
+     * A snapshot sees the entries before its own size, which never change once written.
+     * Appending where the log ends extends it in place; appending to an older snapshot, for
+     * example when a compare-and-set is retried, forks a copy of the snapshot's prefix.
+     * Appends are serialized; reads do not lock.
+     */
+    private static final class ChangeLog {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private volatile SubscriptionChange[] entries = new SubscriptionChange[INITIAL_CAPACITY];
+        private volatile int size;
+        // Position of the first change of every ID in the log
+        private final Map<String, Integer> firstChange = new ConcurrentHashMap<>();
+
+        /**
+         * Appends the changes after the first {@code at} entries and returns the log that holds them.
+         */
+        synchronized ChangeLog append(int at, List<SubscriptionChange> changes) {
+            ChangeLog target = this;
+            if (at != size) {
+                target = new ChangeLog();
+                SubscriptionChange[] current = entries;
+                for (int i = 0; i < at; i++) {
+                    target.add(current[i]);
+                }
+            }
+            for (SubscriptionChange change : changes) {
+                target.add(change);
+            }
+            return target;
+        }
+
+        /**
+         * Returns the entries from {@code from} (inclusive) to {@code to} (exclusive).
+         */
+        List<SubscriptionChange> range(int from, int to) {
+            return List.of(Arrays.copyOfRange(entries, from, to));
+        }
+
+        /**
+         * Returns the position of the first change of the ID, or {@link Integer#MAX_VALUE} if it never changed.
+         */
+        int firstChangeOf(String id) {
+            return firstChange.getOrDefault(id, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Returns the IDs changed within the first {@code limit} entries.
+         */
+        List<String> changedIds(int limit) {
+            List<String> ids = new ArrayList<>();
+            firstChange.forEach((id, position) -> {
+                if (position < limit) ids.add(id);
+            });
+            return ids;
+        }
+
+        private void add(SubscriptionChange change) {
+            SubscriptionChange[] current = entries;
+            int next = size;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                entries = current;
+            }
+            current[next] = change;
+            if (change.id() != null) {
+                firstChange.putIfAbsent(change.id(), next);
+            }
+            // Publishes the entry to readers of this log
+            size = next + 1;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package se.pbt.tvm.matching.engine;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton that finds all keywords of a fixed set in a text in one pass.
+ * <p>
+ * Matching ignores case and only reports whole-word occurrences, i.e. a keyword must not be
+ * directly preceded or followed by a letter or digit, so "AI" is found in "AI stocks" but not
+ * in "said". Scanning costs time linear in the text length plus the number of matches,
+ * independent of how many keywords the automaton holds.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class KeywordAutomaton {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    // Per state: sorted transition characters and their target states
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // Keywords ending in a state, and the nearest state on the failure chain that has any
+    private final int[][] outputs;
+    private final int[] outputLink;
+    private final int[] lengths;
+
+    private KeywordAutomaton(char[][] keys, int[][] targets, int[] fail, int[][] outputs, int[] outputLink, int[] lengths) {
+        this.keys = keys;
+        this.targets = targets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.outputLink = outputLink;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Compiles the given keywords. A keyword's index in the list is the value reported for it.
+     * {@code null} and empty keywords are never reported.
+     */
+    public static KeywordAutomaton build(List<String> keywords) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(new ArrayList<>(0));
+
+        int[] lengths = new int[keywords.size()];
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            if (keyword == null || keyword.isEmpty()) continue;
+            lengths[k] = keyword.length();
+
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new HashMap<>());
+                    ends.add(new ArrayList<>(0));
+                }
+                state = next;
+            }
+            ends.get(state).add(k);
+        }
+
+        int states = trie.size();
+        char[][] keys = new char[states][];
+        int[][] targets = new int[states][];
+        int[][] outputs = new int[states][];
+        for (int s = 0; s < states; s++) {
+            List<Character> chars = new ArrayList<>(trie.get(s).keySet());
+            Collections.sort(chars);
+            keys[s] = new char[chars.size()];
+            targets[s] = new int[chars.size()];
+            for (int i = 0; i < chars.size(); i++) {
+                keys[s][i] = chars.get(i);
+                targets[s][i] = trie.get(s).get(chars.get(i));
+            }
+            outputs[s] = ends.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Breadth-first, so every failure target is finished before it is used
+        int[] fail = new int[states];
+        int[] outputLink = new int[states];
+        Arrays.fill(outputLink, NONE);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+
+                int f = fail[state];
+                while (f != ROOT && transition(keys, targets, f, c) == NONE) {
+                    f = fail[f];
+                }
+                int target = transition(keys, targets, f, c);
+                fail[child] = target != NONE ? target : ROOT;
+                outputLink[child] = outputs[fail[child]].length > 0 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+        return new KeywordAutomaton(keys, targets, fail, outputs, outputLink, lengths);
+    }
+
+    /**
+     * Reports the index of every keyword found in the text, once per occurrence.
+     */
+    public void scan(CharSequence text, IntConsumer onMatch) {
+        if (text == null) return;
+
+        int state = ROOT;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = transition(keys, targets, state, c);
+            while (next == NONE && state != ROOT) {
+                state = fail[state];
+                next = transition(keys, targets, state, c);
+            }
+            state = next == NONE ? ROOT : next;
+
+            int out = outputs[state].length > 0 ? state : outputLink[state];
+            while (out != NONE) {
+                for (int keyword : outputs[out]) {
+                    if (isWholeWord(text, i - lengths[keyword] + 1, i + 1)) {
+                        onMatch.accept(keyword);
+                    }
+                }
+                out = outputLink[out];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of states, which is bounded by the total length of the keywords.
+     */
+    public int stateCount() {
+        return keys.length;
+    }
+
+    private static int transition(char[][] keys, int[][] targets, int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i >= 0 ? targets[state][i] : NONE;
+    }
+
+    private static boolean isWholeWord(CharSequence text, int start, int end) {
+        return (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1)))
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+    }
+}
@@ -0,0 +1,221 @@
+package se.pbt.tvm.matching.engine;
+
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.util.*;
+
+/**
+ * Immutable set of {@link SubscriptionMatcher}s, one per subscription language.
+ * <p>
+ * An article is only evaluated against the partition of its own language, plus the
+ * subscriptions that have no language at all. Articles without a language (for example from
+ * Finnhub) are evaluated against every partition. Languages are compared by their primary
+ * subtag, so "sv-SE" subscriptions receive "sv" articles. The article is normalized once and
+ * shared by all partitions it is evaluated against.
+ * <p>
+ * {@link #update} reuses the partitions whose subscriptions are unchanged, so a change to
+ * one subscription only recompiles the partition of its language. A matcher and its updates
+ * share one {@link SubscriptionOrdinals} instance.
+ */
+public final class LanguagePartitionedMatcher {
+
+    /** Partition key for subscriptions without a language. */
+    static final String ANY_LANGUAGE = "";
+
+    private final Map<String, Partition> partitions;
+    private final SubscriptionOrdinals ordinals;
+
+    private LanguagePartitionedMatcher(Map<String, Partition> partitions, SubscriptionOrdinals ordinals) {
+        this.partitions = partitions;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * Returns a matcher without subscriptions, with ordinals of its own.
+     */
+    public static LanguagePartitionedMatcher empty() {
+        return empty(new SubscriptionOrdinals());
+    }
+
+    /**
+     * Returns a matcher without subscriptions whose updates take their ordinals from
+     * {@code ordinals}.
+     */
+    public static LanguagePartitionedMatcher empty(SubscriptionOrdinals ordinals) {
+        return new LanguagePartitionedMatcher(Map.of(), ordinals);
+    }
+
+    /**
+     * Compiles one partition per language, with ordinals of its own.
+     */
+    public static LanguagePartitionedMatcher compile(Collection<Subscription> subscriptions) {
+        return empty().update(subscriptions);
+    }
+
+    /**
+     * Compiles one partition per language, taking the ordinals from {@code ordinals}.
+     */
+    public static LanguagePartitionedMatcher compile(Collection<Subscription> subscriptions,
+                                                     SubscriptionOrdinals ordinals) {
+        return empty(ordinals).update(subscriptions);
+    }
+
+    /**
+     * Returns a matcher for the given subscriptions that shares every partition whose
+     * subscriptions are the same instances, in the same order, as in this matcher.
+     */
+    public LanguagePartitionedMatcher update(Collection<Subscription> subscriptions) {
+        Map<String, List<Subscription>> byLanguage = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription == null) continue;
+            String language = subscription.getFilter() != null ? subscription.getFilter().getLanguage() : null;
+            String key = Objects.requireNonNullElse(partitionKey(language), ANY_LANGUAGE);
+            byLanguage.computeIfAbsent(key, k -> new ArrayList<>()).add(subscription);
+        }
+
+        Map<String, Partition> next = new HashMap<>(byLanguage.size() * 2);
+        byLanguage.forEach((language, members) -> {
+            Partition previous = partitions.get(language);
+            next.put(language, previous != null && sameInstances(previous.source(), members)
+                    ? previous
+                    : new Partition(members, SubscriptionMatcher.compile(members, ordinals)));
+        });
+        return new LanguagePartitionedMatcher(next, ordinals);
+    }
+
+    /**
+     * Returns the IDs of the subscriptions matching the article within its language.
+     */
+    public List<String> match(NewsItem item) {
+        if (item == null || partitions.isEmpty()) return List.of();
+        return match(ArticleText.of(item));
+    }
+
+    /**
+     * Same as {@link #match(NewsItem)} for an article that is already normalized.
+     */
+    public List<String> match(ArticleText text) {
+        if (partitions.isEmpty()) return List.of();
+
+        String language = partitionKey(text.item().language());
+        if (language == null) {
+            List<String> result = new ArrayList<>();
+            for (Partition partition : partitions.values()) {
+                result.addAll(partition.matcher().match(text));
+            }
+            return result;
+        }
+
+        List<String> own = partition(language).match(text);
+        List<String> any = language.equals(ANY_LANGUAGE) ? List.of() : partition(ANY_LANGUAGE).match(text);
+        if (any.isEmpty()) return own;
+
+        List<String> result = new ArrayList<>(own.size() + any.size());
+        result.addAll(own);
+        result.addAll(any);
+        return result;
+    }
+
+    /**
+     * Adds the ordinals of the subscriptions matching the article within its language to
+     * {@code result}.
+     */
+    public void matchOrdinals(NewsItem item, RoaringBitmap result) {
+        if (item != null && !partitions.isEmpty()) {
+            matchOrdinals(ArticleText.of(item), result);
+        }
+    }
+
+    /**
+     * Same as {@link #matchOrdinals(NewsItem, RoaringBitmap)} for an article that is already
+     * normalized.
+     */
+    public void matchOrdinals(ArticleText text, RoaringBitmap result) {
+        if (partitions.isEmpty()) return;
+
+        String language = partitionKey(text.item().language());
+        if (language == null) {
+            for (Partition partition : partitions.values()) {
+                partition.matcher().matchOrdinals(text, result);
+            }
+            return;
+        }
+        partition(language).matchOrdinals(text, result);
+        if (!language.equals(ANY_LANGUAGE)) {
+            partition(ANY_LANGUAGE).matchOrdinals(text, result);
+        }
+    }
+
+    /**
+     * Returns the matcher of one language, or an empty matcher if no subscription uses it.
+     */
+    public SubscriptionMatcher partition(String language) {
+        String key = Objects.requireNonNullElse(partitionKey(language), ANY_LANGUAGE);
+        Partition partition = partitions.get(key);
+        return partition != null ? partition.matcher() : SubscriptionMatcher.empty();
+    }
+
+    /**
+     * Returns every subscription this matcher was compiled from, grouped by language.
+     */
+    public List<Subscription> subscriptions() {
+        List<Subscription> all = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            all.addAll(partition.source());
+        }
+        return all;
+    }
+
+    /**
+     * Returns the ordinals this matcher and its updates report matches in.
+     */
+    public SubscriptionOrdinals ordinals() {
+        return ordinals;
+    }
+
+    /**
+     * Returns the languages that have a partition.
+     */
+    public Set<String> languages() {
+        return Collections.unmodifiableSet(partitions.keySet());
+    }
+
+    /**
+     * Returns the total number of compiled subscriptions.
+     */
+    public int size() {
+        int size = 0;
+        for (Partition partition : partitions.values()) {
+            size += partition.matcher().size();
+        }
+        return size;
+    }
+
+    /**
+     * Reduces a language tag to its lowercased primary subtag, or {@code null} if it is blank.
+     */
+    static String partitionKey(String language) {
+        if (language == null || language.isBlank()) return null;
+        String trimmed = language.trim();
+        int separator = 0;
+        while (separator < trimmed.length() && trimmed.charAt(separator) != '-' && trimmed.charAt(separator) != '_') {
+            separator++;
+        }
+        return trimmed.substring(0, separator).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean sameInstances(List<Subscription> a, List<Subscription> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A compiled partition together with the subscriptions it was compiled from.
+     */
+    private record Partition(List<Subscription> source, SubscriptionMatcher matcher) {}
+}
@@ -0,0 +1,58 @@
+package se.pbt.tvm.matching.engine;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe sets of subscription ordinals waiting for delivery, one per slot (for example a
+ * schedule preset or a delivery time).
+ * <p>
+ * Article matches are OR-ed into a slot as they arrive, and the whole set is taken out in one
+ * step when the slot is due. Only the slot being changed is locked.
+ */
+public final class PendingMatches<K> {
+
+    private final Map<K, RoaringBitmap> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the given ordinals to the pending set of a slot.
+     */
+    public void add(K slot, RoaringBitmap ordinals) {
+        if (ordinals.isEmpty()) return;
+        slots.compute(slot, (key, pending) -> {
+            if (pending == null) return ordinals.clone();
+            pending.or(ordinals);
+            return pending;
+        });
+    }
+
+    /**
+     * Removes and returns the pending set of a slot, which is empty if nothing is pending.
+     */
+    public RoaringBitmap drain(K slot) {
+        RoaringBitmap pending = slots.remove(slot);
+        return pending != null ? pending : new RoaringBitmap();
+    }
+
+    /**
+     * Returns the number of ordinals pending in a slot.
+     */
+    public int size(K slot) {
+        int[] size = new int[1];
+        slots.computeIfPresent(slot, (key, pending) -> {
+            size[0] = pending.getCardinality();
+            return pending;
+        });
+        return size[0];
+    }
+
+    /**
+     * Returns the slots that have pending ordinals.
+     */
+    public Set<K> slots() {
+        return Set.copyOf(slots.keySet());
+    }
+}
@@ -0,0 +1,101 @@
+package se.pbt.tvm.matching.engine;
+
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+
+import java.util.*;
+
+/**
+ * Immutable bitmaps of subscription ordinals that share a property, used to narrow down
+ * bitmap match results with a single intersection.
+ * <p>
+ * Holds one bitmap of the enabled subscriptions and one per {@link SchedulePreset}. Ordinals
+ * come from the {@link SubscriptionOrdinals} the masks were compiled with. The bitmaps must not
+ * be modified by callers.
+ */
+public final class SubscriptionMasks {
+
+    private static final RoaringBitmap NONE = new RoaringBitmap();
+
+    private final SubscriptionOrdinals ordinals;
+    private final RoaringBitmap enabled;
+    private final EnumMap<SchedulePreset, RoaringBitmap> schedules;
+
+    private SubscriptionMasks(SubscriptionOrdinals ordinals, RoaringBitmap enabled,
+                              EnumMap<SchedulePreset, RoaringBitmap> schedules) {
+        this.ordinals = ordinals;
+        this.enabled = enabled;
+        this.schedules = schedules;
+    }
+
+    /**
+     * Returns masks without subscriptions.
+     */
+    public static SubscriptionMasks empty(SubscriptionOrdinals ordinals) {
+        return new SubscriptionMasks(ordinals, NONE, new EnumMap<>(SchedulePreset.class));
+    }
+
+    /**
+     * Builds the masks of the given subscriptions.
+     */
+    public static SubscriptionMasks compile(Collection<Subscription> subscriptions, SubscriptionOrdinals ordinals) {
+        return empty(ordinals).apply(subscriptions.stream().filter(Objects::nonNull).map(SubscriptionChange::put).toList());
+    }
+
+    /**
+     * Returns a copy with the given changes applied in order. Only the touched bitmaps are copied.
+     */
+    public SubscriptionMasks apply(List<SubscriptionChange> changes) {
+        if (changes.isEmpty()) return this;
+
+        RoaringBitmap nextEnabled = enabled.clone();
+        EnumMap<SchedulePreset, RoaringBitmap> nextSchedules = new EnumMap<>(schedules);
+        EnumSet<SchedulePreset> copied = EnumSet.noneOf(SchedulePreset.class);
+
+        for (SubscriptionChange change : changes) {
+            Subscription subscription = change.type() == SubscriptionChange.Type.PUT ? change.subscription() : null;
+            int ordinal = subscription != null ? ordinals.ordinal(change.id()) : ordinals.ordinalOf(change.id());
+            if (ordinal == SubscriptionOrdinals.NO_ORDINAL) continue;
+
+            nextEnabled.remove(ordinal);
+            for (SchedulePreset preset : SchedulePreset.values()) {
+                RoaringBitmap members = nextSchedules.get(preset);
+                boolean member = subscription != null && subscription.getSchedule() == preset;
+                if (members == null ? !member : members.contains(ordinal) == member) continue;
+
+                if (copied.add(preset)) {
+                    members = members != null ? members.clone() : new RoaringBitmap();
+                    nextSchedules.put(preset, members);
+                }
+                if (member) {
+                    members.add(ordinal);
+                } else {
+                    members.remove(ordinal);
+                }
+            }
+            if (subscription != null && subscription.isEnabled()) {
+                nextEnabled.add(ordinal);
+            }
+        }
+        nextEnabled.runOptimize();
+        copied.forEach(preset -> nextSchedules.get(preset).runOptimize());
+        return new SubscriptionMasks(ordinals, nextEnabled, nextSchedules);
+    }
+
+    /**
+     * Returns the ordinals of the enabled subscriptions.
+     */
+    public RoaringBitmap enabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the ordinals of the subscriptions delivered on the given schedule.
+     */
+    public RoaringBitmap schedule(SchedulePreset preset) {
+        RoaringBitmap members = schedules.get(preset);
+        return members != null ? members : NONE;
+    }
+}
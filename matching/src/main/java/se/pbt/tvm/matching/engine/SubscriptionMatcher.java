@@ -0,0 +1,189 @@
+package se.pbt.tvm.matching.engine;
+
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.subscription.model.KeywordDictionary;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Compiled, immutable index that decides which subscriptions want a {@link NewsItem}.
+ * <p>
+ * Every distinct keyword of the enabled subscriptions is compiled into one
+ * {@link KeywordAutomaton}, with a posting list from each keyword to the subscriptions using it.
+ * Ticker symbols go into a {@link TickerIndex}. Matching an article scans its
+ * {@link ArticleText normalized} title and description once and looks up each of its tickers
+ * once, so the cost grows with the article and the number of hits, not with the number of
+ * subscriptions. A subscription matches when any of its keywords occurs in the article as a
+ * whole token sequence, or the article is tagged with any of its tickers.
+ * <p>
+ * {@link #matchOrdinals} reports matches as a bitmap of {@link SubscriptionOrdinals} instead.
+ * Each keyword keeps a compressed bitmap of its subscriptions, so a keyword followed by a
+ * large share of all subscriptions costs a few container unions rather than one entry per
+ * subscription.
+ */
+public final class SubscriptionMatcher {
+
+    private static final SubscriptionMatcher EMPTY = compile(List.of());
+
+    private final String[] subscriptionIds;
+    // Per subscription index: its ordinal
+    private final int[] ordinals;
+    private final KeywordAutomaton automaton;
+    // Per automaton keyword: indexes into subscriptionIds, ascending
+    private final int[][] postings;
+    // Per automaton keyword: the same subscriptions as ordinals
+    private final RoaringBitmap[] ordinalPostings;
+    private final TickerIndex tickers;
+
+    private SubscriptionMatcher(String[] subscriptionIds, int[] ordinals, KeywordAutomaton automaton, int[][] postings,
+                                RoaringBitmap[] ordinalPostings, TickerIndex tickers) {
+        this.subscriptionIds = subscriptionIds;
+        this.ordinals = ordinals;
+        this.automaton = automaton;
+        this.postings = postings;
+        this.ordinalPostings = ordinalPostings;
+        this.tickers = tickers;
+    }
+
+    /**
+     * Returns a matcher without subscriptions.
+     */
+    public static SubscriptionMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles the enabled subscriptions that have an ID and at least one keyword or ticker,
+     * with ordinals of its own.
+     */
+    public static SubscriptionMatcher compile(Collection<Subscription> subscriptions) {
+        return compile(subscriptions, new SubscriptionOrdinals());
+    }
+
+    /**
+     * Compiles the enabled subscriptions that have an ID and at least one keyword or ticker,
+     * taking their ordinals from {@code registry}.
+     */
+    public static SubscriptionMatcher compile(Collection<Subscription> subscriptions, SubscriptionOrdinals registry) {
+        // Built per matcher and dropped with it; its IDs are the automaton's keyword indexes
+        KeywordDictionary dictionary = new KeywordDictionary();
+        List<String> ids = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+        List<List<Integer>> postingLists = new ArrayList<>();
+        TickerIndex.Builder tickerIndex = new TickerIndex.Builder();
+
+        for (Subscription subscription : subscriptions) {
+            if (subscription == null || !subscription.isEnabled() || subscription.getId() == null
+                    || subscription.getFilter() == null) continue;
+            int[] keywordIds = dictionary.internAll(subscription.getFilter().getKeywords());
+            List<String> symbols = subscription.getFilter().getTickers() != null
+                    ? subscription.getFilter().getTickers()
+                    : List.of();
+            if (keywordIds.length == 0 && symbols.isEmpty()) continue;
+
+            int index = ids.size();
+            ids.add(subscription.getId());
+            for (String symbol : symbols) {
+                tickerIndex.add(symbol, index);
+            }
+            for (int keyword : keywordIds) {
+                if (keyword == keywords.size()) {
+                    keywords.add(ArticleText.normalize(dictionary.keyword(keyword)));
+                    postingLists.add(new ArrayList<>());
+                }
+                postingLists.get(keyword).add(index);
+            }
+        }
+
+        int[] ordinals = new int[ids.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = registry.ordinal(ids.get(i));
+        }
+
+        int[][] postings = new int[postingLists.size()][];
+        RoaringBitmap[] ordinalPostings = new RoaringBitmap[postings.length];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = postingLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+            ordinalPostings[i] = new RoaringBitmap();
+            for (int subscription : postings[i]) {
+                ordinalPostings[i].add(ordinals[subscription]);
+            }
+            ordinalPostings[i].runOptimize();
+        }
+        return new SubscriptionMatcher(ids.toArray(String[]::new), ordinals, KeywordAutomaton.build(keywords), postings,
+                ordinalPostings, tickerIndex.build());
+    }
+
+    /**
+     * Returns the IDs of all subscriptions whose keywords occur in the article's title or description,
+     * or whose tickers the article is tagged with, in the order the subscriptions were compiled.
+     */
+    public List<String> match(NewsItem item) {
+        return item != null ? match(ArticleText.of(item)) : List.of();
+    }
+
+    /**
+     * Same as {@link #match(NewsItem)} for an article that is already normalized.
+     */
+    public List<String> match(ArticleText text) {
+        if (subscriptionIds.length == 0) return List.of();
+
+        BitSet seenKeywords = new BitSet(postings.length);
+        BitSet matched = new BitSet(subscriptionIds.length);
+        automaton.scan(text.title(), keyword -> collect(keyword, seenKeywords, matched));
+        automaton.scan(text.description(), keyword -> collect(keyword, seenKeywords, matched));
+        tickers.collect(text.tickers(), matched::set);
+
+        List<String> result = new ArrayList<>(matched.cardinality());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(subscriptionIds[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the ordinals of all subscriptions matching the article to {@code result}.
+     */
+    public void matchOrdinals(NewsItem item, RoaringBitmap result) {
+        if (item != null) {
+            matchOrdinals(ArticleText.of(item), result);
+        }
+    }
+
+    /**
+     * Same as {@link #matchOrdinals(NewsItem, RoaringBitmap)} for an article that is already
+     * normalized.
+     */
+    public void matchOrdinals(ArticleText text, RoaringBitmap result) {
+        if (subscriptionIds.length == 0) return;
+
+        BitSet seenKeywords = new BitSet(postings.length);
+        IntConsumer onKeyword = keyword -> {
+            if (!seenKeywords.get(keyword)) {
+                seenKeywords.set(keyword);
+                result.or(ordinalPostings[keyword]);
+            }
+        };
+        automaton.scan(text.title(), onKeyword);
+        automaton.scan(text.description(), onKeyword);
+        tickers.collect(text.tickers(), subscription -> result.add(ordinals[subscription]));
+    }
+
+    /**
+     * Returns the number of compiled subscriptions.
+     */
+    public int size() {
+        return subscriptionIds.length;
+    }
+
+    private void collect(int keyword, BitSet seenKeywords, BitSet matched) {
+        if (seenKeywords.get(keyword)) return;
+        seenKeywords.set(keyword);
+        for (int subscription : postings[keyword]) {
+            matched.set(subscription);
+        }
+    }
+}
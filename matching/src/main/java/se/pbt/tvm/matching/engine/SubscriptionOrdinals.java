@@ -0,0 +1,131 @@
+package se.pbt.tvm.matching.engine;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every subscription ID a dense integer ordinal, so sets of subscriptions can be held in
+ * bitmaps instead of lists of IDs.
+ * <p>
+ * Ordinals start at 0 and stay dense: the ordinal of a deleted subscription is {@link #release
+ * released} once no compiled matcher uses it any more, and handed out again after the next
+ * {@link #recycle()}. Waiting for a recycle gives bitmaps taken from older snapshots time to go
+ * out of use before their ordinals mean another subscription. Lookups are lock-free; only
+ * assigning or releasing an ordinal takes a lock.
+ * <p>
+ * A matcher and every snapshot derived from it share one instance, so their bitmaps can be
+ * combined. Bitmaps from different instances cannot.
+ */
+public final class SubscriptionOrdinals {
+
+    /** Returned for IDs that are {@code null} or have no ordinal. */
+    public static final int NO_ORDINAL = -1;
+
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final Object growLock = new Object();
+    // Written under growLock before the ordinal is published through ordinals
+    private volatile String[] ids = new String[1024];
+    // Highest assigned ordinal + 1
+    private volatile int limit;
+    private volatile int size;
+    // Guarded by growLock: released since the last recycle, and free for reuse
+    private final Deque<Integer> released = new ArrayDeque<>();
+    private final Deque<Integer> reusable = new ArrayDeque<>();
+
+    /**
+     * Returns the ordinal of a subscription ID, assigning a new one if needed.
+     *
+     * @return the ordinal, or {@link #NO_ORDINAL} for a {@code null} ID
+     */
+    public int ordinal(String id) {
+        if (id == null) return NO_ORDINAL;
+
+        Integer ordinal = ordinals.get(id);
+        return ordinal != null ? ordinal : assign(id);
+    }
+
+    /**
+     * Returns the ordinal of a subscription ID without assigning one.
+     *
+     * @return the ordinal, or {@link #NO_ORDINAL} if the ID is unknown or {@code null}
+     */
+    public int ordinalOf(String id) {
+        if (id == null) return NO_ORDINAL;
+
+        Integer ordinal = ordinals.get(id);
+        return ordinal != null ? ordinal : NO_ORDINAL;
+    }
+
+    /**
+     * Returns the subscription ID of an ordinal.
+     *
+     * @throws IllegalArgumentException if the ordinal is not assigned
+     */
+    public String id(int ordinal) {
+        String id = ordinal >= 0 && ordinal < limit ? ids[ordinal] : null;
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown subscription ordinal: " + ordinal);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the number of IDs that currently have an ordinal.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drops the ordinal of a subscription ID that no compiled matcher uses any more. The
+     * ordinal is reused after the next {@link #recycle()}; unknown IDs are ignored.
+     */
+    public void release(String id) {
+        if (id == null) return;
+        synchronized (growLock) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) return;
+            ids[ordinal] = null;
+            size--;
+            released.add(ordinal);
+        }
+    }
+
+    /**
+     * Makes the ordinals released so far available to new IDs.
+     */
+    public void recycle() {
+        synchronized (growLock) {
+            reusable.addAll(released);
+            released.clear();
+        }
+    }
+
+    /**
+     * Assigns a recycled or the next new ordinal to an ID unless another thread did so first.
+     */
+    private int assign(String id) {
+        synchronized (growLock) {
+            Integer existing = ordinals.get(id);
+            if (existing != null) return existing;
+
+            Integer recycled = reusable.poll();
+            int ordinal = recycled != null ? recycled : limit;
+            String[] current = ids;
+            if (ordinal == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[ordinal] = id;
+            ids = current;
+            if (recycled == null) {
+                limit = ordinal + 1;
+            }
+            size++;
+            ordinals.put(id, ordinal);
+            return ordinal;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package se.pbt.tvm.matching.engine;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable inverted index from ticker symbol to the subscriptions following it.
+ * <p>
+ * Symbols are compared trimmed and uppercased. Each symbol maps to a sorted array of
+ * subscription indexes, so matching an article costs one hash lookup per ticker on the article.
+ */
+final class TickerIndex {
+
+    private final Map<String, int[]> postings;
+
+    private TickerIndex(Map<String, int[]> postings) {
+        this.postings = postings;
+    }
+
+    /**
+     * Reports the subscription indexes of every ticker in the list. A subscription following
+     * several of the tickers is reported once per ticker.
+     */
+    void collect(List<String> tickers, IntConsumer onMatch) {
+        if (tickers == null || postings.isEmpty()) return;
+        for (String ticker : tickers) {
+            int[] subscriptions = postings.get(normalize(ticker));
+            if (subscriptions == null) continue;
+            for (int subscription : subscriptions) {
+                onMatch.accept(subscription);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct symbols in the index.
+     */
+    int size() {
+        return postings.size();
+    }
+
+    /**
+     * Normalizes a ticker symbol for lookups, or returns {@code null} if it is blank.
+     */
+    static String normalize(String ticker) {
+        if (ticker == null) return null;
+        String trimmed = ticker.trim();
+        return trimmed.isEmpty() ? null : trimmed.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Collects ticker postings in subscription order.
+     */
+    static final class Builder {
+
+        private final Map<String, List<Integer>> postings = new HashMap<>();
+
+        /**
+         * Adds a subscription to the posting list of a ticker. Blank tickers are ignored.
+         */
+        Builder add(String ticker, int subscription) {
+            String symbol = normalize(ticker);
+            if (symbol != null) {
+                List<Integer> list = postings.computeIfAbsent(symbol, s -> new ArrayList<>(1));
+                if (list.isEmpty() || list.get(list.size() - 1) != subscription) {
+                    list.add(subscription);
+                }
+            }
+            return this;
+        }
+
+        TickerIndex build() {
+            Map<String, int[]> compiled = new HashMap<>(postings.size() * 2);
+            postings.forEach((symbol, list) -> compiled.put(symbol, list.stream().mapToInt(Integer::intValue).toArray()));
+            return new TickerIndex(compiled);
+        }
+    }
+}
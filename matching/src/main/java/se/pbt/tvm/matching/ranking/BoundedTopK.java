@@ -0,0 +1,75 @@
+package se.pbt.tvm.matching.ranking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best {@code capacity} elements offered to it, using memory proportional to the
+ * capacity no matter how many elements are offered.
+ * <p>
+ * The kept elements form a min-heap, so the worst kept element is always at hand: an offer
+ * that does not beat it is rejected in constant time, otherwise it replaces it in logarithmic
+ * time. On ties the element offered first is kept. Not thread-safe.
+ */
+public final class BoundedTopK<T> {
+
+    private final int capacity;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * Creates an empty selection that keeps the greatest elements according to {@code order}.
+     *
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public BoundedTopK(int capacity, Comparator<? super T> order) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.min(capacity, 64), order);
+    }
+
+    /**
+     * Offers an element.
+     *
+     * @return {@code true} if the element is kept
+     */
+    public boolean offer(T element) {
+        if (heap.size() < capacity) {
+            heap.add(element);
+            return true;
+        }
+        if (order.compare(element, heap.peek()) <= 0) return false;
+
+        heap.poll();
+        heap.add(element);
+        return true;
+    }
+
+    /**
+     * Returns the kept elements, best first.
+     */
+    public List<T> toSortedList() {
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(order.reversed());
+        return sorted;
+    }
+
+    /**
+     * Returns the number of kept elements.
+     */
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * Returns the maximum number of kept elements.
+     */
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,23 @@
+package se.pbt.tvm.matching.ranking;
+
+import java.util.List;
+
+/**
+ * The ranked articles of one digest, most relevant first.
+ * <p>
+ * Immutable, so a single instance is shared by every subscription with the same
+ * {@link DigestFilter}.
+ */
+public record Digest(DigestFilter filter, List<ScoredArticle> articles) {
+
+    public Digest {
+        articles = List.copyOf(articles);
+    }
+
+    /**
+     * Returns {@code true} if no article matched the filter.
+     */
+    public boolean isEmpty() {
+        return articles.isEmpty();
+    }
+}
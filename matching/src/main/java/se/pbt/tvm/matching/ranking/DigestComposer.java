@@ -0,0 +1,79 @@
+package se.pbt.tvm.matching.ranking;
+
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.matching.engine.ArticleText;
+import se.pbt.tvm.matching.engine.LanguagePartitionedMatcher;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Builds the digests of subscriptions that are due together, once per distinct
+ * {@link DigestFilter}.
+ * <p>
+ * The due subscriptions are grouped by filter and one representative per group is compiled into
+ * a matcher. Each article is normalized once, matched once against all representatives, scored
+ * for every representative it matches and offered to that group's {@link BoundedTopK}. The
+ * resulting {@link Digest} is handed to every subscription of the group by reference, so the
+ * work grows with the number of distinct filters and articles, not with the number of
+ * subscribers. Instances are safe to share between threads.
+ */
+public final class DigestComposer {
+
+    private final RelevanceScorer scorer;
+
+    /**
+     * Creates a composer that ranks articles with the given scorer.
+     */
+    public DigestComposer(RelevanceScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    /**
+     * Returns the digest of every enabled subscription with an ID, keyed by subscription ID.
+     * Subscriptions with equal filters map to the same {@link Digest} instance. Disabled
+     * subscriptions get no digest and are never chosen to represent a group.
+     */
+    public Map<String, Digest> compose(Collection<Subscription> subscriptions, List<NewsItem> articles, Instant now) {
+        Map<DigestFilter, List<String>> subscribers = new LinkedHashMap<>();
+        Map<String, Subscription> representatives = new LinkedHashMap<>();
+        Map<String, DigestFilter> filterOf = new HashMap<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription == null || subscription.getId() == null || !subscription.isEnabled()) continue;
+
+            DigestFilter filter = DigestFilter.of(subscription);
+            List<String> ids = subscribers.computeIfAbsent(filter, f -> new ArrayList<>());
+            if (ids.isEmpty()) {
+                representatives.put(subscription.getId(), subscription);
+                filterOf.put(subscription.getId(), filter);
+            }
+            ids.add(subscription.getId());
+        }
+
+        Map<String, BoundedTopK<ScoredArticle>> rankings = new HashMap<>();
+        if (!articles.isEmpty() && !representatives.isEmpty()) {
+            LanguagePartitionedMatcher matcher = LanguagePartitionedMatcher.compile(representatives.values());
+            for (NewsItem item : articles) {
+                if (item == null) continue;
+                ArticleText text = ArticleText.of(item);
+                for (String id : matcher.match(text)) {
+                    Subscription representative = representatives.get(id);
+                    rankings.computeIfAbsent(id, r -> new BoundedTopK<>(filterOf.get(r).maxItems(), ScoredArticle.BY_RELEVANCE))
+                            .offer(new ScoredArticle(item, scorer.score(representative, text, now)));
+                }
+            }
+        }
+
+        Map<String, Digest> digests = new HashMap<>();
+        representatives.forEach((id, representative) -> {
+            DigestFilter filter = filterOf.get(id);
+            BoundedTopK<ScoredArticle> ranking = rankings.get(id);
+            Digest digest = new Digest(filter, ranking != null ? ranking.toSortedList() : List.of());
+            for (String subscriber : subscribers.get(filter)) {
+                digests.put(subscriber, digest);
+            }
+        });
+        return digests;
+    }
+}
@@ -0,0 +1,34 @@
+package se.pbt.tvm.matching.ranking;
+
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Canonical form of everything that decides the content of a subscription's digest: keywords
+ * and language (as a {@link SubscriptionFingerprint}), tickers and the number of items.
+ * <p>
+ * Subscriptions with equal filters that are due at the same time receive the same digest, so it
+ * only has to be computed once. Tickers are trimmed, uppercased, deduplicated and sorted.
+ */
+public record DigestFilter(SubscriptionFingerprint fingerprint, List<String> tickers, int maxItems) {
+
+    /**
+     * Builds the filter of a subscription.
+     */
+    public static DigestFilter of(Subscription subscription) {
+        List<String> tickers = subscription.getFilter() != null && subscription.getFilter().getTickers() != null
+                ? subscription.getFilter().getTickers().stream()
+                        .filter(Objects::nonNull)
+                        .map(ticker -> ticker.trim().toUpperCase(Locale.ROOT))
+                        .filter(ticker -> !ticker.isEmpty())
+                        .distinct()
+                        .sorted()
+                        .toList()
+                : List.of();
+        return new DigestFilter(SubscriptionFingerprint.of(subscription), tickers, Math.max(1, subscription.getMaxItems()));
+    }
+}
@@ -0,0 +1,112 @@
+package se.pbt.tvm.matching.ranking;
+
+import se.pbt.tvm.matching.engine.ArticleText;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Rates how relevant a matched article is for a subscription.
+ * <p>
+ * The score adds up:
+ * <ul>
+ *     <li>keyword hits, where a hit in the title counts twice as much as one in the description
+ *     and at most {@value #MAX_COUNTED_HITS} hits per field are counted,</li>
+ *     <li>a fixed bonus if the article is tagged with one of the subscription's tickers,</li>
+ *     <li>a recency bonus that halves every {@link #RECENCY_HALF_LIFE} since {@code publishedAt}.</li>
+ * </ul>
+ * Keyword hits are counted on the article's {@link ArticleText}, so scoring many subscriptions
+ * against the same article counts each keyword once. Keywords that normalize to the same phrase
+ * count once per subscription.
+ * <p>
+ * The phrases of a keyword list are normalized once and cached for as long as the list is in
+ * use; subscriptions with equal keywords share the cached phrases. Instances are safe to share
+ * between threads.
+ */
+public final class RelevanceScorer {
+
+    static final double TITLE_HIT_WEIGHT = 2.0;
+    static final double DESCRIPTION_HIT_WEIGHT = 1.0;
+    static final int MAX_COUNTED_HITS = 3;
+    static final double TICKER_WEIGHT = 3.0;
+    static final double RECENCY_WEIGHT = 4.0;
+    static final Duration RECENCY_HALF_LIFE = Duration.ofHours(6);
+
+    // Keyword list of a filter -> its distinct normalized phrases; weak, so lists of replaced
+    // or deleted subscriptions are dropped
+    private final Map<List<String>, String[]> phrases = new WeakHashMap<>();
+
+    /**
+     * Returns the relevance of the article for the subscription at the given time.
+     */
+    public double score(Subscription subscription, ArticleText text, Instant now) {
+        return keywordScore(subscription, text) + tickerScore(subscription, text) + recencyScore(text, now);
+    }
+
+    private double keywordScore(Subscription subscription, ArticleText text) {
+        List<String> keywords = subscription.getFilter() != null ? subscription.getFilter().getKeywords() : null;
+        if (keywords == null) return 0;
+
+        int titleHits = 0;
+        int descriptionHits = 0;
+        for (String phrase : phrasesOf(keywords)) {
+            titleHits += text.titleHits(phrase);
+            descriptionHits += text.descriptionHits(phrase);
+        }
+        return TITLE_HIT_WEIGHT * Math.min(titleHits, MAX_COUNTED_HITS)
+                + DESCRIPTION_HIT_WEIGHT * Math.min(descriptionHits, MAX_COUNTED_HITS);
+    }
+
+    /**
+     * Returns the distinct normalized phrases of the keywords, normalizing them on first use.
+     */
+    String[] phrasesOf(List<String> keywords) {
+        synchronized (phrases) {
+            String[] cached = phrases.get(keywords);
+            if (cached != null) return cached;
+        }
+
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            distinct.add(ArticleText.normalize(keyword));
+        }
+        String[] normalized = distinct.toArray(String[]::new);
+        synchronized (phrases) {
+            phrases.putIfAbsent(keywords, normalized);
+            return phrases.get(keywords);
+        }
+    }
+
+    private static double tickerScore(Subscription subscription, ArticleText text) {
+        List<String> wanted = subscription.getFilter() != null ? subscription.getFilter().getTickers() : null;
+        List<String> tagged = text.tickers();
+        if (wanted == null || wanted.isEmpty() || tagged == null || tagged.isEmpty()) return 0;
+
+        for (String ticker : tagged) {
+            if (ticker == null) continue;
+            String symbol = ticker.trim().toUpperCase(Locale.ROOT);
+            for (String candidate : wanted) {
+                if (candidate != null && symbol.equals(candidate.trim().toUpperCase(Locale.ROOT))) {
+                    return TICKER_WEIGHT;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static double recencyScore(ArticleText text, Instant now) {
+        Instant publishedAt = text.item().publishedAt();
+        if (publishedAt == null) return 0;
+
+        // Articles dated in the future count as brand new
+        long ageMillis = Math.max(0, Duration.between(publishedAt, now).toMillis());
+        return RECENCY_WEIGHT * Math.pow(0.5, (double) ageMillis / RECENCY_HALF_LIFE.toMillis());
+    }
+}
@@ -0,0 +1,20 @@
+package se.pbt.tvm.matching.ranking;
+
+import se.pbt.tvm.core.news.NewsItem;
+
+import java.time.Instant;
+import java.util.Comparator;
+
+/**
+ * An article together with its relevance for one subscription.
+ */
+public record ScoredArticle(NewsItem item, double score) {
+
+    /**
+     * Orders by score, then by publication time, so the newer of two equally relevant articles
+     * ranks higher. Articles without a publication time rank below dated ones.
+     */
+    public static final Comparator<ScoredArticle> BY_RELEVANCE = Comparator
+            .comparingDouble(ScoredArticle::score)
+            .thenComparing(scored -> scored.item().publishedAt(), Comparator.nullsFirst(Comparator.<Instant>naturalOrder()));
+}
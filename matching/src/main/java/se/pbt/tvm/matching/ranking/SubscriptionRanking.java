@@ -0,0 +1,62 @@
+package se.pbt.tvm.matching.ranking;
+
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the most relevant articles of each subscription during a schedule window.
+ * <p>
+ * Every subscription keeps a {@link BoundedTopK} sized by its {@link Subscription#getMaxItems()
+ * maxItems}, so memory stays proportional to what will be delivered no matter how many articles
+ * match. Offers for different subscriptions do not block each other.
+ */
+public final class SubscriptionRanking {
+
+    private final Map<String, BoundedTopK<ScoredArticle>> rankings = new ConcurrentHashMap<>();
+
+    /**
+     * Offers a scored article to the ranking of a subscription.
+     *
+     * @return {@code true} if the article is currently among the subscription's best
+     */
+    public boolean offer(Subscription subscription, ScoredArticle article) {
+        int capacity = Math.max(1, subscription.getMaxItems());
+        boolean[] kept = new boolean[1];
+        rankings.compute(subscription.getId(), (id, ranking) -> {
+            if (ranking == null || ranking.capacity() != capacity) {
+                ranking = resize(ranking, capacity);
+            }
+            kept[0] = ranking.offer(article);
+            return ranking;
+        });
+        return kept[0];
+    }
+
+    /**
+     * Removes and returns the best articles of a subscription, most relevant first.
+     */
+    public List<ScoredArticle> drain(String subscriptionId) {
+        BoundedTopK<ScoredArticle> ranking = rankings.remove(subscriptionId);
+        return ranking != null ? ranking.toSortedList() : List.of();
+    }
+
+    /**
+     * Returns the IDs of the subscriptions that have ranked articles.
+     */
+    public Set<String> subscriptionIds() {
+        return Set.copyOf(rankings.keySet());
+    }
+
+    // maxItems may change within a window; keep the best of what was collected so far
+    private static BoundedTopK<ScoredArticle> resize(BoundedTopK<ScoredArticle> previous, int capacity) {
+        BoundedTopK<ScoredArticle> ranking = new BoundedTopK<>(capacity, ScoredArticle.BY_RELEVANCE);
+        if (previous != null) {
+            previous.toSortedList().forEach(ranking::offer);
+        }
+        return ranking;
+    }
+}
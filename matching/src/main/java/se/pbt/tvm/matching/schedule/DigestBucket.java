@@ -0,0 +1,11 @@
+package se.pbt.tvm.matching.schedule;
+
+import se.pbt.tvm.core.subscription.SchedulePreset;
+
+import java.time.ZoneId;
+
+/**
+ * Subscriptions that share a schedule preset and a time zone, and therefore always receive
+ * their digests at the same instant.
+ */
+public record DigestBucket(SchedulePreset preset, ZoneId zone) {}
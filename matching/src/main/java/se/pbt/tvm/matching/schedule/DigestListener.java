@@ -0,0 +1,13 @@
+package se.pbt.tvm.matching.schedule;
+
+/**
+ * Receives the digests that are due. Implementations are picked up as Spring beans.
+ */
+@FunctionalInterface
+public interface DigestListener {
+
+    /**
+     * Called on the scheduler thread when a bucket fires.
+     */
+    void onDigestDue(DueDigest digest);
+}
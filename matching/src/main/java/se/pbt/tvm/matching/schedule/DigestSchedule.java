@@ -0,0 +1,251 @@
+package se.pbt.tvm.matching.schedule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.support.CronExpression;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.CustomSchedule;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Fire times of all digests, grouped into one {@link DigestBucket} per schedule preset and
+ * time zone.
+ * <p>
+ * Each bucket's next fire instant is computed from the preset's cron in the bucket's zone, so
+ * daylight saving time is respected, and all buckets are kept in a single priority queue
+ * ordered by that instant. The number of timers is therefore bounded by presets &times; zones
+ * in use, not by the number of subscriptions. Only enabled subscriptions are scheduled.
+ * <p>
+ * Subscriptions with a {@link CustomSchedule} are not bucketed. Each gets its own timeout in a
+ * {@link TimingWheel} with a resolution of {@link #TICK}, so adding, moving and cancelling them
+ * costs O(1) however many distinct schedules exist. A custom schedule that cannot be parsed
+ * falls back to the preset.
+ * <p>
+ * Not thread-safe; {@link #pollDue} is meant to be called about once per {@link #TICK}.
+ */
+public final class DigestSchedule {
+
+    /** Resolution of custom schedules. */
+    public static final Duration TICK = Duration.ofSeconds(1);
+
+    private static final Logger log = LoggerFactory.getLogger(DigestSchedule.class);
+    private static final Map<SchedulePreset, CronExpression> CRONS = new EnumMap<>(SchedulePreset.class);
+
+    static {
+        for (SchedulePreset preset : SchedulePreset.values()) {
+            CRONS.put(preset, CronExpression.parse(preset.getCron()));
+        }
+    }
+
+    private final Map<DigestBucket, Set<String>> members = new HashMap<>();
+    private final Map<String, DigestBucket> bucketOf = new HashMap<>();
+    // Buckets with members by next fire time; emptied buckets are dropped when they reach the head
+    private final PriorityQueue<Scheduled> queue = new PriorityQueue<>(Comparator.comparing(Scheduled::fireTime));
+    private final Map<DigestBucket, Scheduled> scheduled = new HashMap<>();
+    // Created at the first custom schedule, so it starts at that call's time
+    private TimingWheel<String> wheel;
+    private final Map<String, Custom> custom = new HashMap<>();
+
+    /**
+     * Adds, moves or removes the subscription according to its current schedule, time zone
+     * and enabled flag. A new bucket fires at its first cron time after {@code now}.
+     */
+    public void put(Subscription subscription, Instant now) {
+        if (subscription.getId() == null) return;
+
+        CustomSchedule customSchedule = subscription.isEnabled() ? customScheduleOf(subscription) : null;
+        if (customSchedule != null) {
+            removeFromBucket(subscription.getId());
+            putCustom(subscription.getId(), customSchedule, zoneOf(subscription), now);
+            return;
+        }
+        cancelCustom(subscription.getId());
+
+        DigestBucket target = subscription.isEnabled() && subscription.getSchedule() != null
+                ? new DigestBucket(subscription.getSchedule(), zoneOf(subscription))
+                : null;
+        DigestBucket current = bucketOf.get(subscription.getId());
+        if (Objects.equals(current, target)) return;
+
+        removeFromBucket(subscription.getId());
+        if (target == null) return;
+
+        bucketOf.put(subscription.getId(), target);
+        members.computeIfAbsent(target, bucket -> new HashSet<>()).add(subscription.getId());
+        if (!scheduled.containsKey(target)) {
+            schedule(target, nextFireTime(target, now));
+        }
+    }
+
+    /**
+     * Removes a subscription from its bucket.
+     */
+    public void remove(String subscriptionId) {
+        removeFromBucket(subscriptionId);
+        cancelCustom(subscriptionId);
+    }
+
+    private void removeFromBucket(String subscriptionId) {
+        DigestBucket bucket = bucketOf.remove(subscriptionId);
+        if (bucket == null) return;
+
+        Set<String> ids = members.get(bucket);
+        ids.remove(subscriptionId);
+        if (ids.isEmpty()) {
+            members.remove(bucket);
+        }
+    }
+
+    /**
+     * Applies a repository change.
+     */
+    public void apply(SubscriptionChange change, Instant now) {
+        if (change.type() == SubscriptionChange.Type.PUT) {
+            put(change.subscription(), now);
+        } else {
+            remove(change.id());
+        }
+    }
+
+    /**
+     * Returns the buckets that fired at or before {@code now}, earliest first, and schedules
+     * each of them for its next fire time after {@code now}. A bucket that was due several
+     * times is reported once.
+     */
+    public List<DueDigest> pollDue(Instant now) {
+        List<DueDigest> due = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().fireTime().isAfter(now)) {
+            Scheduled head = queue.poll();
+            scheduled.remove(head.bucket());
+            Set<String> ids = members.get(head.bucket());
+            if (ids == null) continue;
+
+            due.add(new DueDigest(head.bucket(), head.fireTime(), Set.copyOf(ids)));
+            schedule(head.bucket(), nextFireTime(head.bucket(), now));
+        }
+
+        if (wheel != null && wheel.size() > 0) {
+            int buckets = due.size();
+            wheel.advance(now, id -> {
+                Custom entry = custom.remove(id);
+                due.add(new DueDigest(null, entry.timeout().deadline(), Set.of(id)));
+                scheduleCustom(id, entry.schedule(), entry.zone(), now);
+            });
+            if (due.size() > buckets) {
+                due.sort(Comparator.comparing(DueDigest::fireTime));
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Returns the earliest scheduled fire time, if any bucket is scheduled.
+     */
+    public Optional<Instant> nextFireTime() {
+        dropEmptyHeads();
+        return queue.isEmpty() ? Optional.empty() : Optional.of(queue.peek().fireTime());
+    }
+
+    /**
+     * Returns the next fire time of a subscription with a custom schedule, if it is scheduled.
+     */
+    public Optional<Instant> customFireTime(String subscriptionId) {
+        Custom entry = custom.get(subscriptionId);
+        return entry != null ? Optional.of(entry.timeout().deadline()) : Optional.empty();
+    }
+
+    /**
+     * Returns the bucket of a subscription, if it is scheduled.
+     */
+    public Optional<DigestBucket> bucketOf(String subscriptionId) {
+        return Optional.ofNullable(bucketOf.get(subscriptionId));
+    }
+
+    /**
+     * Returns the number of buckets that have subscriptions.
+     */
+    public int bucketCount() {
+        return members.size();
+    }
+
+    /**
+     * Returns the number of subscriptions with a custom schedule.
+     */
+    public int customCount() {
+        return custom.size();
+    }
+
+    /**
+     * Returns the next time the preset's cron fires in the bucket's zone after {@code after}.
+     */
+    static Instant nextFireTime(DigestBucket bucket, Instant after) {
+        ZonedDateTime next = CRONS.get(bucket.preset()).next(after.atZone(bucket.zone()));
+        if (next == null) {
+            throw new IllegalStateException("Schedule " + bucket.preset() + " never fires again");
+        }
+        return next.toInstant();
+    }
+
+    private void schedule(DigestBucket bucket, Instant fireTime) {
+        Scheduled entry = new Scheduled(bucket, fireTime);
+        scheduled.put(bucket, entry);
+        queue.add(entry);
+    }
+
+    private void dropEmptyHeads() {
+        while (!queue.isEmpty() && !members.containsKey(queue.peek().bucket())) {
+            scheduled.remove(queue.poll().bucket());
+        }
+    }
+
+    private void putCustom(String id, CustomSchedule schedule, ZoneId zone, Instant now) {
+        Custom current = custom.get(id);
+        if (current != null && current.schedule().equals(schedule) && current.zone().equals(zone)) return;
+
+        cancelCustom(id);
+        scheduleCustom(id, schedule, zone, now);
+    }
+
+    private void scheduleCustom(String id, CustomSchedule schedule, ZoneId zone, Instant now) {
+        Instant next = schedule.next(now, zone);
+        if (next == null) return;
+
+        if (wheel == null) {
+            wheel = new TimingWheel<>(TICK, now);
+        }
+        custom.put(id, new Custom(schedule, zone, wheel.schedule(id, next)));
+    }
+
+    private void cancelCustom(String id) {
+        Custom entry = custom.remove(id);
+        if (entry != null) {
+            entry.timeout().cancel();
+        }
+    }
+
+    private static CustomSchedule customScheduleOf(Subscription subscription) {
+        if (subscription.getCustomSchedule() == null) return null;
+        try {
+            return CustomSchedule.parse(subscription.getCustomSchedule());
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring custom schedule of subscription {}: {}", subscription.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static ZoneId zoneOf(Subscription subscription) {
+        return subscription.getTimezone() != null ? subscription.getTimezone().toZoneId() : ZoneOffset.UTC;
+    }
+
+    private record Scheduled(DigestBucket bucket, Instant fireTime) {}
+
+    private record Custom(CustomSchedule schedule, ZoneId zone, TimingWheel.Timeout<String> timeout) {}
+}
@@ -0,0 +1,12 @@
+package se.pbt.tvm.matching.schedule;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * A bucket whose digests are due, with the subscriptions it held when it fired.
+ * <p>
+ * For a subscription with a {@link se.pbt.tvm.subscription.model.CustomSchedule custom schedule}
+ * the bucket is {@code null} and the only subscription is that one.
+ */
+public record DueDigest(DigestBucket bucket, Instant fireTime, Set<String> subscriptionIds) {}
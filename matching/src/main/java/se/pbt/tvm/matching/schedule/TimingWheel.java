@@ -0,0 +1,210 @@
+package se.pbt.tvm.matching.schedule;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel that holds any number of timeouts at a fixed tick resolution.
+ * <p>
+ * There are {@value #LEVELS} wheels of {@value #SLOTS} slots; a slot of level {@code n} spans
+ * {@code SLOTS^n} ticks. A timeout is filed in the lowest level whose span separates its deadline
+ * from the current tick, in the slot picked by the deadline's bits at that level. Each slot is
+ * an intrusive doubly linked list, so scheduling and cancelling are O(1). Advancing by one tick
+ * fires one level-0 slot and, whenever a lower level wraps around, re-files the next slot of the
+ * level above into the lower levels. A timeout is re-filed at most once per level, so advancing
+ * is O(1) amortized per timeout and the cost does not depend on how many timeouts are pending.
+ * <p>
+ * Deadlines beyond the top level's range are parked in the top level and re-filed every time it
+ * wraps. Not thread-safe; meant to be driven by a single ticking thread.
+ */
+public final class TimingWheel<T> {
+
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 6;
+    private static final int MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final Timeout<T>[][] heads;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty wheel that starts at {@code start}.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(Duration tick, Instant start) {
+        if (tick.toMillis() <= 0) {
+            throw new IllegalArgumentException("Tick must be at least one millisecond: " + tick);
+        }
+        this.tickMillis = tick.toMillis();
+        this.heads = new Timeout[LEVELS][SLOTS];
+        this.currentTick = Math.floorDiv(start.toEpochMilli(), tickMillis);
+    }
+
+    /**
+     * Schedules a payload to fire at the first tick at or after {@code deadline}. Deadlines that
+     * have already passed fire on the next advance.
+     */
+    public Timeout<T> schedule(T payload, Instant deadline) {
+        long deadlineTick = Math.max(Math.floorDiv(deadline.toEpochMilli() + tickMillis - 1, tickMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(this, payload, deadline, deadlineTick);
+        file(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel forward to {@code now}, passing the payload of every timeout that expires
+     * to {@code onExpired}, earliest tick first.
+     */
+    public void advance(Instant now, Consumer<T> onExpired) {
+        long targetTick = Math.floorDiv(now.toEpochMilli(), tickMillis);
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+
+            int slot = (int) (currentTick & MASK);
+            if (heads[0][slot] == null) continue;
+
+            // Unlink the whole slot first, so callbacks may schedule and cancel freely
+            List<T> expired = new ArrayList<>();
+            Timeout<T> timeout = detach(0, slot);
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                timeout.wheel = null;
+                size--;
+                expired.add(timeout.payload);
+                timeout = next;
+            }
+            expired.forEach(onExpired);
+        }
+    }
+
+    /**
+     * Returns the number of pending timeouts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the time up to which the wheel has advanced.
+     */
+    public Instant currentTime() {
+        return Instant.ofEpochMilli(currentTick * tickMillis);
+    }
+
+    /**
+     * Re-files the slots of higher levels that the current tick has reached, top level first.
+     */
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            long lowerBits = currentTick & ((1L << (SLOT_BITS * level)) - 1);
+            if (lowerBits != 0) continue;
+
+            Timeout<T> timeout = detach(level, (int) ((currentTick >>> (SLOT_BITS * level)) & MASK));
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                file(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void file(Timeout<T> timeout) {
+        long difference = timeout.deadlineTick ^ currentTick;
+        int level = difference == 0 ? 0 : (63 - Long.numberOfLeadingZeros(difference)) / SLOT_BITS;
+        if (level >= LEVELS) {
+            level = LEVELS - 1;
+        }
+        int slot = (int) ((timeout.deadlineTick >>> (SLOT_BITS * level)) & MASK);
+
+        Timeout<T> head = heads[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        heads[level][slot] = timeout;
+    }
+
+    private Timeout<T> detach(int level, int slot) {
+        Timeout<T> head = heads[level][slot];
+        heads[level][slot] = null;
+        for (Timeout<T> timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.prev = null;
+        }
+        return head;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.wheel = null;
+        size--;
+    }
+
+    /**
+     * Handle of a scheduled payload.
+     */
+    public static final class Timeout<T> {
+
+        private TimingWheel<T> wheel;
+        private final T payload;
+        private final Instant deadline;
+        private final long deadlineTick;
+        private int level;
+        private int slot;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(TimingWheel<T> wheel, T payload, Instant deadline, long deadlineTick) {
+            this.wheel = wheel;
+            this.payload = payload;
+            this.deadline = deadline;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Removes the timeout from its wheel in O(1).
+         *
+         * @return {@code true} if it was still pending
+         */
+        public boolean cancel() {
+            if (wheel == null) return false;
+            wheel.unlink(this);
+            return true;
+        }
+
+        /**
+         * Returns {@code true} while the timeout has neither fired nor been cancelled.
+         */
+        public boolean isPending() {
+            return wheel != null;
+        }
+
+        public T payload() {
+            return payload;
+        }
+
+        public Instant deadline() {
+            return deadline;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package se.pbt.tvm.matching.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import se.pbt.tvm.matching.schedule.DigestListener;
+import se.pbt.tvm.matching.schedule.DigestSchedule;
+import se.pbt.tvm.matching.schedule.DueDigest;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires subscription digests at their schedule preset's times in their own time zones, or at
+ * their custom schedule's times.
+ * <p>
+ * Keeps a {@link DigestSchedule} in sync with the repository through its change listener. A
+ * single ticking thread polls it once per {@link DigestSchedule#TICK} and tells every
+ * {@link DigestListener} about each due digest on that thread. Without listeners the thread is
+ * not started, since nobody would receive the digests; {@link #fireDue()} can still be called
+ * directly.
+ */
+@Service
+public class DigestSchedulingService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DigestSchedulingService.class);
+
+    private final List<DigestListener> listeners;
+    private final Clock clock;
+    private final ScheduledThreadPoolExecutor ticker;
+    // Guards schedule
+    private final Object lock = new Object();
+    private final DigestSchedule schedule = new DigestSchedule();
+
+    /**
+     * Starts scheduling the repository's subscriptions for the listener beans.
+     */
+    @Autowired
+    public DigestSchedulingService(SubscriptionRepository repository, ObjectProvider<DigestListener> listeners) {
+        this(repository, listeners.orderedStream().toList(), Clock.systemUTC());
+    }
+
+    /**
+     * Starts scheduling the repository's subscriptions with the given listeners and clock.
+     */
+    public DigestSchedulingService(SubscriptionRepository repository, List<DigestListener> listeners, Clock clock) {
+        this.listeners = List.copyOf(listeners);
+        this.clock = clock;
+        this.ticker = this.listeners.isEmpty() ? null : new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "digest-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Registered first, so no change is missed while the initial load runs
+        repository.addChangeListener(this::onChange);
+        synchronized (lock) {
+            Instant now = clock.instant();
+            for (Subscription subscription : repository.findAll()) {
+                schedule.put(subscription, now);
+            }
+            log.info("Scheduled digests in {} buckets and {} custom schedules",
+                    schedule.bucketCount(), schedule.customCount());
+        }
+
+        if (ticker == null) {
+            log.info("No digest listeners registered, digests are not fired automatically");
+            return;
+        }
+        long tick = DigestSchedule.TICK.toMillis();
+        ticker.scheduleWithFixedDelay(this::fireDue, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns {@code true} if the ticking thread was started.
+     */
+    boolean isTicking() {
+        return ticker != null && !ticker.isShutdown();
+    }
+
+    /**
+     * Returns the time the next bucket fires, if any. Custom schedules are not included.
+     */
+    public Instant nextFireTime() {
+        synchronized (lock) {
+            return schedule.nextFireTime().orElse(null);
+        }
+    }
+
+    /**
+     * Returns the next fire time of a subscription with a custom schedule, if any.
+     */
+    public Instant customFireTime(String subscriptionId) {
+        synchronized (lock) {
+            return schedule.customFireTime(subscriptionId).orElse(null);
+        }
+    }
+
+    /**
+     * Fires every digest that is due now.
+     */
+    public void fireDue() {
+        List<DueDigest> due;
+        synchronized (lock) {
+            due = schedule.pollDue(clock.instant());
+        }
+        for (DueDigest digest : due) {
+            for (DigestListener listener : listeners) {
+                try {
+                    listener.onDigestDue(digest);
+                } catch (RuntimeException e) {
+                    log.error("Digest listener failed for {}", digest.bucket() != null ? digest.bucket() : digest.subscriptionIds(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops ticking.
+     */
+    @Override
+    public void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    private void onChange(SubscriptionChange change) {
+        synchronized (lock) {
+            schedule.apply(change, clock.instant());
+        }
+    }
+}
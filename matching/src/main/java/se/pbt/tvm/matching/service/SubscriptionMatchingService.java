@@ -0,0 +1,280 @@
+package se.pbt.tvm.matching.service;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.matching.config.MatchingProperties;
+import se.pbt.tvm.matching.engine.ArticleText;
+import se.pbt.tvm.matching.engine.BatchMatcher;
+import se.pbt.tvm.matching.engine.DeltaMatcher;
+import se.pbt.tvm.matching.engine.LanguagePartitionedMatcher;
+import se.pbt.tvm.matching.engine.SubscriptionOrdinals;
+import se.pbt.tvm.matching.ranking.Digest;
+import se.pbt.tvm.matching.ranking.DigestComposer;
+import se.pbt.tvm.matching.ranking.RelevanceScorer;
+import se.pbt.tvm.matching.ranking.ScoredArticle;
+import se.pbt.tvm.matching.ranking.SubscriptionRanking;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides which subscriptions want a given {@link NewsItem}.
+ * <p>
+ * Keeps a {@link DeltaMatcher} that follows the repository through its change listener.
+ * The listener only queues the change, since it runs while the repository holds its write lock;
+ * the merge thread applies the queued changes in batches. A batch only recompiles the small
+ * delta, once; the delta is merged into the base in the background once it reaches the
+ * configured threshold or age. Every state is an
+ * immutable snapshot published through an atomic reference, so matching never locks and never
+ * waits for a merge.
+ * <p>
+ * Batches of articles are matched in parallel by a {@link BatchMatcher}, with
+ * {@code matching.parallelism} threads, and can be ranked into a {@link SubscriptionRanking}
+ * that keeps the most relevant articles of each subscription. When a schedule fires, the digests
+ * of all due subscriptions are composed once per distinct filter.
+ */
+@Service
+public class SubscriptionMatchingService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionMatchingService.class);
+
+    private final SubscriptionRepository repository;
+    private final int mergeThreshold;
+    private final Duration mergeDelay;
+    private final ScheduledThreadPoolExecutor merger;
+    private final BatchMatcher batchMatcher;
+    private final RelevanceScorer scorer = new RelevanceScorer();
+    private final DigestComposer composer = new DigestComposer(scorer);
+
+    private final SubscriptionOrdinals ordinals = new SubscriptionOrdinals();
+    private final AtomicReference<DeltaMatcher> current =
+            new AtomicReference<>(DeltaMatcher.of(LanguagePartitionedMatcher.empty(ordinals)));
+    // Repository changes not yet applied to the delta, oldest first
+    private final ConcurrentLinkedQueue<SubscriptionChange> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean applyScheduled = new AtomicBoolean();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final AtomicBoolean urgentMergeScheduled = new AtomicBoolean();
+    // Only one thread at a time may replace the base
+    private final Object mergeLock = new Object();
+    // Only one thread at a time may take changes from the inbox, so they are applied in order
+    private final Object applyLock = new Object();
+
+    /**
+     * Starts following the repository and compiles its current subscriptions.
+     */
+    public SubscriptionMatchingService(SubscriptionRepository repository, MatchingProperties properties) {
+        this.repository = repository;
+        this.mergeThreshold = properties.getMergeThreshold();
+        this.mergeDelay = properties.getMergeDelay();
+        this.merger = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "matcher-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.merger.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.batchMatcher = new BatchMatcher(properties.getParallelism());
+
+        // Changes made while the base is compiled are replayed on top of it
+        repository.addChangeListener(this::onChange);
+        rebuild();
+    }
+
+    /**
+     * Returns the IDs of the enabled subscriptions that match the article.
+     */
+    public List<String> match(NewsItem item) {
+        return current.get().match(item);
+    }
+
+    /**
+     * Returns the {@link SubscriptionOrdinals ordinals} of the enabled
+     * subscriptions that match the article. Intersect the result with the masks of the same
+     * {@link #matcher()} snapshot to narrow it down.
+     * <p>
+     * The ordinal of a deleted subscription is reused for a new one two merges later, so keep
+     * subscription IDs rather than bitmaps across merges.
+     */
+    public RoaringBitmap matchOrdinals(NewsItem item) {
+        return current.get().matchOrdinals(item);
+    }
+
+    /**
+     * Returns the articles of the batch that each enabled subscription wants, keyed by
+     * subscription ID. The whole batch is matched against the same snapshot.
+     */
+    public Map<String, List<NewsItem>> matchAll(List<NewsItem> items) {
+        return batchMatcher.match(items, current.get()::match);
+    }
+
+    /**
+     * Matches a batch of articles and offers every match, scored at {@code now}, to the ranking
+     * of its subscription. Each article is normalized once, by the worker that matches it, and
+     * the same {@link ArticleText} is used for scoring.
+     */
+    public void rank(List<NewsItem> items, SubscriptionRanking ranking, Instant now) {
+        DeltaMatcher snapshot = current.get();
+        Map<NewsItem, ArticleText> texts = new ConcurrentHashMap<>();
+        Map<String, List<NewsItem>> matches = batchMatcher.match(items, item -> {
+            if (item == null) return List.of();
+            ArticleText text = ArticleText.of(item);
+            texts.put(item, text);
+            return snapshot.match(text);
+        });
+
+        matches.forEach((subscriptionId, matched) -> {
+            Subscription subscription = repository.findById(subscriptionId).orElse(null);
+            if (subscription == null) return;
+            for (NewsItem item : matched) {
+                ArticleText text = texts.get(item);
+                ranking.offer(subscription, new ScoredArticle(item, scorer.score(subscription, text, now)));
+            }
+        });
+    }
+
+    /**
+     * Composes the digests of the given subscriptions from the articles of their window, scored
+     * at {@code now}. Subscriptions with the same filter share one {@link Digest} instance;
+     * unknown IDs and disabled subscriptions are skipped.
+     */
+    public Map<String, Digest> composeDigests(Collection<String> subscriptionIds, List<NewsItem> articles, Instant now) {
+        List<Subscription> subscriptions = new ArrayList<>(subscriptionIds.size());
+        for (String id : subscriptionIds) {
+            repository.findById(id).ifPresent(subscriptions::add);
+        }
+        return composer.compose(subscriptions, articles, now);
+    }
+
+    /**
+     * Returns the current matcher snapshot.
+     */
+    public DeltaMatcher matcher() {
+        return current.get();
+    }
+
+    /**
+     * Applies the queued repository changes to the delta now, instead of waiting for the merge
+     * thread. Changes made before this call are visible to {@link #matcher()} afterwards.
+     */
+    public void applyPendingChanges() {
+        DeltaMatcher next;
+        synchronized (applyLock) {
+            List<SubscriptionChange> batch = new ArrayList<>();
+            for (SubscriptionChange change = inbox.poll(); change != null; change = inbox.poll()) {
+                batch.add(change);
+            }
+            if (batch.isEmpty()) return;
+
+            DeltaMatcher latest;
+            do {
+                latest = current.get();
+                next = latest.apply(batch);
+            } while (!current.compareAndSet(latest, next));
+        }
+
+        if (next.pendingChanges() >= mergeThreshold) {
+            if (urgentMergeScheduled.compareAndSet(false, true)) {
+                submit(() -> urgentMergeScheduled.set(false), 0);
+            }
+        } else if (mergeScheduled.compareAndSet(false, true)) {
+            submit(() -> mergeScheduled.set(false), mergeDelay.toMillis());
+        }
+    }
+
+    /**
+     * Applies the queued changes and merges the pending delta into the base now.
+     */
+    public void merge() {
+        synchronized (mergeLock) {
+            applyPendingChanges();
+            DeltaMatcher start = current.get();
+            if (start.pendingChanges() == 0) return;
+            LanguagePartitionedMatcher base = start.merged();
+            // Ordinals released by the previous merge are no longer in any base
+            ordinals.recycle();
+            start.removedIds().forEach(ordinals::release);
+            publishBase(base, start);
+            log.debug("Merged {} subscription changes into the matcher", start.pendingChanges());
+        }
+    }
+
+    /**
+     * Stops background merging and batch matching.
+     */
+    @Override
+    public void close() {
+        merger.shutdownNow();
+        batchMatcher.close();
+    }
+
+    /**
+     * Compiles a new base from all subscriptions in the repository.
+     */
+    private void rebuild() {
+        synchronized (mergeLock) {
+            DeltaMatcher start = current.get();
+            LanguagePartitionedMatcher base = LanguagePartitionedMatcher.compile(repository.findAll(), ordinals);
+            publishBase(base, start);
+            log.info("Compiled matcher for {} subscriptions in {} languages", base.size(), base.languages().size());
+        }
+    }
+
+    /**
+     * Replaces the base with one that contains every change up to {@code start}, replaying the
+     * changes applied since. Must be called while holding {@code mergeLock}.
+     */
+    private void publishBase(LanguagePartitionedMatcher base, DeltaMatcher start) {
+        DeltaMatcher merged = DeltaMatcher.of(base);
+        DeltaMatcher latest;
+        DeltaMatcher next;
+        do {
+            latest = current.get();
+            next = merged.apply(latest.changesSince(start));
+        } while (!current.compareAndSet(latest, next));
+    }
+
+    /**
+     * Queues a repository change and has the merge thread apply it. Runs under the repository's
+     * write lock, so it does no more than that.
+     */
+    private void onChange(SubscriptionChange change) {
+        inbox.add(change);
+        if (applyScheduled.compareAndSet(false, true) && !merger.isShutdown()) {
+            merger.execute(() -> {
+                applyScheduled.set(false);
+                try {
+                    applyPendingChanges();
+                } catch (RuntimeException e) {
+                    log.error("Failed to apply subscription changes to the matcher", e);
+                }
+            });
+        }
+    }
+
+    private void submit(Runnable resetFlag, long delayMillis) {
+        if (merger.isShutdown()) return;
+        merger.schedule(() -> {
+            resetFlag.run();
+            try {
+                merge();
+            } catch (RuntimeException e) {
+                log.error("Failed to merge subscription changes into the matcher", e);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,65 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.news.NewsItem;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ArticleText")
+class ArticleTextTest {
+
+    @Nested
+    @DisplayName("Normalization")
+    class Normalization {
+
+        @Test
+        @DisplayName("Lowercases and joins tokens with single spaces")
+        void normalize_withPunctuationAndWhitespace_joinsTokens() {
+            assertEquals("ai stocks rally", ArticleText.normalize("  AI-stocks\t\n RALLY!! "));
+            assertEquals("s p 500", ArticleText.normalize("S&P 500"));
+        }
+
+        @Test
+        @DisplayName("Folds compatibility characters and composes accents")
+        void normalize_withUnicodeVariants_foldsToSameText() {
+            assertEquals("ai stocks", ArticleText.normalize("\uFF21\uFF29\u00A0stocks"));
+            assertEquals(ArticleText.normalize("Malm\u00F6"), ArticleText.normalize("Malmo\u0308"));
+        }
+
+        @Test
+        @DisplayName("Returns an empty string for text without tokens")
+        void normalize_withoutTokens_returnsEmpty() {
+            assertEquals("", ArticleText.normalize(null));
+            assertEquals("", ArticleText.normalize(" -- "));
+        }
+    }
+
+    @Test
+    @DisplayName("Normalizes title and description separately and keeps the article")
+    void of_normalizesTitleAndDescription() {
+        var item = new NewsItem("Big AI  Stocks", "Ends with AI", null, null, null, null, List.of("NVDA"), null, null, "en");
+
+        var text = ArticleText.of(item);
+
+        assertEquals("big ai stocks", text.title());
+        assertEquals("ends with ai", text.description());
+        assertEquals(List.of("NVDA"), text.tickers());
+        assertSame(item, text.item());
+    }
+
+    @Test
+    @DisplayName("Counts whole-token phrase occurrences per field")
+    void hits_countWholeTokenOccurrences() {
+        var item = new NewsItem("AI stocks, AI-stocks and PAI stocks", "No AI here stocks", null, null, null, null, List.of(), null, null, "en");
+        var text = ArticleText.of(item);
+
+        assertEquals(2, text.titleHits("ai stocks"));
+        assertEquals(0, text.descriptionHits("ai stocks"));
+        assertEquals(1, text.descriptionHits("ai"));
+        assertEquals(0, text.titleHits(""));
+    }
+}
@@ -0,0 +1,110 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.news.NewsItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static se.pbt.tvm.matching.engine.SubscriptionMatcherTest.article;
+import static se.pbt.tvm.matching.engine.SubscriptionMatcherTest.subscription;
+
+@DisplayName("BatchMatcher")
+class BatchMatcherTest {
+
+    private BatchMatcher batchMatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batchMatcher != null) {
+            batchMatcher.close();
+        }
+    }
+
+    private static List<NewsItem> articles(int count) {
+        List<NewsItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(article(i % 3 == 0 ? "Tesla news " + i : "Volvo news " + i, null));
+        }
+        return items;
+    }
+
+    @Test
+    @DisplayName("Groups a large batch by subscription in batch order")
+    void match_withLargeBatch_groupsInOrder() {
+        batchMatcher = new BatchMatcher(4);
+        var matcher = SubscriptionMatcher.compile(List.of(
+                subscription("tesla", true, "Tesla"),
+                subscription("volvo", true, "Volvo")));
+        var items = articles(500);
+
+        var result = batchMatcher.match(items, matcher::match);
+
+        var tesla = items.stream().filter(item -> item.title().startsWith("Tesla")).toList();
+        var volvo = items.stream().filter(item -> item.title().startsWith("Volvo")).toList();
+        assertEquals(Map.of("tesla", tesla, "volvo", volvo), result);
+    }
+
+    @Test
+    @DisplayName("Returns the same result as matching one article at a time")
+    void match_isEquivalentToSequentialMatching() {
+        batchMatcher = new BatchMatcher(3);
+        var matcher = SubscriptionMatcher.compile(List.of(subscription("tesla", true, "Tesla")));
+        var items = articles(100);
+
+        try (var sequential = new BatchMatcher(1)) {
+            assertEquals(sequential.match(items, matcher::match), batchMatcher.match(items, matcher::match));
+        }
+    }
+
+    @Test
+    @DisplayName("Spreads large batches over the worker threads")
+    void match_withLargeBatch_usesWorkers() {
+        batchMatcher = new BatchMatcher(2);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        batchMatcher.match(articles(200), item -> {
+            threads.add(Thread.currentThread().getName());
+            return List.of();
+        });
+
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("matcher-batch-")));
+    }
+
+    @Test
+    @DisplayName("Matches small batches and single-threaded batches on the calling thread")
+    void match_withSmallBatchOrParallelismOne_runsInline() {
+        String caller = Thread.currentThread().getName();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        batchMatcher = new BatchMatcher(4);
+        batchMatcher.match(articles(BatchMatcher.LEAF_SIZE), item -> {
+            threads.add(Thread.currentThread().getName());
+            return List.of();
+        });
+        try (var sequential = new BatchMatcher(1)) {
+            sequential.match(articles(200), item -> {
+                threads.add(Thread.currentThread().getName());
+                return List.of();
+            });
+            assertEquals(1, sequential.parallelism());
+        }
+
+        assertEquals(Set.of(caller), threads);
+    }
+
+    @Test
+    @DisplayName("Returns an empty map for an empty or missing batch")
+    void match_withEmptyBatch_returnsEmptyMap() {
+        batchMatcher = new BatchMatcher(2);
+
+        assertTrue(batchMatcher.match(List.of(), item -> List.of("x")).isEmpty());
+        assertTrue(batchMatcher.match(null, item -> List.of("x")).isEmpty());
+    }
+}
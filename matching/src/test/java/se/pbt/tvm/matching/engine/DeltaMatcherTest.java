@@ -0,0 +1,160 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DeltaMatcher")
+class DeltaMatcherTest {
+
+    private static Subscription subscription(String id, String language, String keyword) {
+        var sub = SubscriptionMatcherTest.subscription(id, true, keyword);
+        sub.getFilter().setLanguage(language);
+        return sub;
+    }
+
+    private static NewsItem article(String title) {
+        return new NewsItem(title, null, null, null, null, null, List.of(), null, null, "en");
+    }
+
+    private final Subscription tesla = subscription("tesla", "en", "Tesla");
+    private final Subscription volvo = subscription("volvo", "sv", "Volvo");
+    private final DeltaMatcher matcher = DeltaMatcher.of(LanguagePartitionedMatcher.compile(List.of(tesla, volvo)));
+
+    @Nested
+    @DisplayName("Applying changes")
+    class Applying {
+
+        @Test
+        @DisplayName("Added subscriptions match without recompiling the base")
+        void apply_withPut_matchesThroughDelta() {
+            var updated = matcher.apply(SubscriptionChange.put(subscription("ai", "en", "AI")));
+
+            assertEquals(List.of("tesla", "ai"), updated.match(article("Tesla bets on AI")));
+            assertSame(matcher.base(), updated.base());
+            assertEquals(1, updated.pendingChanges());
+        }
+
+        @Test
+        @DisplayName("Deleted subscriptions stop matching")
+        void apply_withDelete_hidesBaseSubscription() {
+            var updated = matcher.apply(SubscriptionChange.delete("tesla"));
+
+            assertTrue(updated.match(article("Tesla")).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Replaced subscriptions match with their new keywords only")
+        void apply_withReplacement_usesNewVersion() {
+            var updated = matcher.apply(SubscriptionChange.put(subscription("tesla", "en", "Rivian")));
+
+            assertTrue(updated.match(article("Tesla")).isEmpty());
+            assertEquals(List.of("tesla"), updated.match(article("Rivian")));
+        }
+
+        @Test
+        @DisplayName("Leaves earlier snapshots untouched")
+        void apply_doesNotChangeEarlierSnapshot() {
+            matcher.apply(SubscriptionChange.delete("tesla"));
+
+            assertEquals(List.of("tesla"), matcher.match(article("Tesla")));
+            assertEquals(0, matcher.pendingChanges());
+        }
+
+        @Test
+        @DisplayName("Branches applied to the same snapshot do not see each other")
+        void apply_toOlderSnapshot_forksChanges() {
+            var first = matcher.apply(SubscriptionChange.delete("tesla"));
+            var second = matcher.apply(SubscriptionChange.delete("volvo"));
+            var extended = first.apply(SubscriptionChange.put(subscription("ai", "en", "AI")));
+
+            assertTrue(first.match(article("Tesla")).isEmpty());
+            assertEquals(List.of("tesla"), second.match(article("Tesla")));
+            assertEquals(List.of(SubscriptionChange.delete("volvo")), second.changesSince(matcher));
+            assertEquals(List.of("ai"), extended.match(article("Tesla bets on AI")));
+            assertEquals(Set.of("tesla"), extended.removedIds());
+        }
+
+        @Test
+        @DisplayName("Replaying a change that is already in the base does not duplicate matches")
+        void apply_withChangeAlreadyInBase_isIdempotent() {
+            var updated = matcher.apply(SubscriptionChange.put(tesla));
+
+            assertEquals(List.of("tesla"), updated.match(article("Tesla")));
+        }
+    }
+
+    @Nested
+    @DisplayName("Bitmap results")
+    class Bitmaps {
+
+        private int ordinal(String id) {
+            return matcher.ordinals().ordinalOf(id);
+        }
+
+        @Test
+        @DisplayName("Hide changed base subscriptions and include the delta")
+        void matchOrdinals_withChanges_matchesListResult() {
+            var updated = matcher
+                    .apply(SubscriptionChange.put(subscription("ai", "en", "AI")))
+                    .apply(SubscriptionChange.put(subscription("tesla", "en", "Rivian")));
+
+            assertEquals(RoaringBitmap.bitmapOf(ordinal("ai")), updated.matchOrdinals(article("Tesla bets on AI")));
+            assertEquals(RoaringBitmap.bitmapOf(ordinal("tesla")), updated.matchOrdinals(article("Rivian")));
+        }
+
+        @Test
+        @DisplayName("Masks follow enabled flags and schedules")
+        void masks_followChanges() {
+            var disabled = subscription("tesla", "en", "Tesla");
+            disabled.setEnabled(false);
+            disabled.setSchedule(SchedulePreset.EVENING);
+
+            var updated = matcher.apply(SubscriptionChange.put(disabled));
+
+            assertTrue(matcher.masks().enabled().contains(ordinal("tesla")));
+            assertFalse(updated.masks().enabled().contains(ordinal("tesla")));
+            assertTrue(updated.masks().schedule(SchedulePreset.EVENING).contains(ordinal("tesla")));
+        }
+    }
+
+    @Nested
+    @DisplayName("Merging")
+    class Merging {
+
+        @Test
+        @DisplayName("Folds the delta into a new base and keeps untouched languages")
+        void merged_containsDeltaAndSharesUnchangedPartitions() {
+            var updated = matcher
+                    .apply(SubscriptionChange.put(subscription("ai", "en", "AI")))
+                    .apply(SubscriptionChange.delete("tesla"));
+
+            var merged = DeltaMatcher.of(updated.merged());
+
+            assertEquals(List.of("ai"), merged.match(article("Tesla and AI")));
+            assertSame(matcher.base().partition("sv"), merged.base().partition("sv"));
+            assertEquals(0, merged.pendingChanges());
+        }
+
+        @Test
+        @DisplayName("Reports the changes applied after an earlier snapshot")
+        void changesSince_returnsLaterChanges() {
+            var first = matcher.apply(SubscriptionChange.delete("tesla"));
+            var second = first.apply(SubscriptionChange.delete("volvo"));
+
+            assertEquals(List.of(SubscriptionChange.delete("volvo")), second.changesSince(first));
+            assertThrows(IllegalStateException.class,
+                    () -> DeltaMatcher.of(LanguagePartitionedMatcher.empty()).changesSince(first));
+        }
+    }
+}
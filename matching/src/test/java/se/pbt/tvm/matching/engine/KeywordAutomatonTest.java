@@ -0,0 +1,86 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("KeywordAutomaton")
+class KeywordAutomatonTest {
+
+    private static List<Integer> scan(KeywordAutomaton automaton, String text) {
+        List<Integer> found = new ArrayList<>();
+        automaton.scan(text, found::add);
+        return found;
+    }
+
+    @Nested
+    @DisplayName("Matching")
+    class Matching {
+
+        @Test
+        @DisplayName("Finds every keyword occurrence, ignoring case")
+        void scan_withSeveralKeywords_reportsEachOccurrence() {
+            var automaton = KeywordAutomaton.build(List.of("tesla", "ai", "volvo cars"));
+
+            assertEquals(List.of(0, 2, 1, 0), scan(automaton, "TESLA and Volvo Cars bet on AI, says Tesla"));
+        }
+
+        @Test
+        @DisplayName("Only reports whole words")
+        void scan_withKeywordInsideWord_ignoresIt() {
+            var automaton = KeywordAutomaton.build(List.of("ai", "c++"));
+
+            assertTrue(scan(automaton, "He said again: maintain").isEmpty());
+            assertEquals(List.of(0, 1), scan(automaton, "AI-driven C++ tooling"));
+        }
+
+        @Test
+        @DisplayName("Reports overlapping and nested keywords")
+        void scan_withOverlappingKeywords_reportsAll() {
+            var automaton = KeywordAutomaton.build(List.of("new york", "york times", "times", "new york times"));
+
+            var found = scan(automaton, "The New York Times reports");
+
+            assertEquals(List.of(0, 3, 1, 2), found);
+        }
+
+        @Test
+        @DisplayName("Follows failure links after a partial match")
+        void scan_afterPartialMatch_recovers() {
+            var automaton = KeywordAutomaton.build(List.of("abcd", "bcx", "c"));
+
+            assertEquals(List.of(), scan(automaton, "abcx"));
+            assertEquals(List.of(1), scan(automaton, "a bcx"));
+            assertEquals(List.of(2), scan(automaton, "ab c"));
+        }
+
+        @Test
+        @DisplayName("Handles null text, empty keywords and non-ASCII text")
+        void scan_withEdgeCases_behaves() {
+            var automaton = KeywordAutomaton.build(Arrays.asList("göteborg", null, ""));
+
+            assertTrue(scan(automaton, null).isEmpty());
+            assertEquals(List.of(0), scan(automaton, "Nyheter från GÖTEBORG."));
+        }
+    }
+
+    @Nested
+    @DisplayName("Structure")
+    class Structure {
+
+        @Test
+        @DisplayName("Shares states between keywords with common prefixes")
+        void build_withCommonPrefixes_sharesStates() {
+            var automaton = KeywordAutomaton.build(List.of("tesla", "tesco", "tes"));
+
+            // root + t, e, s + l, a + c, o
+            assertEquals(8, automaton.stateCount());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LanguagePartitionedMatcher")
+class LanguagePartitionedMatcherTest {
+
+    private static Subscription subscription(String id, String language, String keyword) {
+        var sub = SubscriptionMatcherTest.subscription(id, true, keyword);
+        sub.getFilter().setLanguage(language);
+        return sub;
+    }
+
+    private static NewsItem article(String title, String language) {
+        return new NewsItem(title, null, null, null, null, null, List.of(), null, null, language);
+    }
+
+    @Nested
+    @DisplayName("Routing")
+    class Routing {
+
+        private final LanguagePartitionedMatcher matcher = LanguagePartitionedMatcher.compile(List.of(
+                subscription("en", "en", "Tesla"),
+                subscription("sv", "sv-SE", "Tesla"),
+                subscription("any", null, "Tesla")));
+
+        @Test
+        @DisplayName("Evaluates an article only against its own language and language-less subscriptions")
+        void match_withLanguage_usesOwnPartition() {
+            assertEquals(List.of("en", "any"), matcher.match(article("Tesla", "EN")));
+            assertEquals(List.of("sv", "any"), matcher.match(article("Tesla", "sv")));
+            assertEquals(List.of("any"), matcher.match(article("Tesla", "de")));
+        }
+
+        @Test
+        @DisplayName("Evaluates an article without language against every partition")
+        void match_withoutLanguage_usesAllPartitions() {
+            var result = matcher.match(article("Tesla", null));
+
+            assertEquals(Set.of("en", "sv", "any"), Set.copyOf(result));
+            assertEquals(Set.of("en", "sv", ""), matcher.languages());
+            assertEquals(3, matcher.size());
+        }
+
+        @Test
+        @DisplayName("Reduces language tags to their primary subtag")
+        void partitionKey_stripsRegion() {
+            assertEquals("sv", LanguagePartitionedMatcher.partitionKey(" SV_se "));
+            assertNull(LanguagePartitionedMatcher.partitionKey(" "));
+        }
+    }
+
+    @Nested
+    @DisplayName("Updates")
+    class Updates {
+
+        @Test
+        @DisplayName("Only recompiles the partition whose subscriptions changed")
+        void update_withChangeInOneLanguage_keepsOtherPartitions() {
+            var english = subscription("en", "en", "Tesla");
+            var swedish = subscription("sv", "sv", "Volvo");
+            var matcher = LanguagePartitionedMatcher.compile(List.of(english, swedish));
+
+            var subscriptions = new ArrayList<>(List.of(english, swedish, subscription("sv-2", "sv", "Saab")));
+            var updated = matcher.update(subscriptions);
+
+            assertSame(matcher.partition("en"), updated.partition("en"));
+            assertNotSame(matcher.partition("sv"), updated.partition("sv"));
+            assertEquals(List.of("sv-2"), updated.match(article("Saab", "sv")));
+        }
+
+        @Test
+        @DisplayName("Drops partitions whose last subscription is gone")
+        void update_withoutLanguage_dropsPartition() {
+            var matcher = LanguagePartitionedMatcher.compile(List.of(subscription("en", "en", "Tesla")));
+
+            var updated = matcher.update(List.of());
+
+            assertTrue(updated.languages().isEmpty());
+            assertTrue(updated.match(article("Tesla", "en")).isEmpty());
+        }
+    }
+}
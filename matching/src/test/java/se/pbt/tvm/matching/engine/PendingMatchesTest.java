@@ -0,0 +1,50 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PendingMatches")
+class PendingMatchesTest {
+
+    private final PendingMatches<SchedulePreset> pending = new PendingMatches<>();
+
+    @Test
+    @DisplayName("Collects matches per slot until drained")
+    void addAndDrain_collectUnionPerSlot() {
+        var first = RoaringBitmap.bitmapOf(1, 2);
+        pending.add(SchedulePreset.MORNING, first);
+        pending.add(SchedulePreset.MORNING, RoaringBitmap.bitmapOf(2, 3));
+        pending.add(SchedulePreset.EVENING, RoaringBitmap.bitmapOf(9));
+
+        assertEquals(3, pending.size(SchedulePreset.MORNING));
+        assertEquals(Set.of(SchedulePreset.MORNING, SchedulePreset.EVENING), pending.slots());
+        assertEquals(RoaringBitmap.bitmapOf(1, 2, 3), pending.drain(SchedulePreset.MORNING));
+        assertEquals(RoaringBitmap.bitmapOf(1, 2), first);
+        assertTrue(pending.drain(SchedulePreset.MORNING).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ignores empty matches")
+    void add_withEmptyBitmap_createsNoSlot() {
+        pending.add(SchedulePreset.MORNING, new RoaringBitmap());
+
+        assertTrue(pending.slots().isEmpty());
+        assertEquals(0, pending.size(SchedulePreset.MORNING));
+    }
+
+    @Test
+    @DisplayName("Keeps every match added concurrently")
+    void add_concurrently_losesNothing() {
+        IntStream.range(0, 10_000).parallel()
+                .forEach(i -> pending.add(SchedulePreset.MORNING, RoaringBitmap.bitmapOf(i)));
+
+        assertEquals(10_000, pending.drain(SchedulePreset.MORNING).getCardinality());
+    }
+}
@@ -0,0 +1,65 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SubscriptionMasks")
+class SubscriptionMasksTest {
+
+    private static Subscription subscription(String id, boolean enabled, SchedulePreset schedule) {
+        var sub = SubscriptionMatcherTest.subscription(id, enabled, "Tesla");
+        sub.setSchedule(schedule);
+        return sub;
+    }
+
+    private final SubscriptionOrdinals ordinals = new SubscriptionOrdinals();
+
+    private final SubscriptionMasks masks = SubscriptionMasks.compile(List.of(
+            subscription("masks-a", true, SchedulePreset.MORNING),
+            subscription("masks-b", false, SchedulePreset.MORNING),
+            subscription("masks-c", true, SchedulePreset.EVENING)), ordinals);
+
+    private int ordinal(String id) {
+        return ordinals.ordinal(id);
+    }
+
+    @Test
+    @DisplayName("Groups subscriptions by enabled flag and schedule")
+    void compile_buildsMasks() {
+        assertEquals(RoaringBitmap.bitmapOf(ordinal("masks-a"), ordinal("masks-c")), masks.enabled());
+        assertEquals(RoaringBitmap.bitmapOf(ordinal("masks-a"), ordinal("masks-b")), masks.schedule(SchedulePreset.MORNING));
+        assertTrue(masks.schedule(SchedulePreset.MORNING_EVENING).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Narrows match results down with one intersection")
+    void enabledAndSchedule_intersectMatches() {
+        var matches = RoaringBitmap.bitmapOf(ordinal("masks-a"), ordinal("masks-b"), ordinal("masks-c"));
+
+        var due = RoaringBitmap.and(RoaringBitmap.and(matches, masks.enabled()), masks.schedule(SchedulePreset.MORNING));
+
+        assertEquals(RoaringBitmap.bitmapOf(ordinal("masks-a")), due);
+    }
+
+    @Test
+    @DisplayName("Moves changed subscriptions and drops deleted ones without touching the original")
+    void apply_updatesCopy() {
+        var updated = masks.apply(List.of(
+                SubscriptionChange.put(subscription("masks-a", true, SchedulePreset.EVENING)),
+                SubscriptionChange.delete("masks-c")));
+
+        assertEquals(RoaringBitmap.bitmapOf(ordinal("masks-a")), updated.enabled());
+        assertEquals(RoaringBitmap.bitmapOf(ordinal("masks-b")), updated.schedule(SchedulePreset.MORNING));
+        assertEquals(RoaringBitmap.bitmapOf(ordinal("masks-a")), updated.schedule(SchedulePreset.EVENING));
+        assertTrue(masks.enabled().contains(ordinal("masks-c")));
+        assertSame(masks.schedule(SchedulePreset.MORNING_EVENING), updated.schedule(SchedulePreset.MORNING_EVENING));
+    }
+}
@@ -0,0 +1,113 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFilter;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SubscriptionMatcher")
+class SubscriptionMatcherTest {
+
+    static Subscription subscription(String id, boolean enabled, String... keywords) {
+        var filter = new SubscriptionFilter();
+        filter.setKeywords(List.of(keywords));
+        filter.setTickers(List.of());
+        filter.setLanguage("en");
+        var sub = new Subscription();
+        sub.setId(id);
+        sub.setFilter(filter);
+        sub.setEnabled(enabled);
+        return sub;
+    }
+
+    static NewsItem article(String title, String description) {
+        return new NewsItem(title, description, null, null, null, null, List.of(), null, null, "en");
+    }
+
+    @Test
+    @DisplayName("Returns each subscription with a keyword in the title or description once")
+    void match_withKeywordsInArticle_returnsMatchingSubscriptions() {
+        var matcher = SubscriptionMatcher.compile(List.of(
+                subscription("a", true, "Tesla", "AI"),
+                subscription("b", true, "volvo"),
+                subscription("c", true, "ai")));
+
+        var result = matcher.match(article("Tesla doubles down on AI", "Analysts say AI spending grows"));
+
+        assertEquals(List.of("a", "c"), result);
+    }
+
+    @Test
+    @DisplayName("Matches subscriptions through the article's tickers")
+    void match_withTaggedTicker_returnsTickerSubscriptions() {
+        var byTicker = subscription("t", true);
+        byTicker.getFilter().setTickers(List.of("TSLA", "VOLV-B"));
+        var byKeyword = subscription("k", true, "Tesla");
+        byKeyword.getFilter().setTickers(List.of("tsla"));
+        var other = subscription("o", true, "Volvo");
+        var matcher = SubscriptionMatcher.compile(List.of(byTicker, byKeyword, other));
+
+        var item = new NewsItem("Quarterly results", null, null, null, null, null, List.of("TSLA"), null, null, "en");
+
+        assertEquals(List.of("t", "k"), matcher.match(item));
+        assertEquals(3, matcher.size());
+    }
+
+    @Test
+    @DisplayName("Ignores disabled subscriptions and subscriptions without ID")
+    void compile_skipsDisabledAndUnidentified() {
+        var matcher = SubscriptionMatcher.compile(List.of(
+                subscription("a", false, "Tesla"),
+                subscription(null, true, "Tesla")));
+
+        assertEquals(0, matcher.size());
+        assertTrue(matcher.match(article("Tesla", null)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Returns no matches for an article without text")
+    void match_withEmptyArticle_returnsEmpty() {
+        var matcher = SubscriptionMatcher.compile(List.of(subscription("a", true, "Tesla")));
+
+        assertTrue(matcher.match(article(null, null)).isEmpty());
+        assertTrue(matcher.match((NewsItem) null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Reports the same subscriptions as ordinals")
+    void matchOrdinals_returnsOrdinalsOfMatchingSubscriptions() {
+        var byTicker = subscription("ordinal-t", true);
+        byTicker.getFilter().setTickers(List.of("TSLA"));
+        var ordinals = new SubscriptionOrdinals();
+        var matcher = SubscriptionMatcher.compile(List.of(
+                subscription("ordinal-a", true, "Tesla"),
+                subscription("ordinal-b", true, "Volvo"),
+                byTicker), ordinals);
+        var item = new NewsItem("Tesla recalls cars", null, null, null, null, null, List.of("TSLA"), null, null, "en");
+
+        var result = new RoaringBitmap();
+        matcher.matchOrdinals(item, result);
+
+        assertEquals(RoaringBitmap.bitmapOf(ordinals.ordinalOf("ordinal-a"), ordinals.ordinalOf("ordinal-t")), result);
+    }
+
+    @Test
+    @DisplayName("Matches multi-word keywords as adjacent tokens only")
+    void match_withPhraseKeyword_matchesTokenSequence() {
+        var matcher = SubscriptionMatcher.compile(List.of(
+                subscription("phrase", true, "AI stocks"),
+                subscription("symbol", true, "S&P 500")));
+
+        assertEquals(List.of("phrase"), matcher.match(article("Why AI-Stocks keep rising", null)));
+        assertEquals(List.of("phrase"), matcher.match(article("\uFF21\uFF29  stocks", null)));
+        assertEquals(List.of("symbol"), matcher.match(article("The S&P  500 closes higher", null)));
+        assertTrue(matcher.match(article("AI chip stocks", null)).isEmpty());
+        assertTrue(matcher.match(article("Big AI", "stocks fall")).isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SubscriptionOrdinals")
+class SubscriptionOrdinalsTest {
+
+    private final SubscriptionOrdinals ordinals = new SubscriptionOrdinals();
+
+    @Test
+    @DisplayName("Assigns dense ordinals in first-seen order and reuses them")
+    void ordinal_assignsDenseStableOrdinals() {
+        assertEquals(0, ordinals.ordinal("a"));
+        assertEquals(1, ordinals.ordinal("b"));
+        assertEquals(0, ordinals.ordinal("a"));
+        assertEquals("b", ordinals.id(1));
+        assertEquals(2, ordinals.size());
+    }
+
+    @Test
+    @DisplayName("Looks up IDs without assigning ordinals")
+    void ordinalOf_withUnknownId_returnsNoOrdinal() {
+        assertEquals(SubscriptionOrdinals.NO_ORDINAL, ordinals.ordinalOf("missing"));
+        assertEquals(SubscriptionOrdinals.NO_ORDINAL, ordinals.ordinal(null));
+        assertEquals(0, ordinals.size());
+        assertThrows(IllegalArgumentException.class, () -> ordinals.id(0));
+    }
+
+    @Test
+    @DisplayName("Grows beyond its initial capacity")
+    void ordinal_withManyIds_grows() {
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, ordinals.ordinal("id-" + i));
+        }
+        assertEquals("id-4999", ordinals.id(4999));
+    }
+
+    @Test
+    @DisplayName("Hands released ordinals out again only after a recycle")
+    void release_reusesOrdinalAfterRecycle() {
+        ordinals.ordinal("a");
+        ordinals.ordinal("b");
+
+        ordinals.release("a");
+
+        assertEquals(SubscriptionOrdinals.NO_ORDINAL, ordinals.ordinalOf("a"));
+        assertThrows(IllegalArgumentException.class, () -> ordinals.id(0));
+        assertEquals(2, ordinals.ordinal("c"));
+
+        ordinals.recycle();
+
+        assertEquals(0, ordinals.ordinal("d"));
+        assertEquals("d", ordinals.id(0));
+        assertEquals(3, ordinals.size());
+    }
+}
@@ -0,0 +1,52 @@
+package se.pbt.tvm.matching.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TickerIndex")
+class TickerIndexTest {
+
+    private static List<Integer> collect(TickerIndex index, List<String> tickers) {
+        List<Integer> found = new ArrayList<>();
+        index.collect(tickers, found::add);
+        return found;
+    }
+
+    @Test
+    @DisplayName("Looks up tickers ignoring case and surrounding whitespace")
+    void collect_withDifferentlyFormattedTicker_findsSubscriptions() {
+        var index = new TickerIndex.Builder()
+                .add("TSLA", 0)
+                .add(" tsla ", 2)
+                .add("AAPL", 1)
+                .build();
+
+        assertEquals(List.of(0, 2), collect(index, List.of("tsla")));
+        assertEquals(List.of(1, 0, 2), collect(index, List.of("AAPL", "MSFT", "TSLA")));
+    }
+
+    @Test
+    @DisplayName("Lists a subscription once per ticker even if it repeats the ticker")
+    void add_withRepeatedTicker_keepsOnePosting() {
+        var index = new TickerIndex.Builder().add("TSLA", 0).add("tsla", 0).build();
+
+        assertEquals(List.of(0), collect(index, List.of("TSLA")));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("Ignores blank and null tickers")
+    void collect_withBlankTickers_findsNothing() {
+        var index = new TickerIndex.Builder().add(" ", 0).add(null, 1).build();
+
+        assertEquals(0, index.size());
+        assertTrue(collect(index, Arrays.asList(null, "")).isEmpty());
+        assertTrue(collect(index, null).isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package se.pbt.tvm.matching.ranking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BoundedTopK")
+class BoundedTopKTest {
+
+    @Test
+    @DisplayName("Keeps only the greatest elements, best first")
+    void offer_keepsGreatestElements() {
+        var topK = new BoundedTopK<Integer>(3, Comparator.naturalOrder());
+
+        IntStream.of(5, 1, 9, 3, 7, 2).forEach(topK::offer);
+
+        assertEquals(List.of(9, 7, 5), topK.toSortedList());
+        assertEquals(3, topK.size());
+    }
+
+    @Test
+    @DisplayName("Rejects elements that do not beat the worst kept one, including ties")
+    void offer_withFullHeap_rejectsWorseAndEqual() {
+        var topK = new BoundedTopK<Integer>(2, Comparator.naturalOrder());
+        topK.offer(4);
+        topK.offer(6);
+
+        assertFalse(topK.offer(3));
+        assertFalse(topK.offer(4));
+        assertTrue(topK.offer(5));
+        assertEquals(List.of(6, 5), topK.toSortedList());
+    }
+
+    @Test
+    @DisplayName("Never grows beyond its capacity")
+    void offer_withManyElements_staysBounded() {
+        var topK = new BoundedTopK<Integer>(10, Comparator.naturalOrder());
+
+        IntStream.range(0, 100_000).forEach(topK::offer);
+
+        assertEquals(10, topK.size());
+        assertEquals(99_999, topK.toSortedList().get(0));
+        assertEquals(99_990, topK.toSortedList().get(9));
+    }
+
+    @Test
+    @DisplayName("Requires a positive capacity")
+    void create_withNonPositiveCapacity_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedTopK<Integer>(0, Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,130 @@
+package se.pbt.tvm.matching.ranking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static se.pbt.tvm.matching.ranking.RelevanceScorerTest.article;
+
+@DisplayName("DigestComposer")
+class DigestComposerTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-15T07:00:00Z");
+
+    private final DigestComposer composer = new DigestComposer(new RelevanceScorer());
+
+    private static Subscription subscription(String id, String language, List<String> keywords) {
+        var sub = RelevanceScorerTest.subscription(id, keywords, List.of());
+        sub.getFilter().setLanguage(language);
+        return sub;
+    }
+
+    @Nested
+    @DisplayName("Sharing")
+    class Sharing {
+
+        @Test
+        @DisplayName("Gives subscriptions with the same filter the same digest instance")
+        void compose_withIdenticalFilters_sharesDigest() {
+            List<Subscription> subscriptions = new ArrayList<>();
+            IntStream.range(0, 1000).forEach(i -> subscriptions.add(subscription("same-" + i, "en",
+                    i % 2 == 0 ? List.of("Tesla", "AI") : List.of(" ai", "TESLA"))));
+            subscriptions.add(subscription("other", "en", List.of("Volvo")));
+
+            var digests = composer.compose(subscriptions, List.of(
+                    article("Tesla bets on AI", null, NOW, List.of()),
+                    article("Volvo sales", null, NOW, List.of())), NOW);
+
+            assertEquals(1001, digests.size());
+            Set<Digest> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+            instances.addAll(digests.values());
+            assertEquals(2, instances.size());
+            assertSame(digests.get("same-0"), digests.get("same-999"));
+            assertNotSame(digests.get("same-0"), digests.get("other"));
+            assertEquals("Tesla bets on AI", digests.get("same-1").articles().get(0).item().title());
+        }
+
+        @Test
+        @DisplayName("Skips disabled subscriptions, also when they come first in their group")
+        void compose_withDisabledFirstSubscription_usesEnabledRepresentative() {
+            var disabled = subscription("disabled", "en", List.of("Tesla"));
+            disabled.setEnabled(false);
+            var enabled = subscription("enabled", "en", List.of("tesla"));
+
+            var digests = composer.compose(List.of(disabled, enabled),
+                    List.of(article("Tesla news", null, NOW, List.of())), NOW);
+
+            assertFalse(digests.containsKey("disabled"));
+            assertEquals(1, digests.get("enabled").articles().size());
+        }
+
+        @Test
+        @DisplayName("Keeps filters apart that differ in language, tickers or item count")
+        void compose_withDifferentFilters_computesSeparately() {
+            var base = subscription("base", "en", List.of("Tesla"));
+            var swedish = subscription("swedish", "sv", List.of("Tesla"));
+            var withTicker = subscription("ticker", "en", List.of("Tesla"));
+            withTicker.getFilter().setTickers(List.of("TSLA"));
+            var moreItems = subscription("more", "en", List.of("Tesla"));
+            moreItems.setMaxItems(5);
+
+            var digests = composer.compose(List.of(base, swedish, withTicker, moreItems),
+                    List.of(article("Tesla news", null, NOW, List.of())), NOW);
+
+            assertEquals(4, new HashSet<>(digests.values().stream().map(Digest::filter).toList()).size());
+            assertTrue(digests.get("swedish").isEmpty());
+            assertFalse(digests.get("base").isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Ranking")
+    class Ranking {
+
+        @Test
+        @DisplayName("Keeps the best maxItems articles, most relevant first")
+        void compose_ranksArticles() {
+            var sub = subscription("s", "en", List.of("Tesla"));
+            sub.setMaxItems(2);
+            var old = article("Tesla", null, NOW.minusSeconds(48 * 3600), List.of());
+            var fresh = article("Tesla", null, NOW, List.of());
+            var inDescription = article("Cars", "Tesla", NOW, List.of());
+
+            var digest = composer.compose(List.of(sub), List.of(old, inDescription, fresh), NOW).get("s");
+
+            assertEquals(List.of(fresh, inDescription), digest.articles().stream().map(ScoredArticle::item).toList());
+        }
+
+        @Test
+        @DisplayName("Returns empty digests when nothing matches")
+        void compose_withoutMatches_returnsEmptyDigests() {
+            var digests = composer.compose(List.of(subscription("s", "en", List.of("Tesla"))), List.<NewsItem>of(), NOW);
+
+            assertTrue(digests.get("s").isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Canonicalizes keywords and tickers in the filter")
+    void digestFilter_isCanonical() {
+        var a = subscription("a", "EN", List.of("Tesla", "AI"));
+        a.getFilter().setTickers(List.of("tsla", " NVDA", "TSLA"));
+        var b = subscription("b", "en", List.of("ai", "tesla"));
+        b.getFilter().setTickers(List.of("NVDA", "TSLA"));
+
+        assertEquals(DigestFilter.of(a), DigestFilter.of(b));
+        assertEquals(List.of("NVDA", "TSLA"), DigestFilter.of(a).tickers());
+    }
+}
@@ -0,0 +1,101 @@
+package se.pbt.tvm.matching.ranking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.matching.engine.ArticleText;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFilter;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RelevanceScorer")
+class RelevanceScorerTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-02T12:00:00Z");
+
+    private final RelevanceScorer scorer = new RelevanceScorer();
+
+    static Subscription subscription(String id, List<String> keywords, List<String> tickers) {
+        var filter = new SubscriptionFilter();
+        filter.setKeywords(keywords);
+        filter.setTickers(tickers);
+        var sub = new Subscription();
+        sub.setId(id);
+        sub.setFilter(filter);
+        sub.setEnabled(true);
+        sub.setMaxItems(2);
+        return sub;
+    }
+
+    static NewsItem article(String title, String description, Instant publishedAt, List<String> tickers) {
+        return new NewsItem(title, description, null, null, publishedAt, null, tickers, null, null, "en");
+    }
+
+    private double score(Subscription subscription, NewsItem item) {
+        return scorer.score(subscription, ArticleText.of(item), NOW);
+    }
+
+    @Test
+    @DisplayName("Weighs title hits above description hits")
+    void score_withTitleHit_beatsDescriptionHit() {
+        var sub = subscription("s", List.of("AI stocks"), List.of());
+
+        double inTitle = score(sub, article("AI stocks rally", null, null, List.of()));
+        double inDescription = score(sub, article("Markets", "AI stocks rally", null, List.of()));
+
+        assertEquals(RelevanceScorer.TITLE_HIT_WEIGHT, inTitle);
+        assertEquals(RelevanceScorer.DESCRIPTION_HIT_WEIGHT, inDescription);
+    }
+
+    @Test
+    @DisplayName("Counts keyword hits up to a limit per field")
+    void score_withRepeatedHits_isCapped() {
+        var sub = subscription("s", List.of("Tesla", "Musk"), List.of());
+
+        double two = score(sub, article("Tesla and Musk", null, null, List.of()));
+        double many = score(sub, article("Tesla Tesla Tesla Musk Musk", null, null, List.of()));
+
+        assertEquals(2 * RelevanceScorer.TITLE_HIT_WEIGHT, two);
+        assertEquals(RelevanceScorer.MAX_COUNTED_HITS * RelevanceScorer.TITLE_HIT_WEIGHT, many);
+    }
+
+    @Test
+    @DisplayName("Adds a bonus for a matching ticker")
+    void score_withTickerHit_addsTickerWeight() {
+        var sub = subscription("s", List.of(), List.of("tsla"));
+
+        assertEquals(RelevanceScorer.TICKER_WEIGHT, score(sub, article("Results", null, null, List.of(" TSLA"))));
+        assertEquals(0, score(sub, article("Results", null, null, List.of("VOLV-B"))));
+    }
+
+    @Test
+    @DisplayName("Normalizes the phrases of equal keyword lists once")
+    void phrasesOf_withEqualKeywordLists_isCached() {
+        var first = subscription("a", List.of("Tesla", "TESLA", "AI-stocks"), List.of());
+        var second = subscription("b", List.of("Tesla", "TESLA", "AI-stocks"), List.of());
+
+        String[] phrases = scorer.phrasesOf(first.getFilter().getKeywords());
+
+        assertArrayEquals(new String[]{"tesla", "ai stocks"}, phrases);
+        assertSame(phrases, scorer.phrasesOf(first.getFilter().getKeywords()));
+        assertSame(phrases, scorer.phrasesOf(second.getFilter().getKeywords()));
+    }
+
+    @Test
+    @DisplayName("Halves the recency bonus every half-life")
+    void score_withOlderArticle_decaysRecency() {
+        var sub = subscription("s", List.of(), List.of());
+
+        double fresh = score(sub, article("News", null, NOW, List.of()));
+        double halfLifeOld = score(sub, article("News", null, NOW.minus(RelevanceScorer.RECENCY_HALF_LIFE), List.of()));
+        double future = score(sub, article("News", null, NOW.plusSeconds(600), List.of()));
+
+        assertEquals(RelevanceScorer.RECENCY_WEIGHT, fresh, 1e-9);
+        assertEquals(RelevanceScorer.RECENCY_WEIGHT / 2, halfLifeOld, 1e-9);
+        assertEquals(fresh, future, 1e-9);
+    }
+}
@@ -0,0 +1,74 @@
+package se.pbt.tvm.matching.ranking;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.news.NewsItem;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static se.pbt.tvm.matching.ranking.RelevanceScorerTest.subscription;
+
+@DisplayName("SubscriptionRanking")
+class SubscriptionRankingTest {
+
+    private final SubscriptionRanking ranking = new SubscriptionRanking();
+
+    private static ScoredArticle scored(String title, double score, Instant publishedAt) {
+        return new ScoredArticle(new NewsItem(title, null, null, null, publishedAt, null, List.of(), null, null, "en"), score);
+    }
+
+    @Test
+    @DisplayName("Keeps the best maxItems articles per subscription")
+    void offer_keepsBestMaxItems() {
+        var sub = subscription("s", List.of("Tesla"), List.of());
+        sub.setMaxItems(2);
+
+        IntStream.range(0, 1000).forEach(i -> ranking.offer(sub, scored("a" + i, i % 97, null)));
+
+        var best = ranking.drain("s");
+        assertEquals(List.of(96.0, 96.0), best.stream().map(ScoredArticle::score).toList());
+        assertTrue(ranking.drain("s").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Prefers the newer of two equally relevant articles")
+    void offer_withEqualScores_prefersNewer() {
+        var sub = subscription("s", List.of("Tesla"), List.of());
+        sub.setMaxItems(1);
+        var older = scored("older", 5, Instant.parse("2026-03-01T08:00:00Z"));
+        var newer = scored("newer", 5, Instant.parse("2026-03-01T09:00:00Z"));
+
+        ranking.offer(sub, older);
+        ranking.offer(sub, newer);
+
+        assertEquals(List.of(newer), ranking.drain("s"));
+    }
+
+    @Test
+    @DisplayName("Keeps the best articles when maxItems changes within a window")
+    void offer_withChangedMaxItems_resizes() {
+        var sub = subscription("s", List.of("Tesla"), List.of());
+        sub.setMaxItems(3);
+        ranking.offer(sub, scored("a", 1, null));
+        ranking.offer(sub, scored("b", 3, null));
+        ranking.offer(sub, scored("c", 2, null));
+
+        sub.setMaxItems(1);
+        ranking.offer(sub, scored("d", 0, null));
+
+        assertEquals(List.of("b"), ranking.drain("s").stream().map(scored -> scored.item().title()).toList());
+    }
+
+    @Test
+    @DisplayName("Tracks rankings per subscription")
+    void subscriptionIds_listsRankedSubscriptions() {
+        ranking.offer(subscription("a", List.of("x"), List.of()), scored("t", 1, null));
+        ranking.offer(subscription("b", List.of("x"), List.of()), scored("t", 1, null));
+
+        assertEquals(Set.of("a", "b"), ranking.subscriptionIds());
+    }
+}
@@ -0,0 +1,194 @@
+package se.pbt.tvm.matching.schedule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DigestSchedule")
+class DigestScheduleTest {
+
+    // 06:00 UTC = 07:00 in Stockholm (winter time)
+    private static final Instant NOW = Instant.parse("2026-01-15T06:00:00Z");
+    private static final ZoneId STOCKHOLM = ZoneId.of("Europe/Stockholm");
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private final DigestSchedule schedule = new DigestSchedule();
+
+    static Subscription subscription(String id, SchedulePreset preset, ZoneId zone) {
+        var sub = new Subscription();
+        sub.setId(id);
+        sub.setSchedule(preset);
+        sub.setTimezone(TimeZone.getTimeZone(zone));
+        sub.setEnabled(true);
+        return sub;
+    }
+
+    @Nested
+    @DisplayName("Bucketing")
+    class Bucketing {
+
+        @Test
+        @DisplayName("Groups subscriptions by preset and time zone")
+        void put_groupsIntoBuckets() {
+            IntStream.range(0, 1000).forEach(i -> schedule.put(subscription("s" + i,
+                    i % 2 == 0 ? SchedulePreset.MORNING : SchedulePreset.EVENING,
+                    i % 3 == 0 ? STOCKHOLM : NEW_YORK), NOW));
+
+            assertEquals(4, schedule.bucketCount());
+            assertEquals(Optional.of(new DigestBucket(SchedulePreset.MORNING, STOCKHOLM)), schedule.bucketOf("s0"));
+        }
+
+        @Test
+        @DisplayName("Moves changed subscriptions and drops disabled and deleted ones")
+        void put_withChanges_updatesBuckets() {
+            schedule.put(subscription("a", SchedulePreset.MORNING, STOCKHOLM), NOW);
+            schedule.put(subscription("b", SchedulePreset.MORNING, STOCKHOLM), NOW);
+
+            schedule.put(subscription("a", SchedulePreset.EVENING, STOCKHOLM), NOW);
+            var disabled = subscription("b", SchedulePreset.MORNING, STOCKHOLM);
+            disabled.setEnabled(false);
+            schedule.apply(SubscriptionChange.put(disabled), NOW);
+
+            assertEquals(Optional.of(new DigestBucket(SchedulePreset.EVENING, STOCKHOLM)), schedule.bucketOf("a"));
+            assertTrue(schedule.bucketOf("b").isEmpty());
+            assertEquals(1, schedule.bucketCount());
+
+            schedule.apply(SubscriptionChange.delete("a"), NOW);
+            assertEquals(0, schedule.bucketCount());
+            assertTrue(schedule.nextFireTime().isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Firing")
+    class Firing {
+
+        @Test
+        @DisplayName("Fires each bucket at its local cron time, earliest first")
+        void nextFireTime_usesBucketZone() {
+            schedule.put(subscription("ny", SchedulePreset.MORNING, NEW_YORK), NOW);
+            schedule.put(subscription("sthlm", SchedulePreset.MORNING, STOCKHOLM), NOW);
+
+            // 08:00 Stockholm on the same day
+            assertEquals(Optional.of(Instant.parse("2026-01-15T07:00:00Z")), schedule.nextFireTime());
+        }
+
+        @Test
+        @DisplayName("Reports due buckets with their members and reschedules them")
+        void pollDue_reportsAndReschedules() {
+            schedule.put(subscription("a", SchedulePreset.MORNING, STOCKHOLM), NOW);
+            schedule.put(subscription("b", SchedulePreset.MORNING, STOCKHOLM), NOW);
+            schedule.put(subscription("c", SchedulePreset.MORNING, NEW_YORK), NOW);
+
+            Instant at = Instant.parse("2026-01-15T07:00:00Z");
+            assertTrue(schedule.pollDue(at.minusMillis(1)).isEmpty());
+
+            var due = schedule.pollDue(at);
+
+            assertEquals(List.of(new DueDigest(new DigestBucket(SchedulePreset.MORNING, STOCKHOLM), at, Set.of("a", "b"))), due);
+            // New York fires at 13:00 UTC, before Stockholm's next morning
+            assertEquals(Optional.of(Instant.parse("2026-01-15T13:00:00Z")), schedule.nextFireTime());
+        }
+
+        @Test
+        @DisplayName("Reports a bucket that was due several times only once")
+        void pollDue_afterLongPause_firesOnce() {
+            schedule.put(subscription("a", SchedulePreset.MORNING_LUNCH_EVENING, STOCKHOLM), NOW);
+
+            var due = schedule.pollDue(NOW.plusSeconds(24 * 3600));
+
+            assertEquals(1, due.size());
+            assertTrue(schedule.nextFireTime().orElseThrow().isAfter(NOW.plusSeconds(24 * 3600)));
+        }
+
+        @Test
+        @DisplayName("Follows daylight saving time")
+        void nextFireTime_acrossDstChange_keepsLocalTime() {
+            var bucket = new DigestBucket(SchedulePreset.MORNING, STOCKHOLM);
+
+            // Sweden switches to summer time on 2026-03-29
+            assertEquals(Instant.parse("2026-03-28T07:00:00Z"), DigestSchedule.nextFireTime(bucket, Instant.parse("2026-03-28T00:00:00Z")));
+            assertEquals(Instant.parse("2026-03-29T06:00:00Z"), DigestSchedule.nextFireTime(bucket, Instant.parse("2026-03-29T00:00:00Z")));
+        }
+    }
+
+    @Nested
+    @DisplayName("Custom schedules")
+    class CustomSchedules {
+
+        @Test
+        @DisplayName("Fires custom schedules outside the buckets and reschedules them")
+        void pollDue_withCustomSchedule_firesAndReschedules() {
+            var custom = subscription("c", SchedulePreset.MORNING, STOCKHOLM);
+            custom.setCustomSchedule("PT30M");
+            schedule.put(custom, NOW);
+
+            assertEquals(0, schedule.bucketCount());
+            assertEquals(1, schedule.customCount());
+            assertEquals(Optional.of(NOW.plusSeconds(1800)), schedule.customFireTime("c"));
+
+            var due = schedule.pollDue(NOW.plusSeconds(1800));
+
+            assertEquals(List.of(new DueDigest(null, NOW.plusSeconds(1800), Set.of("c"))), due);
+            assertEquals(Optional.of(NOW.plusSeconds(3600)), schedule.customFireTime("c"));
+        }
+
+        @Test
+        @DisplayName("Reports custom and bucket digests earliest first")
+        void pollDue_withBoth_sortsByFireTime() {
+            var custom = subscription("c", SchedulePreset.MORNING, STOCKHOLM);
+            custom.setCustomSchedule("0 59 7 * * *");
+            schedule.put(custom, NOW);
+            schedule.put(subscription("p", SchedulePreset.MORNING, STOCKHOLM), NOW);
+
+            var due = schedule.pollDue(Instant.parse("2026-01-15T07:00:00Z"));
+
+            assertEquals(List.of(Instant.parse("2026-01-15T06:59:00Z"), Instant.parse("2026-01-15T07:00:00Z")),
+                    due.stream().map(DueDigest::fireTime).toList());
+        }
+
+        @Test
+        @DisplayName("Moves between custom schedules and presets")
+        void put_switchingSchedules_movesSubscription() {
+            var sub = subscription("c", SchedulePreset.MORNING, STOCKHOLM);
+            sub.setCustomSchedule("PT1H");
+            schedule.put(sub, NOW);
+
+            sub.setCustomSchedule(null);
+            schedule.put(sub, NOW);
+            assertTrue(schedule.customFireTime("c").isEmpty());
+            assertEquals(1, schedule.bucketCount());
+
+            var custom = subscription("c", SchedulePreset.MORNING, STOCKHOLM);
+            custom.setCustomSchedule("PT2H");
+            schedule.put(custom, NOW);
+            schedule.remove("c");
+            assertEquals(0, schedule.customCount());
+            assertTrue(schedule.pollDue(NOW.plusSeconds(3 * 3600)).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Falls back to the preset when the custom schedule is invalid")
+        void put_withInvalidCustomSchedule_usesPreset() {
+            var sub = subscription("c", SchedulePreset.MORNING, STOCKHOLM);
+            sub.setCustomSchedule("whenever");
+
+            schedule.put(sub, NOW);
+
+            assertEquals(Optional.of(new DigestBucket(SchedulePreset.MORNING, STOCKHOLM)), schedule.bucketOf("c"));
+        }
+    }
+}
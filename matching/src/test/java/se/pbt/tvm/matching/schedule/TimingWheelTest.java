@@ -0,0 +1,121 @@
+package se.pbt.tvm.matching.schedule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TimingWheel")
+class TimingWheelTest {
+
+    private static final Instant START = Instant.parse("2026-01-15T06:00:00Z");
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(Duration.ofSeconds(1), START);
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    @DisplayName("Fires a timeout at its deadline and not before")
+    void advance_firesAtDeadline() {
+        wheel.schedule("a", START.plusSeconds(5));
+
+        wheel.advance(START.plusMillis(4999), fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(START.plusSeconds(5), fired::add);
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Cascades far deadlines down through the levels")
+    void advance_withDeadlinesOnHigherLevels_firesOnTime() {
+        List<Duration> delays = List.of(Duration.ofSeconds(64), Duration.ofMinutes(90), Duration.ofDays(3), Duration.ofDays(200));
+        for (Duration delay : delays) {
+            wheel.schedule(delay.toString(), START.plus(delay));
+        }
+
+        for (Duration delay : delays) {
+            wheel.advance(START.plus(delay).minusSeconds(1), fired::add);
+            assertFalse(fired.contains(delay.toString()), delay + " fired early");
+            wheel.advance(START.plus(delay), fired::add);
+            assertEquals(delay.toString(), fired.get(fired.size() - 1), delay + " did not fire on time");
+        }
+    }
+
+    @Test
+    @DisplayName("Fires random deadlines in tick order without losing any")
+    void advance_withRandomDeadlines_firesAllInOrder() {
+        var random = new Random(42);
+        Map<String, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long seconds = 1 + random.nextInt(10 * 24 * 3600);
+            deadlines.put("t" + i, seconds);
+            wheel.schedule("t" + i, START.plusSeconds(seconds));
+        }
+
+        List<Long> fireSeconds = new ArrayList<>();
+        long now = 0;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(600);
+            long at = now;
+            wheel.advance(START.plusSeconds(now), id -> {
+                assertTrue(deadlines.get(id) <= at);
+                fireSeconds.add(deadlines.get(id));
+            });
+        }
+        assertEquals(5000, fireSeconds.size());
+        var sorted = new ArrayList<>(fireSeconds);
+        Collections.sort(sorted);
+        assertEquals(sorted, fireSeconds);
+    }
+
+    @Test
+    @DisplayName("Cancelled timeouts never fire")
+    void cancel_removesTimeout() {
+        var keep = wheel.schedule("keep", START.plusSeconds(10));
+        var drop = wheel.schedule("drop", START.plusSeconds(10));
+
+        assertTrue(drop.cancel());
+        assertFalse(drop.cancel());
+        wheel.advance(START.plusSeconds(10), fired::add);
+
+        assertEquals(List.of("keep"), fired);
+        assertFalse(keep.isPending());
+        assertFalse(keep.cancel());
+    }
+
+    @Test
+    @DisplayName("Fires past deadlines on the next tick")
+    void schedule_withPastDeadline_firesOnNextTick() {
+        wheel.schedule("late", START.minusSeconds(30));
+
+        wheel.advance(START.plusSeconds(1), fired::add);
+
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    @DisplayName("Lets callbacks schedule and cancel timeouts")
+    void advance_withCallbackChanges_staysConsistent() {
+        var other = wheel.schedule("other", START.plusSeconds(2));
+        wheel.schedule("first", START.plusSeconds(2));
+        wheel.schedule("second", START.plusSeconds(2));
+
+        wheel.advance(START.plusSeconds(2), id -> {
+            fired.add(id);
+            if (id.equals("first")) {
+                other.cancel();
+                wheel.schedule("again", START.plusSeconds(3));
+            }
+        });
+        wheel.advance(START.plusSeconds(3), fired::add);
+
+        assertEquals(Set.of("first", "second", "other", "again"), new HashSet<>(fired));
+        assertEquals("again", fired.get(fired.size() - 1));
+        assertEquals(0, wheel.size());
+    }
+}
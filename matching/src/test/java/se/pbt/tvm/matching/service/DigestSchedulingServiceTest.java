@@ -0,0 +1,139 @@
+package se.pbt.tvm.matching.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.matching.schedule.DigestBucket;
+import se.pbt.tvm.matching.schedule.DueDigest;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("DigestSchedulingService")
+class DigestSchedulingServiceTest {
+
+    private static final ZoneId STOCKHOLM = ZoneId.of("Europe/Stockholm");
+
+    private SubscriptionRepository repository;
+    private final List<DueDigest> fired = new CopyOnWriteArrayList<>();
+    private Instant now = Instant.parse("2026-01-15T06:00:00Z");
+    private DigestSchedulingService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(SubscriptionRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    private static Subscription subscription(String id, SchedulePreset preset) {
+        var sub = new Subscription();
+        sub.setId(id);
+        sub.setSchedule(preset);
+        sub.setTimezone(TimeZone.getTimeZone(STOCKHOLM));
+        sub.setEnabled(true);
+        return sub;
+    }
+
+    private Clock clock() {
+        return new Clock() {
+            @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+            @Override public Clock withZone(ZoneId zone) { return this; }
+            @Override public Instant instant() { return now; }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<SubscriptionChange> start() {
+        service = new DigestSchedulingService(repository, List.of(fired::add), clock());
+        ArgumentCaptor<Consumer<SubscriptionChange>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(repository).addChangeListener(listener.capture());
+        return listener.getValue();
+    }
+
+    @Test
+    @DisplayName("Starts the ticker only when there are listeners")
+    void create_withoutListeners_doesNotTick() {
+        when(repository.findAll()).thenReturn(List.of(subscription("a", SchedulePreset.MORNING)));
+
+        service = new DigestSchedulingService(repository, List.of(), clock());
+        assertFalse(service.isTicking());
+        assertNotNull(service.nextFireTime());
+        service.close();
+
+        service = new DigestSchedulingService(repository, List.of(fired::add), clock());
+        assertTrue(service.isTicking());
+    }
+
+    @Test
+    @DisplayName("Schedules the repository's subscriptions on startup")
+    void create_schedulesExistingSubscriptions() {
+        when(repository.findAll()).thenReturn(List.of(subscription("a", SchedulePreset.MORNING)));
+        start();
+
+        assertEquals(Instant.parse("2026-01-15T07:00:00Z"), service.nextFireTime());
+    }
+
+    @Test
+    @DisplayName("Follows repository changes")
+    void onChange_updatesNextFireTime() {
+        var listener = start();
+        assertNull(service.nextFireTime());
+
+        listener.accept(SubscriptionChange.put(subscription("a", SchedulePreset.EVENING)));
+        assertEquals(Instant.parse("2026-01-15T19:00:00Z"), service.nextFireTime());
+
+        listener.accept(SubscriptionChange.delete("a"));
+        assertNull(service.nextFireTime());
+    }
+
+    @Test
+    @DisplayName("Notifies listeners about due buckets")
+    void fireDue_notifiesListeners() {
+        when(repository.findAll()).thenReturn(List.of(subscription("a", SchedulePreset.MORNING)));
+        start();
+
+        now = Instant.parse("2026-01-15T07:00:00Z");
+        service.fireDue();
+
+        assertEquals(List.of(new DueDigest(new DigestBucket(SchedulePreset.MORNING, STOCKHOLM), now, Set.of("a"))), fired);
+        assertEquals(Instant.parse("2026-01-16T07:00:00Z"), service.nextFireTime());
+    }
+
+    @Test
+    @DisplayName("Fires on its own timer when a bucket is due")
+    void timer_firesDueBucket() throws InterruptedException {
+        // 50 ms before 08:00 in Stockholm
+        now = Instant.parse("2026-01-15T06:59:59.950Z");
+        when(repository.findAll()).thenReturn(List.of(subscription("a", SchedulePreset.MORNING)));
+        start();
+        now = Instant.parse("2026-01-15T07:00:00Z");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fired.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, fired.size());
+    }
+}
@@ -0,0 +1,223 @@
+package se.pbt.tvm.matching.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.roaringbitmap.RoaringBitmap;
+import se.pbt.tvm.core.news.NewsItem;
+import se.pbt.tvm.matching.config.MatchingProperties;
+import se.pbt.tvm.matching.engine.SubscriptionOrdinals;
+import se.pbt.tvm.matching.ranking.ScoredArticle;
+import se.pbt.tvm.matching.ranking.SubscriptionRanking;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFilter;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("SubscriptionMatchingService")
+class SubscriptionMatchingServiceTest {
+
+    private SubscriptionRepository repository;
+    private MatchingProperties properties;
+    private SubscriptionMatchingService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(SubscriptionRepository.class);
+        properties = new MatchingProperties();
+        properties.setMergeDelay(Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    private static Subscription subscription(String id, String keyword) {
+        var filter = new SubscriptionFilter();
+        filter.setKeywords(List.of(keyword));
+        filter.setLanguage("en");
+        var sub = new Subscription();
+        sub.setId(id);
+        sub.setFilter(filter);
+        sub.setEnabled(true);
+        return sub;
+    }
+
+    private static NewsItem article(String title) {
+        return new NewsItem(title, null, null, null, null, null, List.of(), null, null, "en");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<SubscriptionChange> start() {
+        service = new SubscriptionMatchingService(repository, properties);
+        ArgumentCaptor<Consumer<SubscriptionChange>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(repository).addChangeListener(listener.capture());
+        return listener.getValue();
+    }
+
+    @Test
+    @DisplayName("Compiles the repository's subscriptions on startup")
+    void create_compilesExistingSubscriptions() {
+        when(repository.findAll()).thenReturn(List.of(subscription("a", "Tesla")));
+        start();
+
+        assertEquals(List.of("a"), service.match(article("Tesla earnings")));
+        assertEquals(0, service.matcher().pendingChanges());
+    }
+
+    @Test
+    @DisplayName("Applies queued changes through the delta")
+    void applyPendingChanges_appliesQueuedChanges() {
+        when(repository.findAll()).thenReturn(List.of(subscription("a", "Tesla")));
+        var listener = start();
+
+        listener.accept(SubscriptionChange.put(subscription("b", "Volvo")));
+        listener.accept(SubscriptionChange.delete("a"));
+        service.applyPendingChanges();
+
+        assertTrue(service.match(article("Tesla earnings")).isEmpty());
+        assertEquals(List.of("b"), service.match(article("Volvo earnings")));
+        assertEquals(2, service.matcher().pendingChanges());
+    }
+
+    @Test
+    @DisplayName("Applies changes on the merge thread without being asked")
+    void onChange_appliesChangesInBackground() throws InterruptedException {
+        var listener = start();
+
+        listener.accept(SubscriptionChange.put(subscription("a", "Tesla")));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.matcher().pendingChanges() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("a"), service.match(article("Tesla earnings")));
+    }
+
+    @Test
+    @DisplayName("Matches a batch of articles per subscription")
+    void matchAll_groupsArticlesBySubscription() {
+        when(repository.findAll()).thenReturn(List.of(subscription("a", "Tesla"), subscription("b", "Volvo")));
+        properties.setParallelism(2);
+        start();
+        var tesla = article("Tesla earnings");
+        var both = article("Tesla and Volvo");
+
+        var result = service.matchAll(List.of(tesla, article("Nothing here"), both));
+
+        assertEquals(Map.of("a", List.of(tesla, both), "b", List.of(both)), result);
+    }
+
+    @Test
+    @DisplayName("Reports matches as ordinals")
+    void matchOrdinals_returnsBitmapOfMatches() {
+        when(repository.findAll()).thenReturn(List.of(subscription("service-a", "Tesla"), subscription("service-b", "Volvo")));
+        start();
+
+        var result = service.matchOrdinals(article("Tesla earnings"));
+
+        assertEquals(RoaringBitmap.bitmapOf(service.matcher().ordinals().ordinalOf("service-a")), result);
+    }
+
+    @Test
+    @DisplayName("Reuses the ordinal of a deleted subscription only after the next merge")
+    void merge_releasesOrdinalsOfDeletedSubscriptions() {
+        when(repository.findAll()).thenReturn(List.of(subscription("keep", "Tesla"), subscription("gone", "Volvo")));
+        var listener = start();
+        var ordinals = service.matcher().ordinals();
+        int released = ordinals.ordinalOf("gone");
+
+        listener.accept(SubscriptionChange.delete("gone"));
+        service.merge();
+        listener.accept(SubscriptionChange.put(subscription("early", "Saab")));
+        service.merge();
+        listener.accept(SubscriptionChange.put(subscription("late", "Scania")));
+        service.applyPendingChanges();
+
+        assertEquals(SubscriptionOrdinals.NO_ORDINAL, ordinals.ordinalOf("gone"));
+        assertNotEquals(released, ordinals.ordinalOf("early"));
+        assertEquals(released, ordinals.ordinalOf("late"));
+        assertEquals(3, ordinals.size());
+        assertEquals(RoaringBitmap.bitmapOf(released), service.matchOrdinals(article("Scania trucks")));
+    }
+
+    @Test
+    @DisplayName("Ranks matched articles per subscription by relevance")
+    void rank_keepsMostRelevantArticles() {
+        var sub = subscription("rank-a", "Tesla");
+        sub.setMaxItems(1);
+        when(repository.findAll()).thenReturn(List.of(sub));
+        when(repository.findById("rank-a")).thenReturn(Optional.of(sub));
+        start();
+        var inDescription = new NewsItem("Cars", "Tesla recalls", null, null, null, null, List.of(), null, null, "en");
+        var inTitle = article("Tesla recalls");
+        var ranking = new SubscriptionRanking();
+
+        service.rank(List.of(inDescription, inTitle), ranking, Instant.now());
+
+        assertEquals(List.of(inTitle), ranking.drain("rank-a").stream().map(ScoredArticle::item).toList());
+    }
+
+    @Test
+    @DisplayName("Composes one shared digest per distinct filter")
+    void composeDigests_sharesDigestsBetweenEqualFilters() {
+        var first = subscription("digest-a", "Tesla");
+        var second = subscription("digest-b", "tesla");
+        when(repository.findById("digest-a")).thenReturn(Optional.of(first));
+        when(repository.findById("digest-b")).thenReturn(Optional.of(second));
+        start();
+        var item = article("Tesla recalls");
+
+        var digests = service.composeDigests(List.of("digest-a", "digest-b", "missing"), List.of(item), Instant.now());
+
+        assertEquals(2, digests.size());
+        assertSame(digests.get("digest-a"), digests.get("digest-b"));
+        assertEquals(List.of(item), digests.get("digest-a").articles().stream().map(ScoredArticle::item).toList());
+    }
+
+    @Test
+    @DisplayName("Merges the delta into the base without changing the results")
+    void merge_foldsDeltaIntoBase() {
+        var listener = start();
+        listener.accept(SubscriptionChange.put(subscription("b", "Volvo")));
+        var before = service.matcher();
+
+        service.merge();
+
+        assertNotSame(before.base(), service.matcher().base());
+        assertEquals(0, service.matcher().pendingChanges());
+        assertEquals(List.of("b"), service.match(article("Volvo earnings")));
+    }
+
+    @Test
+    @DisplayName("Merges in the background once the threshold is reached")
+    void onChange_atThreshold_mergesInBackground() throws InterruptedException {
+        properties.setMergeThreshold(2);
+        var listener = start();
+
+        listener.accept(SubscriptionChange.put(subscription("a", "Tesla")));
+        listener.accept(SubscriptionChange.put(subscription("b", "Volvo")));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.matcher().base().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.matcher().pendingChanges());
+        assertEquals(2, service.matcher().base().size());
+    }
+}
@@ -0,0 +1,111 @@
+package se.pbt.tvm.subscription.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.CachedSubscriptionRepository;
+import se.pbt.tvm.subscription.persistence.JournalSubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.MvStoreSubscriptionRepository;
+import se.pbt.tvm.subscription.persistence.ShardedSubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.SnapshotSubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.SubscriptionJournal;
+import se.pbt.tvm.subscription.persistence.SubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
+import se.pbt.tvm.subscription.persistence.SubscriptionStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Configures the subscription module.
+ * <p>
+ * Registers {@link SubscriptionStorageProperties} and creates the
+ * {@link SubscriptionRepository} matching the configured backend and storage mode.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SubscriptionStorageProperties.class)
+public class SubscriptionConfig {
+
+    /**
+     * Creates the repository used by the subscription service.
+     * <p>
+     * When the MVStore backend is used for the first time, subscriptions from an existing
+     * subscription file are imported into it.
+     */
+    @Bean
+    public SubscriptionRepository subscriptionRepository(SubscriptionStorage storage,
+                                                         SubscriptionStorageProperties properties) {
+        return switch (properties.getBackend()) {
+            case FILE -> new CachedSubscriptionRepository(createPersistence(storage, properties), properties);
+            case MVSTORE -> {
+                String storePath = properties.getMvstore().getPath() != null
+                        ? properties.getMvstore().getPath()
+                        : properties.getPath() + ".mv";
+                log.info("Using MVStore subscription backend at {}", storePath);
+
+                var repository = new MvStoreSubscriptionRepository(storePath);
+                if (repository.isEmpty() && Files.isRegularFile(Path.of(properties.getPath()))) {
+                    var imported = readForImport(storage, properties.getPath());
+                    imported.forEach(repository::put);
+                    repository.commit().join();
+                    log.info("Imported {} subscriptions from {}", imported.size(), properties.getPath());
+                }
+                yield repository;
+            }
+        };
+    }
+
+    /**
+     * Reads the subscription file to import, failing startup rather than importing nothing
+     * when the file exists but cannot be parsed.
+     */
+    private static List<Subscription> readForImport(SubscriptionStorage storage, String path) {
+        try {
+            return storage.readSubscriptions(Path.of(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read subscriptions to import from " + path, e);
+        }
+    }
+
+    /**
+     * Creates the persistence strategy used by the file backend.
+     */
+    private SubscriptionPersistence createPersistence(SubscriptionStorage storage,
+                                                      SubscriptionStorageProperties properties) {
+        log.info("Using {} subscription storage at {} ({})",
+                properties.getMode(), properties.getPath(), properties.getFormat());
+
+        return switch (properties.getMode()) {
+            case SNAPSHOT -> new SnapshotSubscriptionPersistence(storage, properties.getPath(), properties.getFormat());
+            case JOURNAL -> {
+                var journal = properties.getJournal();
+                String journalPath = journal.getPath() != null
+                        ? journal.getPath()
+                        : properties.getPath() + ".journal";
+                yield new JournalSubscriptionPersistence(
+                        storage,
+                        properties.getPath(),
+                        properties.getFormat(),
+                        new SubscriptionJournal(Path.of(journalPath), Clock.systemUTC()),
+                        journal.getMaxEntries(),
+                        journal.getMaxAge(),
+                        Clock.systemUTC()
+                );
+            }
+            case SHARDED -> new ShardedSubscriptionPersistence(
+                    storage,
+                    properties.getPath(),
+                    properties.getFormat(),
+                    properties.getSharding().getShards(),
+                    properties.getSharding().getLoadThreads()
+            );
+        };
+    }
+}
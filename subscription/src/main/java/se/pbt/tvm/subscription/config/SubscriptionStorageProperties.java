@@ -0,0 +1,119 @@
+package se.pbt.tvm.subscription.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import se.pbt.tvm.subscription.persistence.SnapshotFormat;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for subscription storage.
+ * <p>
+ * Values are loaded from the application's configuration (module: {@code app-runner})
+ * using the prefix {@code subscription.storage}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "subscription.storage")
+public class SubscriptionStorageProperties {
+
+    /**
+     * Path of the subscription file, relative to the working directory.
+     */
+    private String path = "subscriptions.yml";
+
+    /**
+     * How long changes are collected in memory before they are written to disk.
+     * <p>
+     * All changes made within this window are written and synced together.
+     */
+    private Duration flushDelay = Duration.ofMillis(100);
+
+    /**
+     * How long a caller waits for its changes to be written to disk before giving up.
+     */
+    private Duration commitTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Where subscriptions are kept at runtime.
+     */
+    private Backend backend = Backend.FILE;
+
+    /**
+     * How changes are written to disk when the {@link Backend#FILE} backend is active.
+     */
+    private Mode mode = Mode.SNAPSHOT;
+
+    /**
+     * Format of the subscription file. An existing file in another format is converted on startup.
+     */
+    private SnapshotFormat format = SnapshotFormat.YAML;
+
+    private Journal journal = new Journal();
+
+    private Sharding sharding = new Sharding();
+
+    private Mvstore mvstore = new Mvstore();
+
+    /**
+     * Available repository backends.
+     */
+    public enum Backend {
+        /** Keeps all subscriptions in memory and writes them to the subscription file. */
+        FILE,
+        /** Stores subscriptions in an embedded H2 MVStore with indexes on chat and language. */
+        MVSTORE
+    }
+
+    /**
+     * Available storage modes.
+     */
+    public enum Mode {
+        /** Rewrites the whole subscription file on every flush. */
+        SNAPSHOT,
+        /** Appends changes to a journal and periodically folds it into the subscription file. */
+        JOURNAL,
+        /** Splits subscriptions into shard files by chat and rewrites only the shards that changed. */
+        SHARDED
+    }
+
+    /**
+     * Settings used when {@link Mode#JOURNAL} is active.
+     */
+    @Getter @Setter
+    public static class Journal {
+
+        /** Path of the journal file. Defaults to the subscription file path with a {@code .journal} suffix. */
+        private String path;
+
+        /** Number of journal records that triggers compaction into a new snapshot. */
+        private int maxEntries = 10_000;
+
+        /** Age of the oldest journal record that triggers compaction, checked on each append and at startup. */
+        private Duration maxAge = Duration.ofHours(1);
+    }
+
+    /**
+     * Settings used when {@link Mode#SHARDED} is active.
+     */
+    @Getter @Setter
+    public static class Sharding {
+
+        /** Number of shard files. Changing it redistributes subscriptions on the next startup. */
+        private int shards = 16;
+
+        /** Maximum number of threads used to load shards on startup. */
+        private int loadThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Settings used when {@link Backend#MVSTORE} is active.
+     */
+    @Getter @Setter
+    public static class Mvstore {
+
+        /** Path of the store file. Defaults to the subscription file path with a {@code .mv} suffix. */
+        private String path;
+    }
+}
@@ -0,0 +1,91 @@
+package se.pbt.tvm.subscription.model;
+
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * A per-subscription delivery schedule that replaces the subscription's preset.
+ * <p>
+ * The expression is either a six-field Spring cron expression, evaluated in the subscription's
+ * time zone (for example {@code "0 30 7 * * MON-FRI"}), or an ISO-8601 interval such as
+ * {@code "PT4H"}. Intervals must be at least {@link #MIN_INTERVAL}.
+ */
+public final class CustomSchedule {
+
+    /** Shortest interval a subscription may be delivered at. */
+    public static final Duration MIN_INTERVAL = Duration.ofMinutes(15);
+
+    private final String expression;
+    private final CronExpression cron;
+    private final Duration interval;
+
+    private CustomSchedule(String expression, CronExpression cron, Duration interval) {
+        this.expression = expression;
+        this.cron = cron;
+        this.interval = interval;
+    }
+
+    /**
+     * Parses a cron expression or an ISO-8601 interval.
+     *
+     * @throws IllegalArgumentException if the expression is neither, or the interval is too short
+     */
+    public static CustomSchedule parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Custom schedule cannot be blank.");
+        }
+        String trimmed = expression.trim();
+        if (trimmed.charAt(0) == 'P' || trimmed.charAt(0) == 'p') {
+            Duration interval;
+            try {
+                interval = Duration.parse(trimmed);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid interval: " + trimmed, e);
+            }
+            if (interval.compareTo(MIN_INTERVAL) < 0) {
+                throw new IllegalArgumentException("Interval must be at least " + MIN_INTERVAL.toMinutes() + " minutes.");
+            }
+            return new CustomSchedule(trimmed, null, interval);
+        }
+        return new CustomSchedule(trimmed, CronExpression.parse(trimmed), null);
+    }
+
+    /**
+     * Returns the first delivery time strictly after {@code after}, or {@code null} if a cron
+     * expression never fires again.
+     */
+    public Instant next(Instant after, ZoneId zone) {
+        if (interval != null) {
+            return after.plus(interval);
+        }
+        ZonedDateTime next = cron.next(after.atZone(zone));
+        return next != null ? next.toInstant() : null;
+    }
+
+    /**
+     * Returns the trimmed expression.
+     */
+    public String expression() {
+        return expression;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CustomSchedule other && expression.equals(other.expression);
+    }
+
+    @Override
+    public int hashCode() {
+        return expression.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
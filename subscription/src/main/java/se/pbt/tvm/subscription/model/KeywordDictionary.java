@@ -0,0 +1,148 @@
+package se.pbt.tvm.subscription.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Intern pool that assigns every normalized keyword a compact integer ID.
+ * <p>
+ * Keywords are normalized by trimming and lowercasing, so "Tesla", " tesla" and "TESLA"
+ * share one ID and one canonical string, the {@link KeywordPool pooled} one. IDs are dense,
+ * start at 0 and are never reused, which lets indexes and matchers work on ints and arrays
+ * instead of strings.
+ * <p>
+ * A dictionary only grows, so it should live no longer than the structure it was built for:
+ * each compiled matcher builds its own from the subscriptions it holds and drops it together
+ * with the matcher, which keeps keywords of deleted subscriptions from piling up.
+ * <p>
+ * Lookups are lock-free; only assigning a new ID takes a lock.
+ */
+public final class KeywordDictionary {
+
+    /** Returned for keywords that are {@code null}, blank or not in the dictionary. */
+    public static final int NO_ID = -1;
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Object growLock = new Object();
+    // Written under growLock before the ID is published through ids
+    private volatile String[] keywords = new String[256];
+    private volatile int size;
+
+    /**
+     * Normalizes a keyword the way the dictionary compares keywords, or returns {@code null}
+     * if nothing is left after trimming.
+     */
+    public static String normalize(String keyword) {
+        if (keyword == null) return null;
+        String trimmed = keyword.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the ID of a keyword, assigning a new one if the keyword has not been seen before.
+     *
+     * @return the ID, or {@link #NO_ID} for a {@code null} or blank keyword
+     */
+    public int intern(String keyword) {
+        String normalized = normalize(keyword);
+        if (normalized == null) return NO_ID;
+
+        Integer id = ids.get(normalized);
+        return id != null ? id : assign(normalized);
+    }
+
+    /**
+     * Returns the ID of a keyword without adding it to the dictionary.
+     *
+     * @return the ID, or {@link #NO_ID} if the keyword is unknown, {@code null} or blank
+     */
+    public int idOf(String keyword) {
+        String normalized = normalize(keyword);
+        if (normalized == null) return NO_ID;
+
+        Integer id = ids.get(normalized);
+        return id != null ? id : NO_ID;
+    }
+
+    /**
+     * Returns the canonical, shared instance of the normalized keyword.
+     *
+     * @return the canonical keyword, or {@code null} for a {@code null} or blank keyword
+     */
+    public String canonical(String keyword) {
+        int id = intern(keyword);
+        return id == NO_ID ? null : keywords[id];
+    }
+
+    /**
+     * Returns the canonical keyword for an ID.
+     *
+     * @throws IllegalArgumentException if the ID has not been assigned
+     */
+    public String keyword(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown keyword id: " + id);
+        }
+        return keywords[id];
+    }
+
+    /**
+     * Interns all keywords and returns their distinct IDs in ascending order.
+     * {@code null} and blank keywords are skipped.
+     */
+    public int[] internAll(List<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) return NO_IDS;
+
+        int[] out = new int[keywords.size()];
+        int count = 0;
+        for (String keyword : keywords) {
+            int id = intern(keyword);
+            if (id != NO_ID) {
+                out[count++] = id;
+            }
+        }
+        Arrays.sort(out, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || out[distinct - 1] != out[i]) {
+                out[distinct++] = out[i];
+            }
+        }
+        return distinct == out.length ? out : Arrays.copyOf(out, distinct);
+    }
+
+    /**
+     * Returns the number of keywords assigned so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Assigns the next ID to a normalized keyword unless another thread did so first.
+     */
+    private int assign(String normalized) {
+        synchronized (growLock) {
+            Integer existing = ids.get(normalized);
+            if (existing != null) return existing;
+
+            int id = size;
+            normalized = KeywordPool.intern(normalized);
+            String[] current = keywords;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[id] = normalized;
+            keywords = current;
+            size = id + 1;
+            ids.put(normalized, id);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package se.pbt.tvm.subscription.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of canonical keyword instances shared by all subscriptions.
+ * <p>
+ * Thousands of subscriptions use the same keywords, so filters, fingerprints and keyword
+ * dictionaries hold the pooled instance instead of a copy each, and equal keywords compare
+ * by reference first. The pool references its instances weakly: once no subscription holds a
+ * keyword any more, the garbage collector drops it from the pool, so keywords of deleted
+ * subscriptions do not pile up.
+ */
+public final class KeywordPool {
+
+    // Each canonical instance is both the weak key and the referent of its value
+    private static final Map<String, WeakReference<String>> POOL = new WeakHashMap<>();
+
+    private KeywordPool() {
+    }
+
+    /**
+     * Returns the canonical instance of the keyword, pooling it if it is not pooled yet.
+     * The keyword is not normalized.
+     *
+     * @return the canonical instance, or {@code null} for a {@code null} keyword
+     */
+    public static String intern(String keyword) {
+        if (keyword == null) return null;
+
+        synchronized (POOL) {
+            WeakReference<String> reference = POOL.get(keyword);
+            String canonical = reference != null ? reference.get() : null;
+            if (canonical == null) {
+                canonical = keyword;
+                POOL.put(canonical, new WeakReference<>(canonical));
+            }
+            return canonical;
+        }
+    }
+
+    /**
+     * {@link KeywordDictionary#normalize Normalizes} the keyword and returns the canonical
+     * instance of the result.
+     *
+     * @return the canonical keyword, or {@code null} if nothing is left after trimming
+     */
+    public static String canonical(String keyword) {
+        return intern(KeywordDictionary.normalize(keyword));
+    }
+
+    /**
+     * Returns the number of pooled keywords that have not been collected yet.
+     */
+    static int size() {
+        synchronized (POOL) {
+            return POOL.size();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package se.pbt.tvm.subscription.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -14,7 +15,8 @@ import java.util.TimeZone;
  * Represents a subscription that defines how and when news should be retrieved and filtered.
  * <p>
  * A subscription contains a {@link SubscriptionFilter} for filtering rules
- * and a {@link SchedulePreset} that determines the delivery schedule.
+ * and a {@link SchedulePreset} that determines the delivery schedule, unless a
+ * {@link CustomSchedule custom schedule} is set.
  * It also holds metadata such as chat ID, timezone, and delivery settings.
  */
 // TODO: Replace constructor with builder annotation
@@ -29,6 +31,9 @@ public class Subscription {
     private long chatId;
     @NotNull
     private SchedulePreset schedule;
+    // Cron expression or ISO-8601 interval that overrides the preset, see CustomSchedule
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String customSchedule;
     @NotNull
     private TimeZone timezone;
     @NotNull
@@ -44,6 +49,7 @@ public class Subscription {
                 "id='" + id + '\'' +
                 ", chatId='" + chatId + '\'' +
                 ", schedule=" + (schedule != null ? schedule.name() : null) +
+                (customSchedule != null ? ", customSchedule='" + customSchedule + '\'' : "") +
                 ", timezone=" + timezone +
                 ", filter=" + filter +
                 ", maxItems=" + maxItems +
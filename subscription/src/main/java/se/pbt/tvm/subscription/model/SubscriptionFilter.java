@@ -8,6 +8,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -15,6 +17,10 @@ import java.util.List;
  * <p>
  * A filter specifies which items are included in a subscription based on
  * keywords, stock tickers, and the preferred language.
+ * <p>
+ * The keyword list is an unmodifiable copy of the one that was set, so indexes built from
+ * it cannot go stale behind their back. It holds the {@link KeywordPool pooled} instance of
+ * every keyword, so filters that share keywords share the strings too.
  */
 @Getter
 @Setter
@@ -29,6 +35,22 @@ public class SubscriptionFilter {
     @Pattern(regexp = "^[a-z]{2}(-[A-Z]{2})?$", message = "Language must be ISO code like 'en' or 'sv-SE'")
     private String language;
 
+    /**
+     * Sets the keywords as an unmodifiable copy of the given list, holding pooled instances.
+     */
+    public void setKeywords(List<String> keywords) {
+        if (keywords == null) {
+            this.keywords = null;
+            return;
+        }
+        // List.copyOf would reject the null entries that validation reports
+        List<String> pooled = new ArrayList<>(keywords.size());
+        for (String keyword : keywords) {
+            pooled.add(KeywordPool.intern(keyword));
+        }
+        this.keywords = Collections.unmodifiableList(pooled);
+    }
+
     @Override
     public String toString() {
         return "SubscriptionFilter{" +
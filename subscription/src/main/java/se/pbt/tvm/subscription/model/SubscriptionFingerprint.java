@@ -0,0 +1,92 @@
+package se.pbt.tvm.subscription.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Canonical form of the part of a {@link Subscription} that decides whether two
+ * subscriptions in the same chat are duplicates.
+ * <p>
+ * Holds the distinct {@link KeywordDictionary#normalize normalized} keywords in alphabetical order,
+ * as {@link KeywordPool pooled} instances, plus the lowercased language, so two subscriptions
+ * are duplicates exactly when their fingerprints are equal. Fingerprints are immutable and cache their hash code, which makes them cheap keys
+ * in hash sets.
+ */
+public final class SubscriptionFingerprint {
+
+    private static final String[] NO_KEYWORDS = new String[0];
+
+    private final String[] keywords;
+    private final String language;
+    private final int hash;
+
+    private SubscriptionFingerprint(String[] keywords, String language) {
+        this.keywords = keywords;
+        this.language = language;
+        this.hash = 31 * Arrays.hashCode(keywords) + Objects.hashCode(language);
+    }
+
+    /**
+     * Builds the fingerprint of a subscription. Missing keywords or language count as empty.
+     */
+    public static SubscriptionFingerprint of(Subscription subscription) {
+        SubscriptionFilter filter = subscription != null ? subscription.getFilter() : null;
+        if (filter == null) {
+            return new SubscriptionFingerprint(NO_KEYWORDS, null);
+        }
+
+        String language = filter.getLanguage() != null ? filter.getLanguage().toLowerCase(Locale.ROOT) : null;
+        return new SubscriptionFingerprint(normalize(filter.getKeywords()), language);
+    }
+
+    /**
+     * Returns an unmodifiable view of the normalized keywords in alphabetical order.
+     */
+    public List<String> keywords() {
+        return Collections.unmodifiableList(Arrays.asList(keywords));
+    }
+
+    public String language() {
+        return language;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SubscriptionFingerprint other)) return false;
+        return hash == other.hash && Arrays.equals(keywords, other.keywords) && Objects.equals(language, other.language);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Normalizes the keywords and returns the distinct ones in alphabetical order.
+     */
+    private static String[] normalize(List<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) return NO_KEYWORDS;
+
+        TreeSet<String> normalized = new TreeSet<>();
+        for (String keyword : keywords) {
+            String value = KeywordPool.canonical(keyword);
+            if (value != null) {
+                normalized.add(value);
+            }
+        }
+        return normalized.toArray(NO_KEYWORDS);
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionFingerprint{" +
+                "keywords=" + keywords() +
+                ", language='" + language + '\'' +
+                '}';
+    }
+}
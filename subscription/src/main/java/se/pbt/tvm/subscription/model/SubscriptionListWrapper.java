@@ -1,5 +1,6 @@
 package se.pbt.tvm.subscription.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -8,12 +9,14 @@ import lombok.Setter;
 import se.pbt.tvm.subscription.persistence.SubscriptionStorage;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Wrapper class used for deserializing a list of {@link Subscription} objects from a YAML file.
  * <p>
  * The root YAML object is expected to contain a {@code subscriptions} key
- * pointing to the list of subscriptions.
+ * pointing to the list of subscriptions. An optional {@code idSuffixes} key holds the
+ * ID suffix counters of the file backends and is left out when there are none.
  * <p>
  * This class is primarily used by {@link SubscriptionStorage}
  * when loading and saving subscriptions.
@@ -27,6 +30,9 @@ public class SubscriptionListWrapper {
     @Valid
     private List<Subscription> subscriptions;
 
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Integer> idSuffixes;
+
     @Override
     public String toString() {
         return "SubscriptionListWrapper{" +
@@ -0,0 +1,244 @@
+package se.pbt.tvm.subscription.persistence;
+
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFilter;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Reads and writes subscriptions in a compact binary snapshot format.
+ * <p>
+ * A file starts with a magic header, a format version and the number of records.
+ * Each record is prefixed with its length, so readers can size buffers up front and
+ * skip records without parsing them. Decoding avoids the YAML parser entirely, which
+ * keeps cold start fast for large subscription files.
+ * <p>
+ * Fields added after version 1 are appended to the end of a record and only read if the
+ * record has bytes left, so older records and snapshots stay readable without a version bump.
+ * The same holds for the file: the ID suffix counters of a {@link SubscriptionSnapshot} follow
+ * the last record and are only read if the file continues after it.
+ */
+public final class BinarySubscriptionCodec {
+
+    private static final byte[] MAGIC = {'T', 'V', 'M', 'S'};
+    private static final int VERSION = 1;
+
+    private BinarySubscriptionCodec() {}
+
+    /**
+     * Returns {@code true} if the given bytes start with the binary snapshot header.
+     */
+    public static boolean hasHeader(byte[] prefix) {
+        return prefix.length >= MAGIC.length
+                && Arrays.equals(prefix, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Number of bytes needed to recognize the format with {@link #hasHeader(byte[])}.
+     */
+    public static int headerLength() {
+        return MAGIC.length;
+    }
+
+    /**
+     * Encodes the given subscriptions into a complete snapshot.
+     */
+    public static byte[] encode(List<Subscription> subscriptions) throws IOException {
+        return encode(SubscriptionSnapshot.of(subscriptions));
+    }
+
+    /**
+     * Encodes the given subscriptions and ID suffix counters into a complete snapshot.
+     */
+    public static byte[] encode(SubscriptionSnapshot snapshot) throws IOException {
+        List<Subscription> subscriptions = snapshot.subscriptions();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * subscriptions.size() + 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(subscriptions.size());
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(128);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        for (Subscription subscription : subscriptions) {
+            recordBytes.reset();
+            writeSubscription(record, subscription);
+            out.writeInt(recordBytes.size());
+            recordBytes.writeTo(out);
+        }
+
+        // Appended section, left out when empty so plain snapshots keep their original layout
+        if (!snapshot.idSuffixes().isEmpty()) {
+            out.writeInt(snapshot.idSuffixes().size());
+            for (var entry : snapshot.idSuffixes().entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a snapshot previously written by {@link #encode(List)}.
+     *
+     * @throws IOException if the header is missing, the version is unknown or the data is truncated
+     */
+    public static List<Subscription> decode(InputStream input) throws IOException {
+        return decodeSnapshot(input).subscriptions();
+    }
+
+    /**
+     * Decodes a snapshot previously written by {@link #encode(SubscriptionSnapshot)}, including
+     * the ID suffix counters if the file has them.
+     *
+     * @throws IOException if the header is missing, the version is unknown or the data is truncated
+     */
+    public static SubscriptionSnapshot decodeSnapshot(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input instanceof BufferedInputStream ? input : new BufferedInputStream(input));
+
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!hasHeader(magic)) {
+            throw new IOException("Not a binary subscription snapshot");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary snapshot version: " + version);
+        }
+
+        int count = in.readInt();
+        List<Subscription> subscriptions = new ArrayList<>(count);
+        byte[] buffer = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+            subscriptions.add(readSubscription(new DataInputStream(new ByteArrayInputStream(buffer, 0, length))));
+        }
+
+        // Appended section, missing in snapshots written before it existed
+        Map<String, Integer> idSuffixes = new HashMap<>();
+        in.mark(1);
+        if (in.read() >= 0) {
+            in.reset();
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                idSuffixes.put(in.readUTF(), in.readInt());
+            }
+        }
+        return new SubscriptionSnapshot(subscriptions, idSuffixes);
+    }
+
+    // Records
+
+    /**
+     * Encodes a single subscription as one record, without the file header.
+     */
+    public static byte[] encodeRecord(Subscription subscription) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeSubscription(out, subscription);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a single record written by {@link #encodeRecord(Subscription)}.
+     */
+    public static Subscription decodeRecord(byte[] record) throws IOException {
+        return readSubscription(new DataInputStream(new ByteArrayInputStream(record)));
+    }
+
+    private static void writeSubscription(DataOutputStream out, Subscription subscription) throws IOException {
+        writeNullableString(out, subscription.getId());
+        out.writeLong(subscription.getChatId());
+        writeNullableString(out, subscription.getSchedule() != null ? subscription.getSchedule().name() : null);
+        writeNullableString(out, subscription.getTimezone() != null ? subscription.getTimezone().getID() : null);
+        out.writeInt(subscription.getMaxItems());
+        out.writeBoolean(subscription.isEnabled());
+
+        SubscriptionFilter filter = subscription.getFilter();
+        out.writeBoolean(filter != null);
+        if (filter != null) {
+            writeStrings(out, filter.getKeywords());
+            writeStrings(out, filter.getTickers());
+            writeNullableString(out, filter.getLanguage());
+        }
+
+        // Appended fields
+        writeNullableString(out, subscription.getCustomSchedule());
+    }
+
+    private static Subscription readSubscription(DataInputStream in) throws IOException {
+        Subscription subscription = new Subscription();
+        subscription.setId(readNullableString(in));
+        subscription.setChatId(in.readLong());
+        String schedule = readNullableString(in);
+        subscription.setSchedule(schedule != null ? SchedulePreset.valueOf(schedule) : null);
+        String timezone = readNullableString(in);
+        subscription.setTimezone(timezone != null ? TimeZone.getTimeZone(timezone) : null);
+        subscription.setMaxItems(in.readInt());
+        subscription.setEnabled(in.readBoolean());
+
+        if (in.readBoolean()) {
+            SubscriptionFilter filter = new SubscriptionFilter();
+            filter.setKeywords(readStrings(in));
+            filter.setTickers(readStrings(in));
+            filter.setLanguage(readNullableString(in));
+            subscription.setFilter(filter);
+        }
+
+        // Appended fields, missing in records written before they existed
+        if (in.available() > 0) {
+            subscription.setCustomSchedule(readNullableString(in));
+        }
+        return subscription;
+    }
+
+    // Primitives
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes a list of strings; a negative size marks a {@code null} list.
+     */
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeNullableString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) return null;
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readNullableString(in));
+        }
+        return values;
+    }
+}
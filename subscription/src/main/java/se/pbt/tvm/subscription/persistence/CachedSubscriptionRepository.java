@@ -0,0 +1,399 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.pbt.tvm.subscription.config.SubscriptionStorageProperties;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * File-backed {@link SubscriptionRepository} that keeps all subscriptions in memory and is
+ * the authoritative source of subscriptions at runtime.
+ * <p>
+ * The subscription file is read once when the repository is created. Lookups by ID, chat,
+ * keyword and language go through indexes that are updated with each mutation and read without
+ * locking, so a mutation costs work proportional to one chat rather than the whole store.
+ * The full list returned by {@link #findAll()} is an immutable snapshot that is rebuilt
+ * lazily on the first read after a mutation, so a burst of writes pays for it once. The
+ * rebuild does not lock either: it copies the store and keeps the copy only if no mutation
+ * ran meanwhile, falling back to the write lock after repeated interference.
+ * Mutations schedule a background flush through the configured {@link SubscriptionPersistence}. All changes made within the
+ * configured flush delay are written to disk together (group commit), so a burst of
+ * mutations costs a single write and sync. The full snapshot is only built for a flush if
+ * the persistence asks for it. Callers that need durability wait on {@link #commit()}.
+ */
+public class CachedSubscriptionRepository implements SubscriptionRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(CachedSubscriptionRepository.class);
+
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+    private static final int OPTIMISTIC_SNAPSHOT_ATTEMPTS = 3;
+
+    private final SubscriptionPersistence persistence;
+    private final Duration flushDelay;
+    private final Duration commitTimeout;
+    private final ScheduledThreadPoolExecutor flusher;
+
+    private final Object writeLock = new Object();
+    private final Object flushLock = new Object();
+
+    // Lazily rebuilt from ordered; stale once version has moved past the one it was built at
+    private volatile Snapshot snapshot;
+    // Odd while a mutation is changing ordered, bumped twice per mutation. Written under writeLock
+    private volatile long version;
+
+    // All subscriptions keyed by insertion sequence; a replaced subscription keeps its sequence.
+    // Written under writeLock, read without locking
+    private final ConcurrentSkipListMap<Long, Subscription> ordered = new ConcurrentSkipListMap<>();
+    // Sequence of each subscription with an ID. Guarded by writeLock
+    private final Map<String, Long> sequenceById = new HashMap<>();
+    private long nextSequence;
+
+    // Indexes, replaced entry by entry under writeLock
+    private final Map<String, Subscription> byId = new ConcurrentHashMap<>();
+    private final Map<Long, ChatSubscriptions> byChat = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<Long, Subscription>> byLanguage = new ConcurrentHashMap<>();
+    // Survive deletes; written to disk with the snapshots and restored on load
+    private final IdSuffixCounters idSuffixes = new IdSuffixCounters(new ConcurrentHashMap<>());
+
+    private final ChangeListeners listeners = new ChangeListeners();
+
+    // Guarded by writeLock
+    private List<SubscriptionChange> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    // Completes once the changes currently in pending are persisted
+    private CompletableFuture<Void> openCommit = new CompletableFuture<>();
+    // Completes once the changes taken by the running (or last) flush are persisted
+    private CompletableFuture<Void> inFlightCommit = CompletableFuture.completedFuture(null);
+
+    /**
+     * Loads all subscriptions through the given persistence and starts the background flusher.
+     */
+    public CachedSubscriptionRepository(SubscriptionPersistence persistence, SubscriptionStorageProperties properties) {
+        this.persistence = persistence;
+        this.flushDelay = properties.getFlushDelay();
+        this.commitTimeout = properties.getCommitTimeout();
+        SubscriptionSnapshot loaded = persistence.load();
+        buildIndexes(immutableCopy(loaded.subscriptions()));
+        idSuffixes.raiseAll(loaded.idSuffixes());
+        this.flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "subscription-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A pending delayed flush is replaced by the final flush in close()
+        this.flusher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        log.info("Loaded {} subscriptions", ordered.size());
+    }
+
+    // Reads
+
+    /**
+     * Returns all subscriptions as an immutable snapshot, rebuilt on the first call after a mutation.
+     */
+    @Override
+    public List<Subscription> findAll() {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version) return current.subscriptions();
+
+        for (int attempt = 0; attempt < OPTIMISTIC_SNAPSHOT_ATTEMPTS; attempt++) {
+            long before = version;
+            if ((before & 1) == 0) {
+                List<Subscription> copy = List.copyOf(ordered.values());
+                // Any mutation seen by the copy has already made version odd
+                if (version == before) {
+                    snapshot = new Snapshot(before, copy);
+                    return copy;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        synchronized (writeLock) {
+            List<Subscription> copy = List.copyOf(ordered.values());
+            snapshot = new Snapshot(version, copy);
+            return copy;
+        }
+    }
+
+    @Override
+    public List<Subscription> findByChatId(long chatId) {
+        return byChat.getOrDefault(chatId, ChatSubscriptions.EMPTY).subscriptions();
+    }
+
+    @Override
+    public List<Subscription> findByChatIdAndKeyword(long chatId, String keyword) {
+        return byChat.getOrDefault(chatId, ChatSubscriptions.EMPTY).findByKeyword(keyword);
+    }
+
+    @Override
+    public Set<SubscriptionFingerprint> findFingerprintsByChatId(long chatId) {
+        return byChat.getOrDefault(chatId, ChatSubscriptions.EMPTY).fingerprints();
+    }
+
+    @Override
+    public String nextFreeId(long chatId, String baseId) {
+        return idSuffixes.nextFreeId(chatId, baseId);
+    }
+
+    @Override
+    public Optional<Subscription> findById(String id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    @Override
+    public List<Subscription> findByLanguage(String language) {
+        ConcurrentSkipListMap<Long, Subscription> subscriptions = byLanguage.get(languageKey(language));
+        return subscriptions != null ? List.copyOf(subscriptions.values()) : List.of();
+    }
+
+    // Writes
+
+    @Override
+    public void put(Subscription subscription) {
+        Objects.requireNonNull(subscription, "Subscription must not be null");
+        synchronized (writeLock) {
+            String id = subscription.getId();
+            Subscription previous = id != null ? byId.get(id) : null;
+            if (previous != null && previous.getChatId() != subscription.getChatId()) {
+                reindexChat(previous.getChatId(), chat -> chat.without(id));
+            }
+            reindexChat(subscription.getChatId(), chat -> chat.with(subscription));
+            version++;
+            if (previous != null) {
+                unindexLanguage(previous, sequenceById.get(id));
+            }
+            index(subscription);
+            version++;
+            publish(SubscriptionChange.put(subscription));
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        if (id == null) return false;
+        synchronized (writeLock) {
+            Subscription previous = byId.remove(id);
+            if (previous == null) {
+                return false;
+            }
+
+            version++;
+            Long sequence = sequenceById.remove(id);
+            ordered.remove(sequence);
+            unindexLanguage(previous, sequence);
+            version++;
+            reindexChat(previous.getChatId(), chat -> chat.without(id));
+            publish(SubscriptionChange.delete(id));
+            return true;
+        }
+    }
+
+    @Override
+    public void addChangeListener(Consumer<SubscriptionChange> listener) {
+        listeners.add(listener);
+    }
+
+    // Flushing
+
+    /**
+     * Returns a future that completes once every change made so far is persisted.
+     * <p>
+     * The future does not trigger a write itself; it joins the group that the next
+     * scheduled flush writes. It fails with a timeout if that does not happen within
+     * the configured commit timeout.
+     */
+    @Override
+    public CompletableFuture<Void> commit() {
+        CompletableFuture<Void> target;
+        synchronized (writeLock) {
+            target = pending.isEmpty() ? inFlightCommit : openCommit;
+        }
+        return target.copy().orTimeout(commitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands all changes made since the last flush to the persistence layer.
+     * <p>
+     * Flushes are serialized, so an older state can never overwrite a newer one.
+     * If persisting fails, the changes are kept and a retry is scheduled; callers
+     * waiting on {@link #commit()} are released by the flush that succeeds.
+     */
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            List<SubscriptionChange> changes;
+            CompletableFuture<Void> group;
+            synchronized (writeLock) {
+                flushScheduled = false;
+                if (pending.isEmpty()) return;
+                changes = pending;
+                pending = new ArrayList<>();
+                group = openCommit;
+                openCommit = new CompletableFuture<>();
+                inFlightCommit = group;
+            }
+
+            try {
+                // Built outside the write lock, so it may already contain changes of the next flush
+                persistence.persist(changes, () -> new SubscriptionSnapshot(findAll(), idSuffixes.entries()));
+            } catch (RuntimeException e) {
+                synchronized (writeLock) {
+                    changes.addAll(pending);
+                    pending = changes;
+                    // The failed group is merged with changes made in the meantime
+                    CompletableFuture<Void> newer = openCommit;
+                    group.whenComplete((v, error) -> newer.complete(null));
+                    openCommit = group;
+                    scheduleFlush();
+                }
+                throw e;
+            }
+            group.complete(null);
+            log.debug("Flushed {} changes", changes.size());
+        }
+    }
+
+    /**
+     * Flushes pending changes and stops the background flusher.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    // Helpers
+
+    /**
+     * Records the change, makes sure a flush is scheduled and notifies the change listeners.
+     * Must be called while holding {@code writeLock}.
+     */
+    private void publish(SubscriptionChange change) {
+        pending.add(change);
+        scheduleFlush();
+        listeners.fire(change);
+    }
+
+    /**
+     * Schedules a background flush unless one is already pending.
+     * Must be called while holding {@code writeLock}.
+     */
+    private void scheduleFlush() {
+        if (!flushScheduled && !flusher.isShutdown()) {
+            flushScheduled = true;
+            flusher.schedule(this::flushQuietly, flushDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Builds the ID and chat indexes from a loaded snapshot.
+     */
+    private void buildIndexes(List<Subscription> subscriptions) {
+        Map<Long, List<Subscription>> chats = new HashMap<>();
+        for (Subscription s : subscriptions) {
+            index(s);
+            chats.computeIfAbsent(s.getChatId(), chatId -> new ArrayList<>()).add(s);
+        }
+        chats.forEach((chatId, list) -> byChat.put(chatId, ChatSubscriptions.of(list)));
+    }
+
+    /**
+     * Adds or replaces a subscription in the ordered map, the ID index and the language index.
+     * A subscription with the same ID keeps its position; one without an ID is always appended.
+     */
+    private void index(Subscription subscription) {
+        String id = subscription.getId();
+        Long sequence = id != null ? sequenceById.get(id) : null;
+        if (sequence == null) {
+            sequence = nextSequence++;
+            if (id != null) sequenceById.put(id, sequence);
+        }
+        ordered.put(sequence, subscription);
+        if (id != null) {
+            byId.put(id, subscription);
+            idSuffixes.register(subscription.getChatId(), id);
+        }
+        if (subscription.getFilter() != null) {
+            byLanguage.computeIfAbsent(languageKey(subscription.getFilter().getLanguage()), language -> new ConcurrentSkipListMap<>())
+                    .put(sequence, subscription);
+        }
+    }
+
+    /**
+     * Removes a subscription from the language index, dropping languages nobody uses any more.
+     */
+    private void unindexLanguage(Subscription subscription, Long sequence) {
+        if (subscription.getFilter() == null || sequence == null) return;
+        String language = languageKey(subscription.getFilter().getLanguage());
+        ConcurrentSkipListMap<Long, Subscription> subscriptions = byLanguage.get(language);
+        if (subscriptions != null) {
+            subscriptions.remove(sequence);
+            if (subscriptions.isEmpty()) byLanguage.remove(language);
+        }
+    }
+
+    /**
+     * Replaces the index entry of one chat, dropping it once the chat has no subscriptions.
+     * Must be called while holding {@code writeLock}.
+     */
+    private void reindexChat(long chatId, UnaryOperator<ChatSubscriptions> update) {
+        ChatSubscriptions next = update.apply(byChat.getOrDefault(chatId, ChatSubscriptions.EMPTY));
+        if (next.isEmpty()) {
+            byChat.remove(chatId);
+        } else {
+            byChat.put(chatId, next);
+        }
+    }
+
+    /**
+     * Runs a flush on the background thread, logging instead of propagating failures.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush subscriptions", e);
+        }
+    }
+
+    /**
+     * Returns the language index key; a missing language is indexed as the empty string.
+     */
+    private static String languageKey(String language) {
+        return language != null ? language : "";
+    }
+
+    /**
+     * Copies a loaded list into an immutable snapshot, dropping {@code null} entries.
+     */
+    private static List<Subscription> immutableCopy(List<Subscription> loaded) {
+        if (loaded == null) return List.of();
+        return loaded.stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Full list of subscriptions together with the version it was copied at.
+     */
+    private record Snapshot(long version, List<Subscription> subscriptions) {}
+}
@@ -0,0 +1,40 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Listeners registered through {@link SubscriptionRepository#addChangeListener}.
+ * <p>
+ * A failing listener is logged and skipped, so it can never undo or block a mutation
+ * that has already been applied.
+ */
+final class ChangeListeners {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeListeners.class);
+
+    private final List<Consumer<SubscriptionChange>> listeners = new CopyOnWriteArrayList<>();
+
+    void add(Consumer<SubscriptionChange> listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener must not be null"));
+    }
+
+    /**
+     * Tells every listener about a change. Must be called while holding the repository's write lock,
+     * so listeners see changes in the order they were applied.
+     */
+    void fire(SubscriptionChange change) {
+        for (Consumer<SubscriptionChange> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                log.error("Subscription change listener failed for {}", change.id(), e);
+            }
+        }
+    }
+}
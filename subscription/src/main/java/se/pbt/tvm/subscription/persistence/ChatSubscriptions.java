@@ -0,0 +1,121 @@
+package se.pbt.tvm.subscription.persistence;
+
+import se.pbt.tvm.subscription.model.KeywordDictionary;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
+
+import java.util.*;
+
+/**
+ * Immutable index of the subscriptions belonging to one chat.
+ * <p>
+ * Holds the chat's subscriptions in insertion order, each with its {@link SubscriptionFingerprint}
+ * at the same position, together with a map from normalized keyword to the subscriptions using it
+ * and the set of their fingerprints. Fingerprints are computed once per subscription and carried
+ * over by updates, so {@link #with} and {@link #without} only fingerprint the subscription that
+ * changed. Updates return a new instance and cost work proportional to the size of the chat,
+ * never the whole store.
+ */
+record ChatSubscriptions(
+        List<Subscription> subscriptions,
+        List<SubscriptionFingerprint> subscriptionFingerprints,
+        Map<String, List<Subscription>> byKeyword,
+        Set<SubscriptionFingerprint> fingerprints
+) {
+
+    static final ChatSubscriptions EMPTY = new ChatSubscriptions(List.of(), List.of(), Map.of(), Set.of());
+
+    /**
+     * Builds the index for the given subscriptions of a single chat.
+     */
+    static ChatSubscriptions of(List<Subscription> subscriptions) {
+        if (subscriptions.isEmpty()) return EMPTY;
+
+        List<SubscriptionFingerprint> fingerprints = new ArrayList<>(subscriptions.size());
+        for (Subscription s : subscriptions) {
+            fingerprints.add(SubscriptionFingerprint.of(s));
+        }
+        return index(subscriptions, fingerprints);
+    }
+
+    /**
+     * Returns a copy where the subscription with the same ID is replaced, or the subscription is appended.
+     */
+    ChatSubscriptions with(Subscription subscription) {
+        List<Subscription> next = new ArrayList<>(subscriptions.size() + 1);
+        List<SubscriptionFingerprint> nextFingerprints = new ArrayList<>(subscriptions.size() + 1);
+        SubscriptionFingerprint fingerprint = SubscriptionFingerprint.of(subscription);
+        boolean replaced = false;
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription s = subscriptions.get(i);
+            if (!replaced && s.getId() != null && s.getId().equals(subscription.getId())) {
+                next.add(subscription);
+                nextFingerprints.add(fingerprint);
+                replaced = true;
+            } else {
+                next.add(s);
+                nextFingerprints.add(subscriptionFingerprints.get(i));
+            }
+        }
+        if (!replaced) {
+            next.add(subscription);
+            nextFingerprints.add(fingerprint);
+        }
+        return index(next, nextFingerprints);
+    }
+
+    /**
+     * Returns a copy without the subscription with the given ID.
+     */
+    ChatSubscriptions without(String id) {
+        List<Subscription> next = new ArrayList<>(subscriptions.size());
+        List<SubscriptionFingerprint> nextFingerprints = new ArrayList<>(subscriptions.size());
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription s = subscriptions.get(i);
+            if (!id.equals(s.getId())) {
+                next.add(s);
+                nextFingerprints.add(subscriptionFingerprints.get(i));
+            }
+        }
+        return next.size() == subscriptions.size() ? this : index(next, nextFingerprints);
+    }
+
+    /**
+     * Returns the subscriptions that use the given keyword, ignoring case and surrounding whitespace.
+     */
+    List<Subscription> findByKeyword(String keyword) {
+        if (keyword == null) return List.of();
+        return byKeyword.getOrDefault(normalizeKeyword(keyword), List.of());
+    }
+
+    boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    /**
+     * Normalizes a keyword for index lookups, the same way the {@link KeywordDictionary} does.
+     */
+    static String normalizeKeyword(String keyword) {
+        String normalized = KeywordDictionary.normalize(keyword);
+        return normalized != null ? normalized : "";
+    }
+
+    /**
+     * Builds the keyword map and fingerprint set from subscriptions and their already computed
+     * fingerprints, which hold the distinct normalized keywords of each subscription.
+     */
+    private static ChatSubscriptions index(List<Subscription> subscriptions, List<SubscriptionFingerprint> fingerprints) {
+        if (subscriptions.isEmpty()) return EMPTY;
+
+        Map<String, List<Subscription>> byKeyword = new HashMap<>();
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription s = subscriptions.get(i);
+            for (String keyword : fingerprints.get(i).keywords()) {
+                byKeyword.computeIfAbsent(keyword, k -> new ArrayList<>(1)).add(s);
+            }
+        }
+        byKeyword.replaceAll((keyword, matches) -> List.copyOf(matches));
+        return new ChatSubscriptions(List.copyOf(subscriptions), List.copyOf(fingerprints),
+                Map.copyOf(byKeyword), Set.copyOf(fingerprints));
+    }
+}
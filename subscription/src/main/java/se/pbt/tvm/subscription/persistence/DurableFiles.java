@@ -0,0 +1,95 @@
+package se.pbt.tvm.subscription.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File helpers that make subscription writes survive crashes.
+ * <p>
+ * Files are never rewritten in place: new content goes to a temporary file that is
+ * synced and then renamed over the target, so readers see either the old or the new
+ * version, never a truncated one.
+ */
+public final class DurableFiles {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private DurableFiles() {}
+
+    /**
+     * Replaces the target file with the given content using write-to-temp, fsync and atomic rename.
+     */
+    public static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path parent = createParentDirectories(target);
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, content);
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(parent);
+    }
+
+    /**
+     * Appends content to the end of a file and syncs it to disk with a single fsync.
+     */
+    public static void appendAndSync(Path target, byte[] content) throws IOException {
+        createParentDirectories(target);
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, content);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Cuts a file down to the given size and syncs it to disk.
+     */
+    public static void truncateAndSync(Path target, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    private static Path createParentDirectories(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return parent;
+    }
+
+    private static void writeFully(FileChannel channel, byte[] content) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Syncs the directory entry so the rename itself survives a crash.
+     * Not every platform allows opening a directory, so failures are ignored.
+     */
+    private static void syncDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // Best effort only
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package se.pbt.tvm.subscription.persistence;
+
+import java.util.Map;
+
+/**
+ * Per-chat counters of the highest numeric suffix handed out for each ID prefix.
+ * <p>
+ * Counters only grow: deleting a subscription does not lower them, so a suffix is not
+ * handed out again while the counters live. Allocating an ID is a single map lookup,
+ * and recording one touches at most two entries, independent of the size of the chat.
+ * <p>
+ * The backing map decides how long the counters live. The file backends write its
+ * {@link #entries() entries} into their snapshots, keyed as {@code <chatId>/<prefix>}, and
+ * {@link #raiseAll raise} the counters from them again on load. Writes must be serialized by
+ * the caller; reads are safe concurrently when the map is a concurrent one.
+ */
+final class IdSuffixCounters {
+
+    private static final char SEPARATOR = '/';
+
+    private final Map<String, Integer> highest;
+
+    IdSuffixCounters(Map<String, Integer> highest) {
+        this.highest = highest;
+    }
+
+    /**
+     * Records a taken ID. The ID itself counts as suffix 1 of its own prefix, and an ID
+     * ending in {@code -N} also counts as suffix N of the part before it, since it is not
+     * known which of the two it was generated from.
+     */
+    void register(long chatId, String id) {
+        if (id == null) return;
+        raise(chatId, id, 1);
+
+        int dash = id.lastIndexOf('-');
+        if (dash <= 0 || dash == id.length() - 1 || id.length() - dash > 10) return;
+        int suffix = 0;
+        for (int i = dash + 1; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return;
+            suffix = suffix * 10 + (c - '0');
+        }
+        if (suffix >= 2) {
+            raise(chatId, id.substring(0, dash), suffix);
+        }
+    }
+
+    /**
+     * Returns the base ID if it was never taken in the chat, otherwise the base ID with the
+     * next suffix above the highest one ever recorded.
+     */
+    String nextFreeId(long chatId, String baseId) {
+        Integer current = highest.get(key(chatId, baseId));
+        return current == null ? baseId : baseId + "-" + Math.max(current + 1, 2);
+    }
+
+    /**
+     * Raises the counters to at least the given entries, as returned by {@link #entries()}.
+     */
+    void raiseAll(Map<String, Integer> entries) {
+        entries.forEach((key, suffix) -> {
+            Integer current = highest.get(key);
+            if (suffix != null && (current == null || current < suffix)) {
+                highest.put(key, suffix);
+            }
+        });
+    }
+
+    /**
+     * Returns an immutable copy of all counters, keyed by chat ID and prefix.
+     */
+    Map<String, Integer> entries() {
+        return Map.copyOf(highest);
+    }
+
+    boolean isEmpty() {
+        return highest.isEmpty();
+    }
+
+    /**
+     * Returns the chat ID a counter key belongs to.
+     */
+    static long chatOf(String key) {
+        return Long.parseLong(key.substring(0, key.indexOf(SEPARATOR)));
+    }
+
+    private void raise(long chatId, String prefix, int suffix) {
+        String key = key(chatId, prefix);
+        Integer current = highest.get(key);
+        if (current == null || current < suffix) {
+            highest.put(key, suffix);
+        }
+    }
+
+    private static String key(long chatId, String prefix) {
+        return chatId + String.valueOf(SEPARATOR) + prefix;
+    }
+}
@@ -0,0 +1,171 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Persists subscriptions as a snapshot file plus an append-only {@link SubscriptionJournal}.
+ * <p>
+ * Every flush appends only the changes made since the last flush. Startup replays the
+ * journal on top of the last snapshot, raising the snapshot's ID suffix counters for every
+ * subscription put in the journal, so suffixes of subscriptions deleted since the snapshot
+ * are not handed out again. Once the journal exceeds the configured number of
+ * entries or age, it is folded into a new snapshot and truncated. Compaction runs on the
+ * repository's background flush thread, never on the caller's thread.
+ * <p>
+ * The age threshold is only checked when changes are appended and at startup, so a journal
+ * that receives no writes is not compacted however old it gets. Such a journal does not grow
+ * either, so its replay cost stays bounded by the entry threshold.
+ */
+public class JournalSubscriptionPersistence implements SubscriptionPersistence {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalSubscriptionPersistence.class);
+
+    private final SubscriptionStorage storage;
+    private final String snapshotPath;
+    private final SnapshotFormat snapshotFormat;
+    private final SubscriptionJournal journal;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    public JournalSubscriptionPersistence(
+            SubscriptionStorage storage,
+            String snapshotPath,
+            SnapshotFormat snapshotFormat,
+            SubscriptionJournal journal,
+            int maxEntries,
+            Duration maxAge,
+            Clock clock
+    ) {
+        this.storage = storage;
+        this.snapshotPath = snapshotPath;
+        this.snapshotFormat = snapshotFormat;
+        this.journal = journal;
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads the last snapshot and replays the journal on top of it.
+     * <p>
+     * If the replayed journal is already over the compaction threshold, it is compacted immediately.
+     */
+    @Override
+    public SubscriptionSnapshot load() {
+        SubscriptionSnapshot snapshot = storage.loadSnapshot(snapshotPath, snapshotFormat);
+        try {
+            List<SubscriptionChange> tail = journal.replay();
+            IdSuffixCounters idSuffixes = new IdSuffixCounters(new HashMap<>(snapshot.idSuffixes()));
+            for (SubscriptionChange change : tail) {
+                if (change.subscription() != null) {
+                    idSuffixes.register(change.subscription().getChatId(), change.id());
+                }
+            }
+            SubscriptionSnapshot state = new SubscriptionSnapshot(apply(snapshot.subscriptions(), tail), idSuffixes.entries());
+            log.info("Replayed {} journal records on top of {} snapshot subscriptions", tail.size(), snapshot.subscriptions().size());
+            if (shouldCompact()) {
+                compact(state);
+            }
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay subscription journal", e);
+        }
+    }
+
+    /**
+     * Appends the changes to the journal and compacts it if a threshold has been reached.
+     * The complete state is only requested for a compaction.
+     * <p>
+     * A compacted snapshot that already contains changes of the next flush is harmless, since
+     * replaying those changes on top of it again yields the same state.
+     */
+    @Override
+    public void persist(List<SubscriptionChange> changes, Supplier<SubscriptionSnapshot> snapshot) {
+        try {
+            journal.append(changes);
+            if (shouldCompact()) {
+                compact(snapshot.get());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to persist subscription changes", e);
+        }
+    }
+
+    /**
+     * Returns {@code true} when the journal has grown too large or too old.
+     */
+    private boolean shouldCompact() {
+        if (journal.entryCount() == 0) return false;
+        if (journal.entryCount() >= maxEntries) return true;
+        Instant oldest = journal.oldestEntryAt();
+        return oldest != null && !oldest.plus(maxAge).isAfter(clock.instant());
+    }
+
+    /**
+     * Writes a new snapshot and only then truncates the journal.
+     * <p>
+     * A crash in between is harmless: replaying puts and deletes on top of
+     * a snapshot that already contains them yields the same state.
+     */
+    private void compact(SubscriptionSnapshot state) throws IOException {
+        int folded = journal.entryCount();
+        storage.writeSnapshot(state, snapshotPath, snapshotFormat);
+        journal.truncate();
+        log.info("Compacted {} journal records into a snapshot of {} subscriptions", folded, state.subscriptions().size());
+    }
+
+    /**
+     * Applies journal changes to a snapshot, keeping the original order of subscriptions.
+     * <p>
+     * A replaced subscription keeps its position, and subscriptions without an ID stay where they
+     * are. New subscriptions, and deleted ones that are put back, are appended.
+     */
+    static List<Subscription> apply(List<Subscription> snapshot, List<SubscriptionChange> changes) {
+        if (changes.isEmpty()) return snapshot;
+
+        // Deleted entries are left as null until the end, so positions stay valid
+        List<Subscription> result = new ArrayList<>(snapshot.size() + changes.size());
+        Map<String, Integer> positions = new HashMap<>();
+        for (Subscription s : snapshot) {
+            if (s == null) continue;
+            if (s.getId() != null) {
+                Integer previous = positions.put(s.getId(), result.size());
+                if (previous != null) result.set(previous, null);
+            }
+            result.add(s);
+        }
+
+        for (SubscriptionChange change : changes) {
+            switch (change.type()) {
+                case PUT -> {
+                    if (change.subscription() == null || change.id() == null) continue;
+                    Integer position = positions.get(change.id());
+                    if (position != null) {
+                        result.set(position, change.subscription());
+                    } else {
+                        positions.put(change.id(), result.size());
+                        result.add(change.subscription());
+                    }
+                }
+                case DELETE -> {
+                    Integer position = change.id() != null ? positions.remove(change.id()) : null;
+                    if (position != null) result.set(position, null);
+                }
+            }
+        }
+
+        result.removeIf(Objects::isNull);
+        return result;
+    }
+}
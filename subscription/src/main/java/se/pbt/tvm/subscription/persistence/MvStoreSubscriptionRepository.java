@@ -0,0 +1,259 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * {@link SubscriptionRepository} backed by an embedded H2 MVStore file.
+ * <p>
+ * Subscriptions are stored by ID in binary form. Secondary index maps keyed by
+ * {@code chatId/id} and {@code language/id} turn lookups into ordered range scans, so
+ * reads and writes cost O(log n) instead of a read-modify-write of the whole file.
+ * Changes are kept in memory until {@link #commit()}, which writes all maps in one
+ * atomic store version.
+ */
+public class MvStoreSubscriptionRepository implements SubscriptionRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(MvStoreSubscriptionRepository.class);
+
+    private static final char SEPARATOR = '/';
+
+    private final MVStore store;
+    private final MVMap<String, byte[]> byId;
+    private final MVMap<String, String> byChat;
+    private final MVMap<String, String> byLanguage;
+    private final IdSuffixCounters idSuffixes;
+
+    // Keeps the primary map and its indexes consistent across one mutation
+    private final Object writeLock = new Object();
+
+    private final ChangeListeners listeners = new ChangeListeners();
+
+    /**
+     * Opens or creates the store at the given path.
+     */
+    public MvStoreSubscriptionRepository(String path) {
+        createParentDirectories(path);
+        this.store = new MVStore.Builder()
+                .fileName(path)
+                .compress()
+                .autoCommitDisabled()
+                .open();
+        this.byId = store.openMap("subscriptions");
+        this.byChat = store.openMap("subscriptions_by_chat");
+        this.byLanguage = store.openMap("subscriptions_by_language");
+        this.idSuffixes = new IdSuffixCounters(store.openMap("subscription_id_suffixes"));
+        if (idSuffixes.isEmpty() && !byId.isEmpty()) {
+            // Stores written before the counters existed
+            byId.values().forEach(record -> {
+                Subscription s = decode(record);
+                idSuffixes.register(s.getChatId(), s.getId());
+            });
+        }
+        log.info("Opened subscription store {} with {} subscriptions", path, byId.size());
+    }
+
+    /**
+     * Returns {@code true} if the store holds no subscriptions.
+     */
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    // Reads
+
+    @Override
+    public List<Subscription> findAll() {
+        List<Subscription> result = new ArrayList<>(byId.size());
+        for (byte[] record : byId.values()) {
+            result.add(decode(record));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Subscription> findById(String id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(byId.get(id)).map(MvStoreSubscriptionRepository::decode);
+    }
+
+    @Override
+    public List<Subscription> findByChatId(long chatId) {
+        return findByIndex(byChat, chatKey(chatId));
+    }
+
+    /**
+     * Scans the chat's subscriptions, which are already narrowed down by the chat index.
+     */
+    @Override
+    public List<Subscription> findByChatIdAndKeyword(long chatId, String keyword) {
+        if (keyword == null) return List.of();
+        String normalized = ChatSubscriptions.normalizeKeyword(keyword);
+        return findByChatId(chatId).stream()
+                .filter(s -> s.getFilter() != null && s.getFilter().getKeywords() != null)
+                .filter(s -> s.getFilter().getKeywords().stream()
+                        .anyMatch(k -> k != null && ChatSubscriptions.normalizeKeyword(k).equals(normalized)))
+                .toList();
+    }
+
+    @Override
+    public Set<SubscriptionFingerprint> findFingerprintsByChatId(long chatId) {
+        return ChatSubscriptions.of(findByChatId(chatId)).fingerprints();
+    }
+
+    @Override
+    public String nextFreeId(long chatId, String baseId) {
+        return idSuffixes.nextFreeId(chatId, baseId);
+    }
+
+    @Override
+    public List<Subscription> findByLanguage(String language) {
+        return findByIndex(byLanguage, languageKey(language));
+    }
+
+    // Writes
+
+    @Override
+    public void put(Subscription subscription) {
+        Objects.requireNonNull(subscription, "Subscription must not be null");
+        Objects.requireNonNull(subscription.getId(), "Subscription ID must not be null");
+        synchronized (writeLock) {
+            byte[] previous = byId.put(subscription.getId(), encode(subscription));
+            if (previous != null) {
+                removeFromIndexes(decode(previous));
+            }
+            byChat.put(chatKey(subscription.getChatId()) + subscription.getId(), subscription.getId());
+            byLanguage.put(languageKey(languageOf(subscription)) + subscription.getId(), subscription.getId());
+            idSuffixes.register(subscription.getChatId(), subscription.getId());
+            listeners.fire(SubscriptionChange.put(subscription));
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        if (id == null) return false;
+        synchronized (writeLock) {
+            byte[] previous = byId.remove(id);
+            if (previous == null) return false;
+            removeFromIndexes(decode(previous));
+            listeners.fire(SubscriptionChange.delete(id));
+            return true;
+        }
+    }
+
+    @Override
+    public void addChangeListener(Consumer<SubscriptionChange> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Writes all changes made so far as one new store version.
+     */
+    @Override
+    public CompletableFuture<Void> commit() {
+        try {
+            synchronized (writeLock) {
+                store.commit();
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (writeLock) {
+            store.commit();
+        }
+    }
+
+    /**
+     * Commits pending changes and closes the store file.
+     */
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            if (!store.isClosed()) {
+                store.close();
+            }
+        }
+    }
+
+    // Indexes
+
+    private List<Subscription> findByIndex(MVMap<String, String> index, String prefix) {
+        List<Subscription> result = new ArrayList<>();
+        Iterator<String> keys = index.keyIterator(prefix);
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!key.startsWith(prefix)) break;
+            byte[] record = byId.get(index.get(key));
+            if (record != null) {
+                result.add(decode(record));
+            }
+        }
+        return result;
+    }
+
+    private void removeFromIndexes(Subscription previous) {
+        byChat.remove(chatKey(previous.getChatId()) + previous.getId());
+        byLanguage.remove(languageKey(languageOf(previous)) + previous.getId());
+    }
+
+    /**
+     * Builds an index prefix for a chat that sorts like the signed chat ID,
+     * since group chats have negative IDs.
+     */
+    private static String chatKey(long chatId) {
+        String hex = Long.toHexString(chatId ^ Long.MIN_VALUE);
+        return "0".repeat(16 - hex.length()) + hex + SEPARATOR;
+    }
+
+    private static String languageKey(String language) {
+        return (language != null ? language : "") + SEPARATOR;
+    }
+
+    private static String languageOf(Subscription subscription) {
+        return subscription.getFilter() != null ? subscription.getFilter().getLanguage() : null;
+    }
+
+    // Encoding
+
+    private static byte[] encode(Subscription subscription) {
+        try {
+            return BinarySubscriptionCodec.encodeRecord(subscription);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode subscription " + subscription.getId(), e);
+        }
+    }
+
+    private static Subscription decode(byte[] record) {
+        try {
+            return BinarySubscriptionCodec.decodeRecord(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode subscription record", e);
+        }
+    }
+
+    private static void createParentDirectories(String path) {
+        Path parent = Path.of(path).toAbsolutePath().getParent();
+        try {
+            if (parent != null) Files.createDirectories(parent);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create directory " + parent, e);
+        }
+    }
+}
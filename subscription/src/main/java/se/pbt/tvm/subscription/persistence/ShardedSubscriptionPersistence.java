@@ -0,0 +1,290 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Persists subscriptions in a fixed number of shard files keyed by a hash of the chat ID.
+ * <p>
+ * A flush rewrites only the shards touched by the flushed changes, so the cost of a
+ * mutation is bounded by the size of one shard instead of the whole store. The members of
+ * every shard are kept in memory and updated from the changes, so a touched shard is rebuilt
+ * without asking the repository for its complete state. Each shard file also holds the ID
+ * suffix counters of its chats, which are rewritten with it. Startup loads
+ * all shards in parallel on a bounded pool. An existing single subscription file is split
+ * into shards on first load, and shards are redistributed if the shard count changes.
+ * Redistribution only happens during load, before any mutation, so a crash halfway through
+ * leaves identical copies in the old and new layout; the next load keeps one copy per ID
+ * and finishes the redistribution.
+ */
+public class ShardedSubscriptionPersistence implements SubscriptionPersistence {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedSubscriptionPersistence.class);
+
+    private static final String SHARD_INFIX = ".shard-";
+    private static final String BACKUP_SUFFIX = ".bak";
+    private static final int NO_SHARD = -1;
+
+    private final SubscriptionStorage storage;
+    private final String path;
+    private final SnapshotFormat format;
+    private final int shardCount;
+    private final int loadThreads;
+
+    // What each shard file holds, keyed by ID or by a unique token when the ID is missing, plus
+    // the shard each ID lives in. Members are replaced only after a successful write; counters
+    // only grow and are raised right away. Only used on the flush thread
+    private final List<Map<Object, Subscription>> shards;
+    private final List<IdSuffixCounters> idSuffixes;
+    private final Map<String, Integer> shardById = new HashMap<>();
+
+    public ShardedSubscriptionPersistence(
+            SubscriptionStorage storage,
+            String path,
+            SnapshotFormat format,
+            int shardCount,
+            int loadThreads
+    ) {
+        if (shardCount < 1) throw new IllegalArgumentException("Shard count must be positive");
+        if (loadThreads < 1) throw new IllegalArgumentException("Load threads must be positive");
+        this.storage = storage;
+        this.path = path;
+        this.format = format;
+        this.shardCount = shardCount;
+        this.loadThreads = loadThreads;
+        this.shards = new ArrayList<>(shardCount);
+        this.idSuffixes = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new LinkedHashMap<>());
+            idSuffixes.add(new IdSuffixCounters(new HashMap<>()));
+        }
+    }
+
+    /**
+     * Loads all shard files in parallel and merges them in shard order.
+     */
+    @Override
+    public SubscriptionSnapshot load() {
+        try {
+            List<Path> files = existingShardFiles();
+            Path single = Path.of(path);
+
+            if (files.isEmpty() && Files.isRegularFile(single)) {
+                SubscriptionSnapshot snapshot = storage.readSnapshot(single);
+                writeAll(snapshot);
+                Files.move(single, single.resolveSibling(single.getFileName() + BACKUP_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+                log.info("Split {} subscriptions from {} into {} shards", snapshot.subscriptions().size(), path, shardCount);
+                return snapshot;
+            }
+
+            Map<Path, SubscriptionSnapshot> loaded = loadInParallel(files);
+            List<Subscription> subscriptions = new ArrayList<>();
+            IdSuffixCounters idSuffixes = new IdSuffixCounters(new HashMap<>());
+            Set<String> seen = new HashSet<>();
+            boolean misplaced = false;
+            for (Path file : files) {
+                int index = shardIndex(file);
+                SubscriptionSnapshot shard = loaded.get(file);
+                idSuffixes.raiseAll(shard.idSuffixes());
+                for (Subscription s : shard.subscriptions()) {
+                    if (s == null) continue;
+                    misplaced |= index != shardOf(s);
+                    // A redistribution interrupted by a crash leaves copies in both layouts
+                    if (s.getId() != null && !seen.add(s.getId())) continue;
+                    subscriptions.add(s);
+                }
+            }
+
+            SubscriptionSnapshot snapshot = new SubscriptionSnapshot(subscriptions, idSuffixes.entries());
+            if (misplaced) {
+                log.info("Redistributing {} subscriptions over {} shards", subscriptions.size(), shardCount);
+                writeAll(snapshot);
+                for (Path file : files) {
+                    if (shardIndex(file) >= shardCount) Files.deleteIfExists(file);
+                }
+            } else {
+                remember(snapshot);
+            }
+            return snapshot;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load subscription shards", e);
+        }
+    }
+
+    /**
+     * Rewrites every shard that contains a changed subscription, before or after the change.
+     * <p>
+     * The changes are applied to copies of the touched shards, which replace the known
+     * members only once all of them are written. A failed flush is retried with the same
+     * changes, so they must not be applied twice.
+     */
+    @Override
+    public void persist(List<SubscriptionChange> changes, Supplier<SubscriptionSnapshot> snapshot) {
+        Map<Integer, Map<Object, Subscription>> dirty = new TreeMap<>();
+        // Shard of each changed ID after the changes, NO_SHARD once deleted
+        Map<String, Integer> placed = new HashMap<>();
+        for (SubscriptionChange change : changes) {
+            String id = change.id();
+            Subscription subscription = change.subscription();
+            int previous = id != null ? placed.getOrDefault(id, shardById.getOrDefault(id, NO_SHARD)) : NO_SHARD;
+            int target = subscription != null ? shardOf(subscription) : NO_SHARD;
+
+            if (previous != NO_SHARD && previous != target) {
+                dirtyCopy(dirty, previous).remove(id);
+            }
+            if (subscription != null) {
+                // A subscription that stays in its shard keeps its position there
+                dirtyCopy(dirty, target).put(id != null ? id : new Object(), subscription);
+                idSuffixes.get(target).register(subscription.getChatId(), id);
+            }
+            if (id != null && (previous != NO_SHARD || target != NO_SHARD)) {
+                placed.put(id, target);
+            }
+        }
+        if (dirty.isEmpty()) return;
+
+        try {
+            for (var entry : dirty.entrySet()) {
+                int shard = entry.getKey();
+                SubscriptionSnapshot content = new SubscriptionSnapshot(
+                        List.copyOf(entry.getValue().values()), idSuffixes.get(shard).entries());
+                storage.writeSnapshot(content, shardPath(shard).toString(), format);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write subscription shards", e);
+        }
+
+        dirty.forEach(shards::set);
+        placed.forEach((id, shard) -> {
+            if (shard == NO_SHARD) shardById.remove(id);
+            else shardById.put(id, shard);
+        });
+        log.debug("Rewrote {} of {} shards", dirty.size(), shardCount);
+    }
+
+    // Shards
+
+    /**
+     * Returns the shard a subscription belongs to.
+     */
+    int shardOf(Subscription subscription) {
+        return shardOfChat(subscription.getChatId());
+    }
+
+    private int shardOfChat(long chatId) {
+        return Math.floorMod(Long.hashCode(chatId), shardCount);
+    }
+
+    Path shardPath(int shard) {
+        return Path.of(String.format("%s%s%03d", path, SHARD_INFIX, shard));
+    }
+
+    /**
+     * Loads the given files on a pool of at most {@code loadThreads} threads.
+     */
+    private Map<Path, SubscriptionSnapshot> loadInParallel(List<Path> files) throws IOException {
+        if (files.isEmpty()) return Map.of();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(loadThreads, files.size()), runnable -> {
+            Thread thread = new Thread(runnable, "subscription-shard-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<Path, Future<SubscriptionSnapshot>> futures = new LinkedHashMap<>();
+            for (Path file : files) {
+                futures.put(file, pool.submit(() -> storage.loadSnapshot(file.toString(), format)));
+            }
+
+            Map<Path, SubscriptionSnapshot> result = new HashMap<>();
+            for (var entry : futures.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading subscription shards", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load subscription shard", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes every shard from scratch, including empty ones.
+     */
+    private void writeAll(SubscriptionSnapshot snapshot) throws IOException {
+        remember(snapshot);
+        for (int shard = 0; shard < shardCount; shard++) {
+            SubscriptionSnapshot content = new SubscriptionSnapshot(
+                    List.copyOf(shards.get(shard).values()), idSuffixes.get(shard).entries());
+            storage.writeSnapshot(content, shardPath(shard).toString(), format);
+        }
+    }
+
+    /**
+     * Replaces the known shard members and counters with the given state, keeping snapshot
+     * order within each shard. IDs count towards the counters of their shard, so files written
+     * before the counters existed do not lose the suffixes in use.
+     */
+    private void remember(SubscriptionSnapshot snapshot) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards.set(shard, new LinkedHashMap<>());
+            idSuffixes.set(shard, new IdSuffixCounters(new HashMap<>()));
+        }
+        shardById.clear();
+        for (Subscription s : snapshot.subscriptions()) {
+            int shard = shardOf(s);
+            shards.get(shard).put(s.getId() != null ? s.getId() : new Object(), s);
+            idSuffixes.get(shard).register(s.getChatId(), s.getId());
+            if (s.getId() != null) shardById.put(s.getId(), shard);
+        }
+        snapshot.idSuffixes().forEach((key, suffix) ->
+                idSuffixes.get(shardOfChat(IdSuffixCounters.chatOf(key))).raiseAll(Map.of(key, suffix)));
+    }
+
+    /**
+     * Returns the copy of a shard that the running flush rewrites, copying it on first use.
+     */
+    private Map<Object, Subscription> dirtyCopy(Map<Integer, Map<Object, Subscription>> dirty, int shard) {
+        return dirty.computeIfAbsent(shard, s -> new LinkedHashMap<>(shards.get(s)));
+    }
+
+    private List<Path> existingShardFiles() throws IOException {
+        Path base = Path.of(path).toAbsolutePath();
+        Path directory = base.getParent();
+        if (directory == null || !Files.isDirectory(directory)) return List.of();
+
+        String prefix = base.getFileName() + SHARD_INFIX;
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(f -> f.getFileName().toString().startsWith(prefix))
+                    .filter(f -> shardIndex(f) != null)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Returns the shard index encoded in a file name, or {@code null} for other files
+     * such as temporary files and backups.
+     */
+    private static Integer shardIndex(Path file) {
+        String name = file.getFileName().toString();
+        String suffix = name.substring(name.lastIndexOf(SHARD_INFIX) + SHARD_INFIX.length());
+        if (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)) return null;
+        return Integer.parseInt(suffix);
+    }
+}
@@ -0,0 +1,14 @@
+package se.pbt.tvm.subscription.persistence;
+
+/**
+ * File formats supported for subscription snapshots.
+ * <p>
+ * {@link SubscriptionStorage} detects the format of an existing file on load,
+ * so switching formats only affects how the next snapshot is written.
+ */
+public enum SnapshotFormat {
+    /** Human-readable YAML with a root {@code subscriptions} key. */
+    YAML,
+    /** Compact length-prefixed records, see {@link BinarySubscriptionCodec}. */
+    BINARY
+}
@@ -0,0 +1,43 @@
+package se.pbt.tvm.subscription.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Persists subscriptions by rewriting the whole subscription file on every flush.
+ * <p>
+ * Simple and, in {@link SnapshotFormat#YAML}, human-readable, but write cost grows with
+ * the total number of subscriptions. A file found in another format is converted on load.
+ */
+public class SnapshotSubscriptionPersistence implements SubscriptionPersistence {
+
+    private final SubscriptionStorage storage;
+    private final String path;
+    private final SnapshotFormat format;
+
+    public SnapshotSubscriptionPersistence(SubscriptionStorage storage, String path) {
+        this(storage, path, SnapshotFormat.YAML);
+    }
+
+    public SnapshotSubscriptionPersistence(SubscriptionStorage storage, String path, SnapshotFormat format) {
+        this.storage = storage;
+        this.path = path;
+        this.format = format;
+    }
+
+    @Override
+    public SubscriptionSnapshot load() {
+        return storage.loadSnapshot(path, format);
+    }
+
+    @Override
+    public void persist(List<SubscriptionChange> changes, Supplier<SubscriptionSnapshot> snapshot) {
+        try {
+            storage.writeSnapshot(snapshot.get(), path, format);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write subscriptions to " + path, e);
+        }
+    }
+}
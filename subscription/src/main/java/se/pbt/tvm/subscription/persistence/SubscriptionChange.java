@@ -0,0 +1,33 @@
+package se.pbt.tvm.subscription.persistence;
+
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.util.Objects;
+
+/**
+ * A single mutation applied to the subscription repository.
+ * <p>
+ * Changes are collected by {@link CachedSubscriptionRepository} between flushes
+ * and handed to the configured {@link SubscriptionPersistence}, which may store them
+ * as-is (journal) or ignore them in favour of the full snapshot.
+ *
+ * @param type         whether the subscription was stored or removed
+ * @param id           ID of the affected subscription
+ * @param subscription the stored subscription, or {@code null} for deletions
+ */
+public record SubscriptionChange(Type type, String id, Subscription subscription) {
+
+    public enum Type { PUT, DELETE }
+
+    public SubscriptionChange {
+        Objects.requireNonNull(type, "Change type must not be null");
+    }
+
+    public static SubscriptionChange put(Subscription subscription) {
+        return new SubscriptionChange(Type.PUT, subscription.getId(), subscription);
+    }
+
+    public static SubscriptionChange delete(String id) {
+        return new SubscriptionChange(Type.DELETE, id, null);
+    }
+}
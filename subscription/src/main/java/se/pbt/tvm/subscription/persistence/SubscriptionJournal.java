@@ -0,0 +1,140 @@
+package se.pbt.tvm.subscription.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of subscription changes, stored as one JSON record per line.
+ * <p>
+ * Each flush appends only the changes made since the previous flush, so write cost
+ * depends on the number of changes rather than the total number of subscriptions.
+ * A torn last line left by a crash is cut off on replay, so the next append starts on a
+ * fresh line. Any other unreadable record fails the replay instead of being skipped.
+ */
+public class SubscriptionJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionJournal.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path file;
+    private final Clock clock;
+
+    private int entryCount;
+    private Instant oldestEntryAt;
+
+    public SubscriptionJournal(Path file, Clock clock) {
+        this.file = file;
+        this.clock = clock;
+    }
+
+    /**
+     * Reads all complete records from the journal, in the order they were written.
+     * <p>
+     * Bytes after the last line break are the remains of an append that never completed
+     * and are truncated away. Also resets the entry count and age used for compaction decisions.
+     *
+     * @throws IOException if the journal cannot be read or a complete record cannot be parsed
+     */
+    public List<SubscriptionChange> replay() throws IOException {
+        List<SubscriptionChange> changes = new ArrayList<>();
+        entryCount = 0;
+        oldestEntryAt = null;
+        if (!Files.exists(file)) {
+            return changes;
+        }
+
+        byte[] content = Files.readAllBytes(file);
+        int complete = lastLineBreak(content) + 1;
+        String[] lines = new String(content, 0, complete, StandardCharsets.UTF_8).split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].isBlank()) continue;
+            try {
+                Entry entry = mapper.readValue(lines[i], Entry.class);
+                changes.add(new SubscriptionChange(entry.type(), entry.id(), entry.subscription()));
+                trackAppended(Instant.ofEpochMilli(entry.timestamp()), 1);
+            } catch (IOException e) {
+                throw new IOException("Corrupt journal record at " + file + ":" + (i + 1), e);
+            }
+        }
+
+        if (complete < content.length) {
+            log.warn("Truncating {} bytes of a torn record at the end of {}", content.length - complete, file);
+            DurableFiles.truncateAndSync(file, complete);
+        }
+        return changes;
+    }
+
+    /**
+     * Appends changes to the end of the journal.
+     * <p>
+     * All records of one call are written together and synced with a single fsync.
+     */
+    public void append(List<SubscriptionChange> changes) throws IOException {
+        if (changes.isEmpty()) return;
+
+        Instant now = clock.instant();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (SubscriptionChange change : changes) {
+            Entry entry = new Entry(now.toEpochMilli(), change.type(), change.id(), change.subscription());
+            records.write(mapper.writeValueAsBytes(entry));
+            records.write('\n');
+        }
+
+        DurableFiles.appendAndSync(file, records.toByteArray());
+        trackAppended(now, changes.size());
+    }
+
+    /**
+     * Discards all records, typically after they have been folded into a snapshot.
+     */
+    public void truncate() throws IOException {
+        Files.deleteIfExists(file);
+        entryCount = 0;
+        oldestEntryAt = null;
+    }
+
+    /**
+     * Returns the number of records currently in the journal.
+     */
+    public int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns when the oldest record in the journal was written, or {@code null} if it is empty.
+     */
+    public Instant oldestEntryAt() {
+        return oldestEntryAt;
+    }
+
+    private static int lastLineBreak(byte[] content) {
+        for (int i = content.length - 1; i >= 0; i--) {
+            if (content[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private void trackAppended(Instant writtenAt, int count) {
+        entryCount += count;
+        if (oldestEntryAt == null) {
+            oldestEntryAt = writtenAt;
+        }
+    }
+
+    /**
+     * On-disk representation of a single change.
+     */
+    private record Entry(long timestamp, SubscriptionChange.Type type, String id, Subscription subscription) {}
+}
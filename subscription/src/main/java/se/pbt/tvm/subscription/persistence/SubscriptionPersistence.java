@@ -0,0 +1,30 @@
+package se.pbt.tvm.subscription.persistence;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Defines how {@link CachedSubscriptionRepository} reads its initial state
+ * and makes its changes durable.
+ * <p>
+ * Implementations are called from a single background thread, one flush at a time.
+ */
+public interface SubscriptionPersistence {
+
+    /**
+     * Loads the complete set of subscriptions and the ID suffix counters at startup.
+     */
+    SubscriptionSnapshot load();
+
+    /**
+     * Makes a batch of changes durable.
+     * <p>
+     * Building the complete state copies every subscription, so implementations only ask for it
+     * when they write a full snapshot. The state may already include changes that will be handed
+     * to the next call.
+     *
+     * @param changes  the changes applied since the previous call, in order
+     * @param snapshot supplies the complete state after at least these changes were applied
+     */
+    void persist(List<SubscriptionChange> changes, Supplier<SubscriptionSnapshot> snapshot);
+}
@@ -0,0 +1,98 @@
+package se.pbt.tvm.subscription.persistence;
+
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Point access to stored subscriptions.
+ * <p>
+ * Implementations decide how subscriptions are kept and indexed. Mutations become
+ * visible to reads immediately; {@link #commit()} tells when they are durable.
+ */
+public interface SubscriptionRepository extends AutoCloseable {
+
+    /**
+     * Returns all subscriptions.
+     */
+    List<Subscription> findAll();
+
+    /**
+     * Returns the subscription with the given ID, if present.
+     */
+    Optional<Subscription> findById(String id);
+
+    /**
+     * Returns all subscriptions belonging to the given chat.
+     */
+    List<Subscription> findByChatId(long chatId);
+
+    /**
+     * Returns the subscriptions of a chat that use the given keyword, ignoring case.
+     */
+    List<Subscription> findByChatIdAndKeyword(long chatId, String keyword);
+
+    /**
+     * Returns the fingerprints of all subscriptions belonging to the given chat.
+     */
+    Set<SubscriptionFingerprint> findFingerprintsByChatId(long chatId);
+
+    /**
+     * Returns {@code baseId} if the chat has never used it, otherwise {@code baseId}
+     * followed by the next numeric suffix above the highest one handed out so far.
+     * <p>
+     * Suffixes of deleted subscriptions are not reused. The ID is not reserved; callers
+     * must hold the chat's lock until they have stored it.
+     */
+    String nextFreeId(long chatId, String baseId);
+
+    /**
+     * Returns all subscriptions whose filter uses the given language.
+     */
+    List<Subscription> findByLanguage(String language);
+
+    /**
+     * Adds a subscription, replacing any existing subscription with the same ID.
+     */
+    void put(Subscription subscription);
+
+    /**
+     * Removes the subscription with the given ID.
+     *
+     * @return {@code true} if a subscription was removed
+     */
+    boolean delete(String id);
+
+    /**
+     * Registers a listener that is told about every mutation right after it becomes visible
+     * to reads, in the order the mutations are applied.
+     * <p>
+     * Listeners run on the mutating thread while the repository's write lock is held, so they
+     * must return quickly and must not call back into the repository's write methods.
+     */
+    void addChangeListener(Consumer<SubscriptionChange> listener);
+
+    /**
+     * Returns a future that completes once every change made so far is durable.
+     */
+    CompletableFuture<Void> commit();
+
+    /**
+     * Makes every change made so far durable on the calling thread, without waiting for a
+     * scheduled write or applying a commit timeout. Meant for bulk operations.
+     *
+     * @throws RuntimeException if the changes cannot be persisted
+     */
+    void flush();
+
+    /**
+     * Makes pending changes durable and releases all resources.
+     */
+    @Override
+    void close();
+}
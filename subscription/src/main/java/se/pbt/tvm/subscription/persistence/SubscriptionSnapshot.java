@@ -0,0 +1,31 @@
+package se.pbt.tvm.subscription.persistence;
+
+import se.pbt.tvm.subscription.model.Subscription;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Complete state written by the file backends: the subscriptions plus the counters of the
+ * ID suffixes handed out so far.
+ * <p>
+ * The counters outlive the subscriptions they were raised for, so after a restart a suffix of
+ * a deleted subscription is still not handed out again.
+ *
+ * @param subscriptions all subscriptions, in order
+ * @param idSuffixes    highest suffix handed out per chat and ID prefix, keyed as {@code <chatId>/<prefix>}
+ */
+public record SubscriptionSnapshot(List<Subscription> subscriptions, Map<String, Integer> idSuffixes) {
+
+    public SubscriptionSnapshot {
+        subscriptions = subscriptions != null ? subscriptions : List.of();
+        idSuffixes = idSuffixes != null ? idSuffixes : Map.of();
+    }
+
+    /**
+     * Returns a snapshot of the given subscriptions without any ID suffix counters.
+     */
+    public static SubscriptionSnapshot of(List<Subscription> subscriptions) {
+        return new SubscriptionSnapshot(subscriptions, Map.of());
+    }
+}
@@ -2,26 +2,40 @@ package se.pbt.tvm.subscription.persistence;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import se.pbt.tvm.subscription.model.Subscription;
 import se.pbt.tvm.subscription.model.SubscriptionListWrapper;
 
 import java.io.*;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.List;
 
 /**
- * Handles loading and saving subscriptions to and from a YAML file.
+ * Handles loading and saving subscriptions to and from a snapshot file.
  * Used as simple file-based storage for the user's subscriptions.
+ * <p>
+ * Files are written as YAML unless another {@link SnapshotFormat} is requested.
+ * The format of an existing file is detected from its first bytes, so YAML and
+ * binary snapshots can both be loaded through the same methods.
  */
 @Component
 public class SubscriptionStorage {
 
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionStorage.class);
+
     // TODO: Move to a shared constants file if reused
     private static final String DEFAULT_FILE = "subscriptions.yml";
 
+    private static final String BACKUP_SUFFIX = ".bak";
+
+    // ObjectMapper is thread-safe once configured, so a single instance is shared by all calls
+    private final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+
     /**
      * Loads subscriptions from the default YAML file.
      */
@@ -30,7 +44,7 @@ public class SubscriptionStorage {
     }
 
     /**
-     * Loads subscriptions from a YAML file or classpath resource.
+     * Loads subscriptions from a snapshot file or classpath resource.
      * <p>
      * Returns an empty list if the file is missing or cannot be parsed.
      */
@@ -41,15 +55,90 @@ public class SubscriptionStorage {
                 return Collections.emptyList();
             }
 
-            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-            SubscriptionListWrapper wrapper = mapper.readValue(input, SubscriptionListWrapper.class);
-            return wrapper.getSubscriptions();
+            return readSubscriptions(new BufferedInputStream(input));
         } catch (Exception e) {
             System.err.println("Failed to load subscriptions: " + e.getMessage());
             return Collections.emptyList();
         }
     }
 
+    /**
+     * Loads subscriptions and converts the file to the given format if it is stored in another one.
+     * <p>
+     * The original file is kept next to the converted one with a {@code .bak} suffix.
+     * If conversion fails, the loaded subscriptions are still returned and the file is left as is.
+     * <p>
+     * Unlike {@link #loadSubscriptions(String)}, a file that exists but cannot be read is an error:
+     * callers treat the result as the complete state and would otherwise overwrite the file with nothing.
+     *
+     * @throws UncheckedIOException if the file exists but cannot be read or parsed
+     */
+    public List<Subscription> loadSubscriptions(String path, SnapshotFormat format) {
+        return loadSnapshot(path, format).subscriptions();
+    }
+
+    /**
+     * Loads subscriptions together with the ID suffix counters stored next to them, converting
+     * the file like {@link #loadSubscriptions(String, SnapshotFormat)} does.
+     *
+     * @throws UncheckedIOException if the file exists but cannot be read or parsed
+     */
+    public SubscriptionSnapshot loadSnapshot(String path, SnapshotFormat format) {
+        Path file = Path.of(path);
+        if (!Files.isRegularFile(file)) {
+            return SubscriptionSnapshot.of(loadSubscriptions(path));
+        }
+
+        SubscriptionSnapshot snapshot;
+        SnapshotFormat current;
+        try (BufferedInputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            current = detectFormat(input);
+            snapshot = readSnapshot(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load subscriptions from " + path, e);
+        }
+
+        if (current != format) {
+            try {
+                Files.copy(file, file.resolveSibling(file.getFileName() + BACKUP_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+                writeSnapshot(snapshot, path, format);
+                log.info("Converted {} from {} to {}", path, current, format);
+            } catch (IOException e) {
+                log.warn("Failed to convert {} to {}, keeping it as {}", path, format, current, e);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes the subscriptions of a snapshot file in any format to a YAML file for reading by humans.
+     *
+     * @throws IOException if the source cannot be read or the target cannot be written
+     */
+    public void exportYaml(String sourcePath, String targetPath) throws IOException {
+        writeSnapshot(readSnapshot(Path.of(sourcePath)), targetPath, SnapshotFormat.YAML);
+    }
+
+    /**
+     * Reads a snapshot file in any format.
+     *
+     * @throws IOException if the file is missing or cannot be parsed
+     */
+    public List<Subscription> readSubscriptions(Path file) throws IOException {
+        return readSnapshot(file).subscriptions();
+    }
+
+    /**
+     * Reads a snapshot file in any format, including its ID suffix counters.
+     *
+     * @throws IOException if the file is missing or cannot be parsed
+     */
+    public SubscriptionSnapshot readSnapshot(Path file) throws IOException {
+        try (BufferedInputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            return readSnapshot(input);
+        }
+    }
+
     /**
      * Attempts to open an {@link InputStream} for the given path.
      * <p>
@@ -65,6 +154,36 @@ public class SubscriptionStorage {
         }
     }
 
+    /**
+     * Detects the format of a snapshot without consuming any bytes of the stream.
+     */
+    private static SnapshotFormat detectFormat(BufferedInputStream input) throws IOException {
+        input.mark(BinarySubscriptionCodec.headerLength());
+        byte[] prefix = input.readNBytes(BinarySubscriptionCodec.headerLength());
+        input.reset();
+        return BinarySubscriptionCodec.hasHeader(prefix) ? SnapshotFormat.BINARY : SnapshotFormat.YAML;
+    }
+
+    /**
+     * Reads a snapshot in whichever format the stream contains.
+     */
+    private List<Subscription> readSubscriptions(BufferedInputStream input) throws IOException {
+        return readSnapshot(input).subscriptions();
+    }
+
+    /**
+     * Reads a snapshot with its ID suffix counters in whichever format the stream contains.
+     */
+    private SubscriptionSnapshot readSnapshot(BufferedInputStream input) throws IOException {
+        return switch (detectFormat(input)) {
+            case BINARY -> BinarySubscriptionCodec.decodeSnapshot(input);
+            case YAML -> {
+                SubscriptionListWrapper wrapper = mapper.readValue(input, SubscriptionListWrapper.class);
+                yield new SubscriptionSnapshot(wrapper.getSubscriptions(), wrapper.getIdSuffixes());
+            }
+        };
+    }
+
 
     /**
      * Saves a list of subscriptions to the default YAML file.
@@ -76,23 +195,54 @@ public class SubscriptionStorage {
 
     /**
      * Saves subscriptions to the given file path.
+     * Failures are reported but not propagated.
      */
     public void saveSubscriptions(List<Subscription> subscriptions, String filePath) {
         try {
-            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-            SubscriptionListWrapper wrapper = new SubscriptionListWrapper();
-            wrapper.setSubscriptions(subscriptions);
-
-            File file = new File(filePath);
-            File parent = file.getParentFile();
-            if (parent != null) {
-                parent.mkdirs();
-            }
-
-            Files.writeString(Paths.get(filePath), mapper.writeValueAsString(wrapper));
-
+            writeSubscriptions(subscriptions, filePath);
         } catch (IOException e) {
             System.err.println("Failed to save subscriptions: " + e.getMessage());
         }
     }
+
+    /**
+     * Writes subscriptions as YAML to the given file path, creating parent directories as needed.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSubscriptions(List<Subscription> subscriptions, String filePath) throws IOException {
+        writeSubscriptions(subscriptions, filePath, SnapshotFormat.YAML);
+    }
+
+    /**
+     * Writes subscriptions in the given format, creating parent directories as needed.
+     * <p>
+     * The file is replaced atomically, so a crash during the write leaves the previous
+     * version intact instead of a truncated file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSubscriptions(List<Subscription> subscriptions, String filePath, SnapshotFormat format) throws IOException {
+        writeSnapshot(SubscriptionSnapshot.of(subscriptions), filePath, format);
+    }
+
+    /**
+     * Writes subscriptions and their ID suffix counters in the given format, replacing the file
+     * atomically like {@link #writeSubscriptions(List, String, SnapshotFormat)}.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(SubscriptionSnapshot snapshot, String filePath, SnapshotFormat format) throws IOException {
+        byte[] content = switch (format) {
+            case BINARY -> BinarySubscriptionCodec.encode(snapshot);
+            case YAML -> {
+                SubscriptionListWrapper wrapper = new SubscriptionListWrapper();
+                wrapper.setSubscriptions(snapshot.subscriptions());
+                wrapper.setIdSuffixes(snapshot.idSuffixes());
+                yield mapper.writeValueAsBytes(wrapper);
+            }
+        };
+
+        DurableFiles.writeAtomically(Path.of(filePath), content);
+    }
 }
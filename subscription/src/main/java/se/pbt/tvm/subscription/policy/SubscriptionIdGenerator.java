@@ -3,30 +3,28 @@ package se.pbt.tvm.subscription.policy;
 import org.springframework.stereotype.Component;
 import se.pbt.tvm.subscription.model.Subscription;
 
-import java.util.*;
-import java.util.stream.Collectors;
-
 /**
  * Generates unique subscription IDs within the same chat.
  * Pattern: sub-{chatId}-{slug-of-first-keyword}, appending -N on collision.
+ * <p>
+ * The service only asks for the {@link #baseId}; the repository resolves collisions from
+ * its per-chat suffix counters, so the chat's subscriptions are not scanned on every save.
  */
 @Component
 public class SubscriptionIdGenerator {
 
     /**
-     * Builds a unique ID for a subscription based on chatId and first keyword.
+     * Builds the ID a subscription gets when nothing in its chat collides with it,
+     * i.e. sub-{chatId}-{slug-of-first-keyword} without a suffix.
      *
      * @throws IllegalArgumentException if slug cannot be produced.
      */
-    public String generateUniqueId(Subscription candidate, List<Subscription> existing) {
+    public String baseId(Subscription candidate) {
         String slug = slug(firstKeyword(candidate));
-        if (slug.isBlank()) {
+        if (slug.isEmpty()) {
             throw new IllegalArgumentException("Keyword does not produce a valid slug");
         }
-
-        String base = "sub-" + candidate.getChatId() + "-" + slug;
-        Set<String> taken = collectTakenIds(existing, candidate.getChatId());
-        return nextFreeId(base, taken);
+        return "sub-" + candidate.getChatId() + "-" + slug;
     }
 
     /**
@@ -42,42 +40,36 @@ public class SubscriptionIdGenerator {
     }
 
     /**
-     * Converts text to a lowercase slug safe for IDs.
-     * Replaces whitespace with dashes, removes invalid characters.
-     */
-    private String slug(String text) {
-        String t = (text == null) ? "" : text;
-        return t.toLowerCase(Locale.ROOT)
-                .replaceAll("[/._+]+", "-")
-                .replaceAll("[^a-z0-9\\s-]", "")
-                .replaceAll("\\s+", "-")
-                .replaceAll("-{2,}", "-")
-                .replaceAll("^-+|-+$", "");
-    }
-
-    /**
-     * Collects all non-null subscription IDs taken within the given chat.
+     * Converts text to a lowercase slug safe for IDs in a single pass.
+     * Runs of whitespace and {@code / . _ + -} become one dash, other characters
+     * outside a-z and 0-9 are dropped, and no dash is left at either end.
      */
-    private Set<String> collectTakenIds(List<Subscription> existing, long chatId) {
-        return existing.stream()
-                .filter(s -> s.getChatId() == chatId)
-                .map(Subscription::getId)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+    static String slug(String text) {
+        if (text == null) return "";
+        StringBuilder out = new StringBuilder(text.length());
+        boolean pendingDash = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (pendingDash && !out.isEmpty()) {
+                    out.append('-');
+                }
+                pendingDash = false;
+                out.append(c);
+            } else if (isSeparator(c)) {
+                pendingDash = true;
+            }
+        }
+        return out.toString();
     }
 
     /**
-     * Returns the base ID if free, otherwise appends the next available numeric suffix.
+     * Returns whether a character separates words in a slug.
      */
-    private String nextFreeId(String base, Set<String> taken) {
-        if (!taken.contains(base)) {
-            return base;
-        }
-        int i = 2;
-        String id;
-        do {
-            id = base + "-" + i++;
-        } while (taken.contains(id));
-        return id;
+    private static boolean isSeparator(char c) {
+        return switch (c) {
+            case '/', '.', '_', '+', '-', ' ', '\t', '\n', '\u000B', '\f', '\r' -> true;
+            default -> false;
+        };
     }
 }
@@ -1,48 +1,44 @@
 package se.pbt.tvm.subscription.policy;
 
 import org.springframework.stereotype.Component;
+import se.pbt.tvm.subscription.model.KeywordDictionary;
+import se.pbt.tvm.subscription.model.KeywordPool;
 import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
 import se.pbt.tvm.core.subscription.SchedulePreset;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Encapsulates normalization and equality policies
  * for subscription inputs (keywords, language, schedule).
+ * <p>
+ * Keywords are normalized the same way as by {@link KeywordDictionary#normalize} and
+ * returned as their {@link KeywordPool pooled} instances.
  */
 @Component
 public class SubscriptionSanitizer {
 
     /**
      * Normalizes a list of keywords by trimming, lowercasing,
-     * removing blanks, nulls, and duplicates. Returns an unmodifiable list.
+     * removing blanks, nulls, and duplicates. Returns an unmodifiable list
+     * of canonical instances.
      */
     public List<String> normalizeKeywords(List<String> incoming) {
         if (incoming == null) return List.of();
-        List<String> out = incoming.stream()
+        return incoming.stream()
+                .map(KeywordPool::canonical)
                 .filter(Objects::nonNull)
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(this::normalizeString)
                 .distinct()
                 .toList();
-        return List.copyOf(out);
     }
 
     /**
-     * Checks if two subscriptions contain the same keywords, ignoring case and order.
+     * Checks if two subscriptions contain the same keywords, ignoring case, surrounding
+     * whitespace and order.
      */
     public boolean containsSameKeywords(Subscription a, Subscription b) {
-        Set<String> as = getKeywords(a).stream()
-                .map(this::normalizeString)
-                .collect(Collectors.toSet());
-
-        Set<String> bs = getKeywords(b).stream()
-                .map(this::normalizeString)
-                .collect(Collectors.toSet());
-
-        return as.equals(bs);
+        return SubscriptionFingerprint.of(a).keywords().equals(SubscriptionFingerprint.of(b).keywords());
     }
 
     /**
@@ -64,15 +60,6 @@ public class SubscriptionSanitizer {
     }
 
 
-    /**
-     * Extracts keywords from a subscription, or empty list if missing.
-     */
-    private List<String> getKeywords(Subscription s) {
-        return (s != null && s.getFilter() != null && s.getFilter().getKeywords() != null)
-                ? s.getFilter().getKeywords()
-                : List.of();
-    }
-
     /**
      * Extracts and normalizes language from a subscription (lowercased), or null if missing.
      */
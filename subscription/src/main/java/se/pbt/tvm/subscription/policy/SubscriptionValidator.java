@@ -1,11 +1,12 @@
 package se.pbt.tvm.subscription.policy;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import se.pbt.tvm.subscription.model.CustomSchedule;
 import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * Validates that a subscription is complete and unique before it is saved.
@@ -14,32 +15,64 @@ import java.util.Optional;
  * subscription already exists for the same chat.
  */
 @Component
-@RequiredArgsConstructor
 public class SubscriptionValidator {
 
-    private final SubscriptionSanitizer sanitizer;
+    private static final String DUPLICATE_ERROR =
+            "A subscription with the same keywords and language already exists for this chat.";
 
     /**
      * Performs structural and duplicate validation for a subscription before it is saved.
+     * <p>
+     * Duplicates are detected with a single lookup in the fingerprints of the chat's existing subscriptions.
      */
-    public Optional<String> validate(Subscription candidate, List<Subscription> existing) {
+    public Optional<String> validateAgainstFingerprints(Subscription candidate, Set<SubscriptionFingerprint> existing) {
         String structuralError = validateStructure(candidate);
         if (structuralError != null) {
             return Optional.of(structuralError);
         }
 
-        List<Subscription> safeExisting = Optional.ofNullable(existing).orElse(List.of());
-        boolean duplicate = safeExisting.stream().anyMatch(existingSub ->
-                existingSub.getChatId() == candidate.getChatId()
-                        && sanitizer.usesSameLanguage(existingSub, candidate)
-                        && sanitizer.containsSameKeywords(existingSub, candidate)
-        );
-
+        boolean duplicate = existing != null && existing.contains(SubscriptionFingerprint.of(candidate));
         return duplicate
-                ? Optional.of("A subscription with the same keywords and language already exists for this chat.")
+                ? Optional.of(DUPLICATE_ERROR)
                 : Optional.empty();
     }
 
+    /**
+     * Validates a batch of candidates in one pass.
+     * <p>
+     * Each candidate is checked structurally and for duplicates, both against the chat's
+     * stored subscriptions and against earlier candidates of the same chat in the batch.
+     * The stored fingerprints are requested once per chat in the batch.
+     *
+     * @param existingByChat returns the fingerprints of a chat's stored subscriptions
+     * @return one entry per candidate, in order: empty if valid, otherwise the validation error
+     */
+    public List<Optional<String>> validateAll(List<Subscription> candidates,
+                                              Function<Long, Set<SubscriptionFingerprint>> existingByChat) {
+        List<Optional<String>> results = new ArrayList<>(candidates.size());
+        Map<Long, Set<SubscriptionFingerprint>> stored = new HashMap<>();
+        Map<Long, Set<SubscriptionFingerprint>> accepted = new HashMap<>();
+
+        for (Subscription candidate : candidates) {
+            String structuralError = validateStructure(candidate);
+            if (structuralError != null) {
+                results.add(Optional.of(structuralError));
+                continue;
+            }
+
+            long chatId = candidate.getChatId();
+            SubscriptionFingerprint fingerprint = SubscriptionFingerprint.of(candidate);
+            Set<SubscriptionFingerprint> existing = stored.computeIfAbsent(chatId, id -> {
+                Set<SubscriptionFingerprint> fingerprints = existingByChat.apply(id);
+                return fingerprints != null ? fingerprints : Set.of();
+            });
+            boolean duplicate = existing.contains(fingerprint)
+                    || !accepted.computeIfAbsent(chatId, id -> new HashSet<>()).add(fingerprint);
+            results.add(duplicate ? Optional.of(DUPLICATE_ERROR) : Optional.empty());
+        }
+        return results;
+    }
+
     /**
      * Checks that the subscription contains all mandatory fields before additional validation.
      */
@@ -53,6 +86,13 @@ public class SubscriptionValidator {
         if (candidate.getFilter().getLanguage() == null || candidate.getFilter().getLanguage().isBlank()) {
             return "Language must be specified.";
         }
+        if (candidate.getCustomSchedule() != null) {
+            try {
+                CustomSchedule.parse(candidate.getCustomSchedule());
+            } catch (IllegalArgumentException e) {
+                return "Invalid custom schedule: " + e.getMessage();
+            }
+        }
         return null;
     }
 }
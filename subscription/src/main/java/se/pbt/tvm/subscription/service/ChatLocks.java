@@ -0,0 +1,50 @@
+package se.pbt.tvm.subscription.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks keyed by chat ID.
+ * <p>
+ * Commands for the same chat always map to the same lock and run one at a time, while
+ * commands for different chats usually map to different stripes and run in parallel.
+ * A fixed number of stripes keeps memory bounded no matter how many chats exist.
+ */
+final class ChatLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Creates the given number of stripes, rounded up to a power of two.
+     */
+    ChatLocks(int stripes) {
+        if (stripes < 1) throw new IllegalArgumentException("Stripes must be positive");
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) size <<= 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Runs the action while holding the lock of the given chat.
+     */
+    <T> T withLock(long chatId, Supplier<T> action) {
+        ReentrantLock lock = lockFor(chatId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ReentrantLock lockFor(long chatId) {
+        // Spread the bits so sequential chat IDs do not cluster on neighbouring stripes
+        long h = chatId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h ^ (h >>> 32)) & mask];
+    }
+}
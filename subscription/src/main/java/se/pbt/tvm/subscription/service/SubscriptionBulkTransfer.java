@@ -0,0 +1,215 @@
+package se.pbt.tvm.subscription.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Streams subscriptions in and out of the repository for migrations between environments.
+ * <p>
+ * Uses the same YAML layout as the subscription file (a root {@code subscriptions} list),
+ * but reads and writes it one record at a time with Jackson's streaming parser and
+ * generator, so the whole list is never materialized. Imports are validated and stored
+ * in batches, which keeps memory bounded for files with millions of subscriptions. The
+ * repository is flushed every {@value #COMMIT_INTERVAL} imported subscriptions and once at
+ * the end; in between, its regular background flushes keep writing.
+ */
+@Service
+@RequiredArgsConstructor
+public class SubscriptionBulkTransfer {
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionBulkTransfer.class);
+
+    private static final String ROOT_FIELD = "subscriptions";
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int COMMIT_INTERVAL = 100_000;
+
+    private final SubscriptionRepository repository;
+    private final SubscriptionService service;
+
+    private final ObjectMapper mapper = new ObjectMapper(new YAMLFactory())
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    /**
+     * Writes every subscription in the repository to the given stream.
+     * The stream is flushed but not closed.
+     *
+     * @return number of subscriptions written
+     */
+    public int exportTo(OutputStream output) throws IOException {
+        int written = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(ROOT_FIELD);
+            for (Subscription subscription : repository.findAll()) {
+                mapper.writeValue(generator, subscription);
+                written++;
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        log.info("Exported {} subscriptions", written);
+        return written;
+    }
+
+    /**
+     * Imports subscriptions from the given stream using the default batch size.
+     */
+    public ImportResult importFrom(InputStream input) throws IOException {
+        return importFrom(input, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Imports subscriptions from the given stream, validating and committing them in batches.
+     * <p>
+     * Subscriptions keep their IDs unless those are already taken. Subscriptions that fail
+     * validation, for example duplicates of existing ones, are skipped and reported.
+     * The stream is not closed.
+     *
+     * @throws ImportFailedException if the imported subscriptions cannot be made durable
+     * @throws IOException           if the stream cannot be read or is not a subscription list
+     */
+    public ImportResult importFrom(InputStream input, int batchSize) throws IOException {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive");
+
+        ImportResult.Builder result = new ImportResult.Builder();
+        try (JsonParser parser = mapper.getFactory().createParser(input)) {
+            if (!moveToSubscriptionList(parser)) {
+                return result.build();
+            }
+
+            List<Subscription> batch = new ArrayList<>(batchSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batch.add(mapper.readValue(parser, Subscription.class));
+                if (batch.size() == batchSize) {
+                    storeBatch(batch, result);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                storeBatch(batch, result);
+            }
+        }
+        commit(result);
+
+        ImportResult done = result.build();
+        log.info("Imported {} subscriptions, skipped {}", done.imported(), done.skipped());
+        return done;
+    }
+
+    /**
+     * Advances the parser to the first element of the root subscription list.
+     *
+     * @return {@code false} if the document is empty or the list is missing or null
+     */
+    private static boolean moveToSubscriptionList(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (ROOT_FIELD.equals(field)) {
+                if (value == JsonToken.START_ARRAY) return true;
+                if (value == JsonToken.VALUE_NULL) return false;
+                throw new IOException("Expected a list of subscriptions under '" + ROOT_FIELD + "'");
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private void storeBatch(List<Subscription> batch, ImportResult.Builder result) throws IOException {
+        List<Optional<String>> errors = service.storeBatch(batch, true);
+
+        for (int i = 0; i < batch.size(); i++) {
+            Optional<String> error = errors.get(i);
+            if (error.isPresent()) {
+                Subscription s = batch.get(i);
+                result.skip((s != null ? s.getId() : null) + ": " + error.get());
+            } else {
+                result.imported++;
+            }
+        }
+        if (result.imported - result.committed >= COMMIT_INTERVAL) {
+            commit(result);
+        }
+    }
+
+    /**
+     * Flushes the repository on the calling thread, so a slow write is waited for instead of
+     * timing out, and records how many imported subscriptions are durable.
+     */
+    private void commit(ImportResult.Builder result) throws IOException {
+        try {
+            repository.flush();
+        } catch (RuntimeException e) {
+            throw new ImportFailedException(result.committed, e);
+        }
+        result.committed = result.imported;
+    }
+
+    /**
+     * Thrown when imported subscriptions cannot be made durable.
+     * Subscriptions committed by earlier flushes stay stored.
+     */
+    public static class ImportFailedException extends IOException {
+
+        private final int committed;
+
+        private ImportFailedException(int committed, Throwable cause) {
+            super("Failed to commit imported subscriptions after " + committed + " were committed", cause);
+            this.committed = committed;
+        }
+
+        /**
+         * Returns how many imported subscriptions were committed before the failure.
+         */
+        public int committed() {
+            return committed;
+        }
+    }
+
+    /**
+     * Outcome of an import.
+     *
+     * @param errors reasons for skipped subscriptions, limited to the first 100
+     */
+    public record ImportResult(int imported, int skipped, List<String> errors) {
+
+        private static final class Builder {
+            private int imported;
+            private int committed;
+            private int skipped;
+            private final List<String> errors = new ArrayList<>();
+
+            private void skip(String error) {
+                skipped++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(error);
+                }
+            }
+
+            private ImportResult build() {
+                return new ImportResult(imported, skipped, List.copyOf(errors));
+            }
+        }
+    }
+}
@@ -1,76 +1,175 @@
 package se.pbt.tvm.subscription.service;
 
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import se.pbt.tvm.subscription.format.SubscriptionFormatter;
 import se.pbt.tvm.subscription.model.Subscription;
-import se.pbt.tvm.subscription.persistence.SubscriptionStorage;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
 import se.pbt.tvm.subscription.policy.SubscriptionIdGenerator;
 import se.pbt.tvm.subscription.policy.SubscriptionValidator;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletionException;
 
 /**
  * Coordinates core subscription operations such as creation,
  * validation, listing, and removal.
  * <p>
  * This service ensures that subscriptions are structurally valid,
- * uniquely identified, and safely persisted through the storage layer.
+ * uniquely identified, and kept in the {@link SubscriptionRepository}. Changes are
+ * acknowledged once the repository has committed them to storage.
+ * <p>
+ * Read-validate-write sequences run under a per-chat lock, so commands from the same
+ * chat are serialized and never lose each other's updates, while different chats
+ * proceed in parallel. Waiting for the commit happens outside the lock.
+ * <p>
+ * A change that is not committed in time, or whose flush fails, is not rolled back: it stays
+ * in the repository, which keeps retrying the write. The operation is then reported as
+ * successful but not yet durable, so a retry by the user is not rejected as a duplicate.
  */
 @Service
 @RequiredArgsConstructor
 public class SubscriptionService {
 
-    private static final String STORAGE_PATH = "subscriptions.yml";
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionService.class);
+
+    private static final int LOCK_STRIPES = 64;
+    static final String NOT_YET_DURABLE = ". It is not saved to disk yet and will be written shortly.";
 
-    private final SubscriptionStorage storage;
+    private final SubscriptionRepository repository;
     private final SubscriptionIdGenerator idGenerator;
     private final SubscriptionValidator validator;
     private final SubscriptionFormatter formatter;
 
+    private final ChatLocks chatLocks = new ChatLocks(LOCK_STRIPES);
+
     /**
      * Validates and saves a new subscription.
      * <p>
      * Ensures the subscription passes all validation checks,
-     * assigns a unique ID, and persists it to storage.
+     * assigns a unique ID, hands it to the repository and waits for it to be committed.
      */
-    public SaveResult save(Subscription subscription, String storagePath) {
+    public SaveResult save(Subscription subscription) {
         if (subscription == null) {
             return SaveResult.fail("Subscription cannot be null.");
         }
 
         try {
-            List<Subscription> existing = Optional.ofNullable(storage.loadSubscriptions(storagePath))
-                    .orElseGet(ArrayList::new);
+            Optional<String> error = chatLocks.withLock(subscription.getChatId(), () -> {
+                var validationError = validator.validateAgainstFingerprints(
+                        subscription, repository.findFingerprintsByChatId(subscription.getChatId()));
+                if (validationError.isPresent()) {
+                    return validationError;
+                }
 
-            var error = validator.validate(subscription, existing);
+                subscription.setId(repository.nextFreeId(subscription.getChatId(), idGenerator.baseId(subscription)));
+                repository.put(subscription);
+                return Optional.empty();
+            });
             if (error.isPresent()) {
                 return SaveResult.fail(error.get());
             }
+            String durability = awaitCommit() ? "" : NOT_YET_DURABLE;
 
-            subscription.setId(idGenerator.generateUniqueId(subscription, existing));
-            existing.add(subscription);
-            storage.saveSubscriptions(existing, storagePath);
-
-            return SaveResult.ok("Subscription created with id: " + subscription.getId());
+            return SaveResult.ok("Subscription created with id: " + subscription.getId() + durability);
         } catch (Exception e) {
             return SaveResult.fail("Failed to save subscription: " + e.getMessage());
         }
     }
 
+    /**
+     * Validates and saves several subscriptions at once, for example from a multi-line command.
+     * <p>
+     * Candidates are validated in one pass per chat, against the stored subscriptions and
+     * against each other, and everything accepted is committed together.
+     *
+     * @return one result per candidate, in order
+     */
+    public List<SaveResult> saveAll(List<Subscription> subscriptions) {
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return List.of();
+        }
+
+        List<Optional<String>> errors;
+        try {
+            errors = storeBatch(subscriptions, false);
+        } catch (Exception e) {
+            return Collections.nCopies(subscriptions.size(),
+                    SaveResult.fail("Failed to save subscription: " + e.getMessage()));
+        }
+        String durability = errors.stream().anyMatch(Optional::isEmpty) && !awaitCommit() ? NOT_YET_DURABLE : "";
+
+        List<SaveResult> results = new ArrayList<>(subscriptions.size());
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Optional<String> error = errors.get(i);
+            results.add(error.isPresent()
+                    ? SaveResult.fail(error.get())
+                    : SaveResult.ok("Subscription created with id: " + subscriptions.get(i).getId() + durability));
+        }
+        return results;
+    }
+
+    /**
+     * Validates and stores a batch of subscriptions without waiting for a commit.
+     * <p>
+     * Candidates are grouped by chat, so each chat is locked once per batch and validated
+     * with {@link SubscriptionValidator#validateAll}, which also catches duplicates within
+     * the batch. With {@code keepIds}, a candidate keeps its ID unless that ID is already taken.
+     *
+     * @return one entry per candidate, in order: empty if stored, otherwise the reason it was rejected
+     */
+    List<Optional<String>> storeBatch(List<Subscription> candidates, boolean keepIds) {
+        List<Optional<String>> results = new ArrayList<>(Collections.nCopies(candidates.size(), Optional.empty()));
+
+        Map<Long, List<Integer>> positionsByChat = new LinkedHashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Subscription candidate = candidates.get(i);
+            if (candidate == null) {
+                results.set(i, Optional.of("Subscription cannot be null."));
+                continue;
+            }
+            positionsByChat.computeIfAbsent(candidate.getChatId(), chatId -> new ArrayList<>()).add(i);
+        }
+
+        positionsByChat.forEach((chatId, positions) -> chatLocks.withLock(chatId, () -> {
+            List<Subscription> chatCandidates = new ArrayList<>(positions.size());
+            for (int position : positions) {
+                chatCandidates.add(candidates.get(position));
+            }
+            List<Optional<String>> errors = validator.validateAll(chatCandidates, repository::findFingerprintsByChatId);
+
+            for (int i = 0; i < positions.size(); i++) {
+                int position = positions.get(i);
+                if (errors.get(i).isPresent()) {
+                    results.set(position, errors.get(i));
+                    continue;
+                }
+                Subscription candidate = chatCandidates.get(i);
+                try {
+                    boolean idFree = keepIds && candidate.getId() != null
+                            && repository.findById(candidate.getId()).isEmpty();
+                    if (!idFree) {
+                        candidate.setId(repository.nextFreeId(chatId, idGenerator.baseId(candidate)));
+                    }
+                    repository.put(candidate);
+                } catch (RuntimeException e) {
+                    results.set(position, Optional.of(String.valueOf(e.getMessage())));
+                }
+            }
+            return null;
+        }));
+        return results;
+    }
+
     /**
      * Returns all subscriptions belonging to a given chat,
      * formatted for display or user output.
      */
     public List<String> listByChatId(long chatId) {
         try {
-            List<Subscription> all = Optional.ofNullable(storage.loadSubscriptions(STORAGE_PATH))
-                    .orElseGet(List::of);
-
-            return all.stream()
-                    .filter(s -> s.getChatId() == chatId)
+            return repository.findByChatId(chatId).stream()
                     .map(formatter::format)
                     .toList();
         } catch (Exception e) {
@@ -79,9 +178,11 @@ public class SubscriptionService {
     }
 
     /**
-     * Removes a subscription from storage by matching ID or keyword within a chat.
+     * Removes a subscription by matching ID or keyword within a chat.
      * <p>
-     * Performs a case-insensitive comparison and updates storage if a match is found.
+     * Performs a case-insensitive comparison and removes every match from the repository.
+     * Keyword matches come from the repository's keyword index, so only the chat's own
+     * subscriptions are examined.
      */
     public boolean removeByIdOrKeyword(long chatId, String arg) {
         if (arg == null || arg.isBlank()) {
@@ -89,36 +190,52 @@ public class SubscriptionService {
         }
 
         try {
-            List<Subscription> all = Optional.ofNullable(storage.loadSubscriptions(STORAGE_PATH))
-                    .orElseGet(ArrayList::new);
-
-            String target = arg.trim().toLowerCase();
-            List<Subscription> remaining = new ArrayList<>();
-            boolean removed = false;
-
-            for (Subscription s : all) {
-                boolean matchesChat = s.getChatId() == chatId;
-                boolean matchesId = s.getId() != null && s.getId().equalsIgnoreCase(target);
-                boolean matchesKeyword = s.getFilter() != null &&
-                        s.getFilter().getKeywords().stream().anyMatch(k -> k.equalsIgnoreCase(target));
-
-                if (matchesChat && (matchesId || matchesKeyword)) {
-                    removed = true;
-                    continue;
+            String target = arg.trim();
+            boolean removed = chatLocks.withLock(chatId, () -> {
+                Set<String> matchingIds = new LinkedHashSet<>();
+
+                for (Subscription s : repository.findByChatId(chatId)) {
+                    if (s.getId() != null && s.getId().equalsIgnoreCase(target)) {
+                        matchingIds.add(s.getId());
+                    }
+                }
+                for (Subscription s : repository.findByChatIdAndKeyword(chatId, target)) {
+                    matchingIds.add(s.getId());
                 }
-                remaining.add(s);
-            }
 
+                boolean any = false;
+                for (String id : matchingIds) {
+                    any |= repository.delete(id);
+                }
+                return any;
+            });
             if (removed) {
-                storage.saveSubscriptions(remaining, STORAGE_PATH);
+                awaitCommit();
             }
-
             return removed;
         } catch (Exception e) {
             throw new RuntimeException("Failed to remove subscription: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Waits for the repository to commit the changes made so far.
+     *
+     * @return {@code false} if the commit failed or timed out; the changes stay in the repository
+     * and are written by a later flush
+     */
+    private boolean awaitCommit() {
+        try {
+            repository.commit().join();
+            return true;
+        } catch (RuntimeException e) {
+            // join() wraps the failure of the future, e.g. a commit timeout
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("Subscription changes are not durable yet", cause);
+            return false;
+        }
+    }
+
     /**
      * Represents the result of a save operation.
      */
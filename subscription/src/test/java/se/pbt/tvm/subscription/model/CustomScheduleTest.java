@@ -0,0 +1,51 @@
+package se.pbt.tvm.subscription.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CustomSchedule")
+class CustomScheduleTest {
+
+    private static final ZoneId STOCKHOLM = ZoneId.of("Europe/Stockholm");
+
+    @Test
+    @DisplayName("Evaluates cron expressions in the given zone")
+    void next_withCron_usesZone() {
+        var schedule = CustomSchedule.parse(" 0 30 7 * * MON-FRI ");
+
+        // Friday 2026-01-16 08:00 in Stockholm -> Monday 07:30
+        var next = schedule.next(Instant.parse("2026-01-16T07:00:00Z"), STOCKHOLM);
+
+        assertEquals(Instant.parse("2026-01-19T06:30:00Z"), next);
+        assertEquals("0 30 7 * * MON-FRI", schedule.expression());
+    }
+
+    @Test
+    @DisplayName("Adds intervals to the previous time")
+    void next_withInterval_addsInterval() {
+        var schedule = CustomSchedule.parse("PT4H");
+
+        assertEquals(Instant.parse("2026-01-16T11:00:00Z"), schedule.next(Instant.parse("2026-01-16T07:00:00Z"), STOCKHOLM));
+    }
+
+    @Test
+    @DisplayName("Rejects invalid expressions and too short intervals")
+    void parse_withInvalidExpression_throws() {
+        assertThrows(IllegalArgumentException.class, () -> CustomSchedule.parse("every hour"));
+        assertThrows(IllegalArgumentException.class, () -> CustomSchedule.parse("P1X"));
+        assertThrows(IllegalArgumentException.class, () -> CustomSchedule.parse("PT1M"));
+        assertThrows(IllegalArgumentException.class, () -> CustomSchedule.parse(" "));
+    }
+
+    @Test
+    @DisplayName("Compares by expression")
+    void equals_comparesExpression() {
+        assertEquals(CustomSchedule.parse("PT1H"), CustomSchedule.parse(" PT1H"));
+        assertNotEquals(CustomSchedule.parse("PT1H"), CustomSchedule.parse("PT2H"));
+    }
+}
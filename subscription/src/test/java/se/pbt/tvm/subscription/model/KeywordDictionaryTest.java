@@ -0,0 +1,119 @@
+package se.pbt.tvm.subscription.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("KeywordDictionary")
+class KeywordDictionaryTest {
+
+    private final KeywordDictionary dictionary = new KeywordDictionary();
+
+    @Nested
+    @DisplayName("Interning")
+    class Interning {
+
+        @Test
+        @DisplayName("Assigns one ID per normalized keyword")
+        void intern_withDifferentCaseAndWhitespace_returnsSameId() {
+            int id = dictionary.intern("Tesla");
+
+            assertEquals(id, dictionary.intern(" TESLA "));
+            assertNotEquals(id, dictionary.intern("Volvo"));
+            assertEquals("tesla", dictionary.keyword(id));
+            assertEquals(2, dictionary.size());
+        }
+
+        @Test
+        @DisplayName("Returns the shared canonical instance")
+        void canonical_returnsSameInstance() {
+            String a = dictionary.canonical("AI");
+            String b = dictionary.canonical(new String(" ai"));
+
+            assertSame(a, b);
+        }
+
+        @Test
+        @DisplayName("Rejects null and blank keywords")
+        void intern_withBlankKeyword_returnsNoId() {
+            assertEquals(KeywordDictionary.NO_ID, dictionary.intern(null));
+            assertEquals(KeywordDictionary.NO_ID, dictionary.intern("   "));
+            assertNull(dictionary.canonical(" "));
+            assertEquals(0, dictionary.size());
+        }
+
+        @Test
+        @DisplayName("Looks up without adding unknown keywords")
+        void idOf_withUnknownKeyword_doesNotAssign() {
+            assertEquals(KeywordDictionary.NO_ID, dictionary.idOf("crypto"));
+            assertEquals(0, dictionary.size());
+            assertThrows(IllegalArgumentException.class, () -> dictionary.keyword(0));
+        }
+
+        @Test
+        @DisplayName("Returns distinct sorted IDs for a keyword list")
+        void internAll_returnsDistinctSortedIds() {
+            int volvo = dictionary.intern("volvo");
+            int ai = dictionary.intern("ai");
+
+            var ids = dictionary.internAll(Arrays.asList("AI", null, "Volvo", "ai ", ""));
+
+            assertArrayEquals(new int[]{volvo, ai}, ids);
+        }
+
+        @Test
+        @DisplayName("Grows beyond its initial capacity")
+        void intern_manyKeywords_keepsAllIds() {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, dictionary.intern("keyword-" + i));
+            }
+            assertEquals("keyword-999", dictionary.keyword(999));
+        }
+
+        @Test
+        @DisplayName("Assigns each keyword exactly one ID under concurrent use")
+        void intern_concurrently_assignsUniqueIds() {
+            Set<Integer> ids = ConcurrentHashMap.newKeySet();
+            IntStream.range(0, 8_000).parallel()
+                    .forEach(i -> ids.add(dictionary.intern("k" + (i % 500))));
+
+            assertEquals(500, ids.size());
+            assertEquals(500, dictionary.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Subscription filters")
+    class Filters {
+
+        @Test
+        @DisplayName("Copies the keyword list and keeps it unmodifiable")
+        void setKeywords_storesUnmodifiableCopy() {
+            var keywords = new ArrayList<>(List.of("Tesla", "AI"));
+            var filter = SubscriptionTestFactory.filter(keywords, List.of(), "en");
+
+            keywords.add("Volvo");
+
+            assertEquals(List.of("Tesla", "AI"), filter.getKeywords());
+            assertThrows(UnsupportedOperationException.class, () -> filter.getKeywords().add("Volvo"));
+        }
+
+        @Test
+        @DisplayName("Keeps the keywords as entered")
+        void setKeywords_keepsOriginalKeywords() {
+            var filter = SubscriptionTestFactory.filter(List.of("Tesla"), List.of(), "en");
+
+            assertEquals(List.of("Tesla"), filter.getKeywords());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package se.pbt.tvm.subscription.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("KeywordPool")
+class KeywordPoolTest {
+
+    @Test
+    @DisplayName("Returns one instance for equal keywords")
+    void intern_withEqualKeywords_returnsSameInstance() {
+        String pooled = KeywordPool.intern(new String("pool-tesla"));
+
+        assertSame(pooled, KeywordPool.intern(new String("pool-tesla")));
+        assertNotSame(pooled, KeywordPool.intern(new String("Pool-Tesla")));
+        assertNull(KeywordPool.intern(null));
+    }
+
+    @Test
+    @DisplayName("Normalizes keywords before pooling them")
+    void canonical_normalizesAndPools() {
+        String canonical = KeywordPool.canonical(" POOL-Volvo ");
+
+        assertEquals("pool-volvo", canonical);
+        assertSame(canonical, KeywordPool.canonical("pool-volvo"));
+        assertNull(KeywordPool.canonical("   "));
+    }
+
+    @Test
+    @DisplayName("Filters, fingerprints and dictionaries share the pooled instances")
+    void pooledInstances_areSharedByFiltersFingerprintsAndDictionaries() {
+        var first = new SubscriptionFilter();
+        first.setKeywords(new ArrayList<>(List.of(new String("pool-ai"))));
+        var second = new SubscriptionFilter();
+        second.setKeywords(Arrays.asList(new String("pool-ai"), null));
+        var subscription = new Subscription();
+        subscription.setFilter(first);
+
+        assertSame(first.getKeywords().get(0), second.getKeywords().get(0));
+        assertNull(second.getKeywords().get(1));
+        assertSame(first.getKeywords().get(0), SubscriptionFingerprint.of(subscription).keywords().get(0));
+        assertSame(first.getKeywords().get(0), new KeywordDictionary().canonical(new String("pool-ai")));
+    }
+}
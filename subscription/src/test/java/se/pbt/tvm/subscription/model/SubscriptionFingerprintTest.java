@@ -0,0 +1,44 @@
+package se.pbt.tvm.subscription.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SubscriptionFingerprint")
+class SubscriptionFingerprintTest {
+
+    private static SubscriptionFingerprint fingerprint(List<String> keywords, String language) {
+        return SubscriptionFingerprint.of(SubscriptionTestFactory.subscriptionWithKeywords(keywords, language));
+    }
+
+    @Test
+    @DisplayName("Ignores keyword order, case and repetition")
+    void of_withReorderedKeywords_isEqual() {
+        var a = fingerprint(List.of("Tesla", "AI", "ai"), "en");
+        var b = fingerprint(List.of("ai", "TESLA"), "EN");
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(List.of("ai", "tesla"), a.keywords());
+    }
+
+    @Test
+    @DisplayName("Distinguishes languages and keyword sets")
+    void of_withDifferentLanguageOrKeywords_isNotEqual() {
+        assertNotEquals(fingerprint(List.of("AI"), "en"), fingerprint(List.of("AI"), "sv"));
+        assertNotEquals(fingerprint(List.of("AI"), "en"), fingerprint(List.of("AI", "Tesla"), "en"));
+    }
+
+    @Test
+    @DisplayName("Handles subscriptions without filter")
+    void of_withoutFilter_isEmpty() {
+        var fingerprint = SubscriptionFingerprint.of(SubscriptionTestFactory.subscriptionWithIdOnly("sub-1"));
+
+        assertTrue(fingerprint.keywords().isEmpty());
+        assertNull(fingerprint.language());
+    }
+}
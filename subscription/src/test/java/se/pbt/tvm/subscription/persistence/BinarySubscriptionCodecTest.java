@@ -0,0 +1,141 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BinarySubscriptionCodec")
+class BinarySubscriptionCodecTest {
+
+    private static List<Subscription> roundTrip(List<Subscription> subscriptions) throws IOException {
+        byte[] encoded = BinarySubscriptionCodec.encode(subscriptions);
+        return BinarySubscriptionCodec.decode(new ByteArrayInputStream(encoded));
+    }
+
+    @Nested
+    @DisplayName("Round trip")
+    class RoundTrip {
+
+        @Test
+        @DisplayName("Preserves all fields of a subscription")
+        void roundTrip_withFullSubscription_preservesFields() throws IOException {
+            var filter = SubscriptionTestFactory.filter(List.of("AI", "räntor"), List.of("TSLA"), "sv-SE");
+            var sub = SubscriptionTestFactory.subscription("ai-alerts", filter, true);
+            sub.setChatId(123456789L);
+            sub.setSchedule(SchedulePreset.MORNING_EVENING);
+            sub.setTimezone(TimeZone.getTimeZone("Europe/Stockholm"));
+            sub.setMaxItems(7);
+
+            var decoded = roundTrip(List.of(sub)).get(0);
+
+            assertEquals("ai-alerts", decoded.getId());
+            assertEquals(123456789L, decoded.getChatId());
+            assertEquals(SchedulePreset.MORNING_EVENING, decoded.getSchedule());
+            assertEquals("Europe/Stockholm", decoded.getTimezone().getID());
+            assertEquals(7, decoded.getMaxItems());
+            assertTrue(decoded.isEnabled());
+            assertEquals(List.of("AI", "räntor"), decoded.getFilter().getKeywords());
+            assertEquals(List.of("TSLA"), decoded.getFilter().getTickers());
+            assertEquals("sv-SE", decoded.getFilter().getLanguage());
+        }
+
+        @Test
+        @DisplayName("Preserves missing optional values")
+        void roundTrip_withNullFields_keepsNulls() throws IOException {
+            var decoded = roundTrip(List.of(SubscriptionTestFactory.subscriptionWithIdOnly("bare"))).get(0);
+
+            assertEquals("bare", decoded.getId());
+            assertNull(decoded.getSchedule());
+            assertNull(decoded.getTimezone());
+            assertNull(decoded.getFilter());
+        }
+
+        @Test
+        @DisplayName("Preserves the custom schedule")
+        void roundTrip_withCustomSchedule_preservesIt() throws IOException {
+            var sub = SubscriptionTestFactory.subscriptionWithIdOnly("custom");
+            sub.setCustomSchedule("PT4H");
+
+            assertEquals("PT4H", roundTrip(List.of(sub)).get(0).getCustomSchedule());
+            assertEquals("PT4H", BinarySubscriptionCodec.decodeRecord(BinarySubscriptionCodec.encodeRecord(sub)).getCustomSchedule());
+        }
+
+        @Test
+        @DisplayName("Reads records written before the custom schedule existed")
+        void decodeRecord_withoutAppendedFields_leavesThemNull() throws IOException {
+            var sub = SubscriptionTestFactory.subscriptionWithIdOnly("old");
+            byte[] record = BinarySubscriptionCodec.encodeRecord(sub);
+            // The appended custom schedule is a single "absent" flag when null
+            byte[] oldRecord = Arrays.copyOf(record, record.length - 1);
+
+            var decoded = BinarySubscriptionCodec.decodeRecord(oldRecord);
+
+            assertEquals("old", decoded.getId());
+            assertNull(decoded.getCustomSchedule());
+        }
+
+        @Test
+        @DisplayName("Keeps the order of many subscriptions")
+        void roundTrip_withManySubscriptions_keepsOrder() throws IOException {
+            var subscriptions = SubscriptionTestFactory.subscriptionList(500);
+
+            var decoded = roundTrip(subscriptions);
+
+            assertEquals(500, decoded.size());
+            assertEquals("sub-1", decoded.get(0).getId());
+            assertEquals("sub-500", decoded.get(499).getId());
+        }
+
+        @Test
+        @DisplayName("Keeps the ID suffix counters after the records")
+        void roundTrip_withIdSuffixes_preservesThem() throws IOException {
+            var snapshot = new SubscriptionSnapshot(SubscriptionTestFactory.subscriptionList(2), Map.of("1/sub-1", 4, "-7/news", 2));
+
+            var decoded = BinarySubscriptionCodec.decodeSnapshot(new ByteArrayInputStream(BinarySubscriptionCodec.encode(snapshot)));
+
+            assertEquals(2, decoded.subscriptions().size());
+            assertEquals(Map.of("1/sub-1", 4, "-7/news", 2), decoded.idSuffixes());
+        }
+    }
+
+    @Nested
+    @DisplayName("Invalid input")
+    class InvalidInput {
+
+        @Test
+        @DisplayName("Rejects data without the binary header")
+        void decode_withYaml_throws() {
+            byte[] yaml = "subscriptions: []".getBytes(StandardCharsets.UTF_8);
+            assertThrows(IOException.class, () -> BinarySubscriptionCodec.decode(new ByteArrayInputStream(yaml)));
+        }
+
+        @Test
+        @DisplayName("Rejects truncated data")
+        void decode_withTruncatedData_throws() throws IOException {
+            byte[] encoded = BinarySubscriptionCodec.encode(SubscriptionTestFactory.subscriptionList(3));
+            byte[] truncated = Arrays.copyOf(encoded, encoded.length - 5);
+
+            assertThrows(IOException.class, () -> BinarySubscriptionCodec.decode(new ByteArrayInputStream(truncated)));
+        }
+
+        @Test
+        @DisplayName("Recognizes only its own header")
+        void hasHeader_detectsFormat() throws IOException {
+            assertTrue(BinarySubscriptionCodec.hasHeader(BinarySubscriptionCodec.encode(List.of())));
+            assertFalse(BinarySubscriptionCodec.hasHeader("subs".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.pbt.tvm.subscription.config.SubscriptionStorageProperties;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CachedSubscriptionRepository")
+class CachedSubscriptionRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SubscriptionStorage storage = new SubscriptionStorage();
+    private CachedSubscriptionRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    private CachedSubscriptionRepository open(Duration flushDelay) {
+        var properties = new SubscriptionStorageProperties();
+        properties.setFlushDelay(flushDelay);
+        repository = new CachedSubscriptionRepository(new SnapshotSubscriptionPersistence(storage, file()), properties);
+        return repository;
+    }
+
+    private String file() {
+        return tempDir.resolve("subscriptions.yml").toString();
+    }
+
+    private static Subscription subscription(String id, long chatId) {
+        var sub = SubscriptionTestFactory.subscription(id);
+        sub.setChatId(chatId);
+        return sub;
+    }
+
+    @Nested
+    @DisplayName("Reads")
+    class Reads {
+
+        @Test
+        @DisplayName("Loads existing subscriptions once on creation")
+        void create_withExistingFile_loadsSubscriptions() {
+            storage.saveSubscriptions(List.of(subscription("sub-1", 1), subscription("sub-2", 2)), file());
+
+            var repo = open(Duration.ofMillis(50));
+
+            assertEquals(2, repo.findAll().size());
+            assertEquals("sub-2", repo.findByChatId(2).get(0).getId());
+            assertTrue(repo.findById("sub-1").isPresent());
+        }
+
+        @Test
+        @DisplayName("Starts empty when the file does not exist")
+        void create_withMissingFile_startsEmpty() {
+            var repo = open(Duration.ofMillis(50));
+            assertTrue(repo.findAll().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Refuses to start from a file that cannot be parsed")
+        void create_withUnparsableFile_failsAndKeepsFile() throws Exception {
+            Files.writeString(Path.of(file()), "subscriptions: [ {id: broken");
+
+            assertThrows(UncheckedIOException.class, () -> open(Duration.ofMillis(50)));
+            assertEquals("subscriptions: [ {id: broken", Files.readString(Path.of(file())));
+        }
+
+        @Test
+        @DisplayName("Returned snapshots are immutable")
+        void findAll_returnsImmutableSnapshot() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(subscription("sub-1", 1));
+
+            var snapshot = repo.findAll();
+
+            assertThrows(UnsupportedOperationException.class, () -> snapshot.add(subscription("x", 1)));
+        }
+
+        @Test
+        @DisplayName("Old snapshots are not affected by later mutations")
+        void findAll_isNotAffectedByLaterWrites() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(subscription("sub-1", 1));
+            var before = repo.findAll();
+
+            repo.put(subscription("sub-2", 1));
+
+            assertEquals(1, before.size());
+            assertEquals(2, repo.findAll().size());
+        }
+
+        @Test
+        @DisplayName("Reuses the snapshot until the next mutation and keeps replaced subscriptions in place")
+        void findAll_isRebuiltOnlyAfterMutation() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(subscription("sub-1", 1));
+            repo.put(subscription("sub-2", 1));
+            var first = repo.findAll();
+            assertSame(first, repo.findAll());
+
+            repo.put(subscription("sub-1", 3));
+
+            assertNotSame(first, repo.findAll());
+            assertEquals(List.of("sub-1", "sub-2"), repo.findAll().stream().map(Subscription::getId).toList());
+            assertEquals(3, repo.findAll().get(0).getChatId());
+        }
+
+        @Test
+        @DisplayName("Snapshots taken while another thread writes are complete and in order")
+        void findAll_duringConcurrentWrites_returnsConsistentSnapshots() throws InterruptedException {
+            var repo = open(Duration.ofMinutes(5));
+            var writer = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    repo.put(subscription("sub-" + i, i % 7));
+                }
+            });
+            writer.start();
+
+            int previousSize = 0;
+            while (writer.isAlive()) {
+                var snapshot = repo.findAll();
+                assertTrue(snapshot.size() >= previousSize);
+                for (int i = 0; i < snapshot.size(); i++) {
+                    assertEquals("sub-" + i, snapshot.get(i).getId());
+                }
+                previousSize = snapshot.size();
+            }
+            writer.join();
+
+            assertEquals(2000, repo.findAll().size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Indexes")
+    class Indexes {
+
+        private static Subscription withKeywords(String id, long chatId, String... keywords) {
+            var filter = SubscriptionTestFactory.filter(List.of(keywords), List.of(), "en");
+            var sub = SubscriptionTestFactory.subscription(id, filter, true);
+            sub.setChatId(chatId);
+            return sub;
+        }
+
+        @Test
+        @DisplayName("Finds subscriptions by chat and keyword, ignoring case")
+        void findByChatIdAndKeyword_ignoresCase() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("a", 1, "Tesla", "AI"));
+            repo.put(withKeywords("b", 1, "ai"));
+            repo.put(withKeywords("c", 2, "AI"));
+
+            assertEquals(List.of("a", "b"), repo.findByChatIdAndKeyword(1, " Ai ").stream().map(Subscription::getId).toList());
+            assertTrue(repo.findByChatIdAndKeyword(1, "crypto").isEmpty());
+        }
+
+        @Test
+        @DisplayName("Finds subscriptions by language and follows replacements and deletes")
+        void findByLanguage_followsMutations() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("a", 1, "AI"));
+            repo.put(withKeywords("b", 2, "AI"));
+            var swedish = withKeywords("a", 1, "AI");
+            swedish.getFilter().setLanguage("sv");
+
+            repo.put(swedish);
+            repo.put(withKeywords("c", 3, "AI"));
+            repo.delete("b");
+
+            assertEquals(List.of("c"), repo.findByLanguage("en").stream().map(Subscription::getId).toList());
+            assertEquals(List.of("a"), repo.findByLanguage("sv").stream().map(Subscription::getId).toList());
+            assertTrue(repo.findByLanguage("de").isEmpty());
+        }
+
+        @Test
+        @DisplayName("Moves a subscription between chats when its chat changes")
+        void put_withChangedChat_updatesChatIndex() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("a", 1, "AI"));
+            repo.put(withKeywords("a", 2, "Tesla"));
+
+            assertTrue(repo.findByChatId(1).isEmpty());
+            assertTrue(repo.findByChatIdAndKeyword(2, "ai").isEmpty());
+            assertEquals("a", repo.findByChatIdAndKeyword(2, "tesla").get(0).getId());
+        }
+
+        @Test
+        @DisplayName("Delete removes the subscription from all indexes")
+        void delete_updatesIndexes() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("a", 1, "AI"));
+
+            repo.delete("a");
+
+            assertTrue(repo.findById("a").isEmpty());
+            assertTrue(repo.findByChatId(1).isEmpty());
+            assertTrue(repo.findByChatIdAndKeyword(1, "ai").isEmpty());
+        }
+
+        @Test
+        @DisplayName("Keeps the fingerprints of a chat in step with replacements and deletes")
+        void put_andDelete_updateFingerprints() {
+            var repo = open(Duration.ofMillis(50));
+            var first = withKeywords("a", 1, "AI");
+            var second = withKeywords("b", 1, "Tesla");
+            repo.put(first);
+            repo.put(second);
+
+            var replacement = withKeywords("a", 1, "Crypto");
+            repo.put(replacement);
+            repo.delete("b");
+
+            assertEquals(Set.of(SubscriptionFingerprint.of(replacement)), repo.findFingerprintsByChatId(1));
+            assertTrue(repo.findByChatIdAndKeyword(1, "ai").isEmpty());
+            assertEquals("a", repo.findByChatIdAndKeyword(1, "crypto").get(0).getId());
+        }
+
+        @Test
+        @DisplayName("Builds indexes from the loaded subscriptions")
+        void create_withExistingFile_indexesSubscriptions() {
+            storage.saveSubscriptions(List.of(withKeywords("a", 1, "AI"), withKeywords("b", 2, "AI")), file());
+
+            var repo = open(Duration.ofMillis(50));
+
+            assertEquals("b", repo.findByChatIdAndKeyword(2, "ai").get(0).getId());
+        }
+
+        @Test
+        @DisplayName("Returns the base ID while it is free in the chat")
+        void nextFreeId_withFreeBase_returnsBase() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("sub-2-ai", 2, "AI"));
+
+            assertEquals("sub-1-ai", repo.nextFreeId(1, "sub-1-ai"));
+        }
+
+        @Test
+        @DisplayName("Continues after the highest suffix in use")
+        void nextFreeId_withTakenBase_continuesAfterHighestSuffix() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("sub-1-ai", 1, "AI"));
+            assertEquals("sub-1-ai-2", repo.nextFreeId(1, "sub-1-ai"));
+
+            repo.put(withKeywords("sub-1-ai-7", 1, "AI", "Tesla"));
+            assertEquals("sub-1-ai-8", repo.nextFreeId(1, "sub-1-ai"));
+            assertEquals("sub-1-ai-7-2", repo.nextFreeId(1, "sub-1-ai-7"));
+        }
+
+        @Test
+        @DisplayName("Does not reuse the suffix of a deleted subscription")
+        void nextFreeId_afterDelete_doesNotReuseSuffix() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("sub-1-ai", 1, "AI"));
+            repo.put(withKeywords("sub-1-ai-2", 1, "AI", "ML"));
+
+            repo.delete("sub-1-ai-2");
+            repo.delete("sub-1-ai");
+
+            assertEquals("sub-1-ai-3", repo.nextFreeId(1, "sub-1-ai"));
+        }
+
+        @Test
+        @DisplayName("Does not reuse the suffix of a deleted subscription after a restart")
+        void nextFreeId_afterDeleteAndRestart_doesNotReuseSuffix() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(withKeywords("sub-1-ai", 1, "AI"));
+            repo.put(withKeywords("sub-1-ai-2", 1, "AI", "ML"));
+            repo.delete("sub-1-ai-2");
+            repo.close();
+
+            var reopened = open(Duration.ofMillis(50));
+
+            assertEquals("sub-1-ai-3", reopened.nextFreeId(1, "sub-1-ai"));
+        }
+
+        @Test
+        @DisplayName("Restores suffixes from the loaded subscriptions")
+        void nextFreeId_afterReload_keepsSuffixes() {
+            storage.saveSubscriptions(List.of(withKeywords("sub-1-ai", 1, "AI"), withKeywords("sub-1-ai-3", 1, "AI", "ML")), file());
+
+            var repo = open(Duration.ofMillis(50));
+
+            assertEquals("sub-1-ai-4", repo.nextFreeId(1, "sub-1-ai"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Writes")
+    class Writes {
+
+        @Test
+        @DisplayName("Put replaces a subscription with the same ID")
+        void put_withExistingId_replacesSubscription() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(subscription("sub-1", 1));
+            repo.put(subscription("sub-1", 2));
+
+            assertEquals(1, repo.findAll().size());
+            assertEquals(2, repo.findById("sub-1").orElseThrow().getChatId());
+        }
+
+        @Test
+        @DisplayName("Tells change listeners about every mutation in order")
+        void mutations_notifyListeners() {
+            var repo = open(Duration.ofMillis(50));
+            var changes = new ArrayList<SubscriptionChange>();
+            repo.addChangeListener(changes::add);
+            repo.addChangeListener(change -> { throw new IllegalStateException("Listener failure"); });
+
+            var sub = subscription("sub-1", 1);
+            repo.put(sub);
+            repo.delete("sub-1");
+            repo.delete("missing");
+
+            assertEquals(List.of(SubscriptionChange.put(sub), SubscriptionChange.delete("sub-1")), changes);
+            assertTrue(repo.findAll().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Delete removes the subscription and reports the result")
+        void delete_removesSubscription() {
+            var repo = open(Duration.ofMillis(50));
+            repo.put(subscription("sub-1", 1));
+
+            assertTrue(repo.delete("sub-1"));
+            assertFalse(repo.delete("sub-1"));
+            assertTrue(repo.findAll().isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Flushing")
+    class Flushing {
+
+        @Test
+        @DisplayName("Does not write to disk before the flush delay has passed")
+        void put_doesNotWriteImmediately() {
+            var repo = open(Duration.ofMinutes(5));
+            repo.put(subscription("sub-1", 1));
+
+            assertTrue(storage.loadSubscriptions(file()).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Writes changes in the background after the flush delay")
+        void put_isFlushedInBackground() throws InterruptedException {
+            var repo = open(Duration.ofMillis(20));
+            repo.put(subscription("sub-1", 1));
+            repo.put(subscription("sub-2", 1));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (storage.loadSubscriptions(file()).size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(2, storage.loadSubscriptions(file()).size());
+        }
+
+        @Test
+        @DisplayName("Close writes pending changes")
+        void close_flushesPendingChanges() {
+            var repo = open(Duration.ofMinutes(5));
+            repo.put(subscription("sub-1", 1));
+
+            repo.close();
+            repository = null;
+
+            assertEquals(1, storage.loadSubscriptions(file()).size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Group commit")
+    class GroupCommit {
+
+        @Test
+        @DisplayName("A burst of changes is persisted with a single write")
+        void commit_afterBurst_persistsOnce() throws Exception {
+            var persistence = new CountingPersistence();
+            var properties = new SubscriptionStorageProperties();
+            // The scheduled flush never fires during the test, so the write below is the only one
+            properties.setFlushDelay(Duration.ofMinutes(5));
+            repository = new CachedSubscriptionRepository(persistence, properties);
+
+            for (int i = 0; i < 20; i++) {
+                repository.put(subscription("sub-" + i, 1));
+            }
+            var commit = repository.commit();
+            repository.flush();
+            commit.get(5, TimeUnit.SECONDS);
+
+            assertEquals(1, persistence.writes.get());
+            assertEquals(20, persistence.lastChanges);
+        }
+
+        @Test
+        @DisplayName("Commit completes once the changes are on disk")
+        void commit_completesAfterFlush() throws Exception {
+            var repo = open(Duration.ofMillis(20));
+            repo.put(subscription("sub-1", 1));
+
+            repo.commit().get(5, TimeUnit.SECONDS);
+
+            assertEquals(1, storage.loadSubscriptions(file()).size());
+        }
+
+        @Test
+        @DisplayName("Commit completes immediately when nothing is pending")
+        void commit_withoutChanges_isComplete() {
+            var repo = open(Duration.ofMinutes(5));
+            assertTrue(repo.commit().isDone());
+        }
+
+        @Test
+        @DisplayName("Commit times out when the changes are not written in time")
+        void commit_withLongFlushDelay_timesOut() {
+            var properties = new SubscriptionStorageProperties();
+            properties.setFlushDelay(Duration.ofMinutes(5));
+            properties.setCommitTimeout(Duration.ofMillis(50));
+            repository = new CachedSubscriptionRepository(new SnapshotSubscriptionPersistence(storage, file()), properties);
+            repository.put(subscription("sub-1", 1));
+
+            var error = assertThrows(CompletionException.class, () -> repository.commit().join());
+            assertInstanceOf(TimeoutException.class, error.getCause());
+        }
+    }
+
+    /**
+     * Persistence that records how often it is asked to write.
+     */
+    private static class CountingPersistence implements SubscriptionPersistence {
+        private final AtomicInteger writes = new AtomicInteger();
+        private volatile int lastChanges;
+
+        @Override
+        public SubscriptionSnapshot load() {
+            return SubscriptionSnapshot.of(List.of());
+        }
+
+        @Override
+        public void persist(List<SubscriptionChange> changes, Supplier<SubscriptionSnapshot> snapshot) {
+            writes.incrementAndGet();
+            lastChanges = changes.size();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DurableFiles")
+class DurableFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    @DisplayName("Atomic writes")
+    class AtomicWrites {
+
+        @Test
+        @DisplayName("Replaces the content of an existing file")
+        void writeAtomically_withExistingFile_replacesContent() throws IOException {
+            Path file = tempDir.resolve("subscriptions.yml");
+            Files.writeString(file, "old content that is longer than the new one");
+
+            DurableFiles.writeAtomically(file, bytes("new"));
+
+            assertEquals("new", Files.readString(file));
+        }
+
+        @Test
+        @DisplayName("Leaves no temporary file behind")
+        void writeAtomically_removesTemporaryFile() throws IOException {
+            Path file = tempDir.resolve("subscriptions.yml");
+
+            DurableFiles.writeAtomically(file, bytes("content"));
+
+            try (var files = Files.list(tempDir)) {
+                assertEquals(1, files.count());
+            }
+        }
+
+        @Test
+        @DisplayName("Creates missing parent directories")
+        void writeAtomically_withMissingParent_createsDirectories() throws IOException {
+            Path file = tempDir.resolve("nested/dir/subscriptions.yml");
+
+            DurableFiles.writeAtomically(file, bytes("content"));
+
+            assertEquals("content", Files.readString(file));
+        }
+    }
+
+    @Nested
+    @DisplayName("Appends")
+    class Appends {
+
+        @Test
+        @DisplayName("Appends to the end of the file")
+        void appendAndSync_appendsContent() throws IOException {
+            Path file = tempDir.resolve("subscriptions.journal");
+
+            DurableFiles.appendAndSync(file, bytes("a\n"));
+            DurableFiles.appendAndSync(file, bytes("b\n"));
+
+            assertEquals("a\nb\n", Files.readString(file));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("IdSuffixCounters")
+class IdSuffixCountersTest {
+
+    private final IdSuffixCounters counters = new IdSuffixCounters(new HashMap<>());
+
+    @Test
+    @DisplayName("Returns the base ID while it has never been taken in the chat")
+    void nextFreeId_withUnknownBase_returnsBase() {
+        counters.register(999, "sub-999-ai");
+
+        assertEquals("sub-123-ai", counters.nextFreeId(123, "sub-123-ai"));
+    }
+
+    @Test
+    @DisplayName("Appends -2 once the base ID is taken")
+    void nextFreeId_withTakenBase_appendsTwo() {
+        counters.register(123, "sub-123-ai");
+
+        assertEquals("sub-123-ai-2", counters.nextFreeId(123, "sub-123-ai"));
+    }
+
+    @Test
+    @DisplayName("Continues after the highest suffix, skipping gaps")
+    void nextFreeId_withGap_continuesAfterHighest() {
+        counters.register(123, "sub-123-ai-3");
+        counters.register(123, "sub-123-ai");
+
+        assertEquals("sub-123-ai-4", counters.nextFreeId(123, "sub-123-ai"));
+        assertEquals("sub-123-ai-3-2", counters.nextFreeId(123, "sub-123-ai-3"));
+    }
+
+    @Test
+    @DisplayName("Ignores null IDs and compares IDs case-sensitively")
+    void register_withNullOrDifferentCase_doesNotCollide() {
+        counters.register(123, null);
+        counters.register(123, "sub-123-AI");
+
+        assertEquals("sub-123-ai", counters.nextFreeId(123, "sub-123-ai"));
+    }
+}
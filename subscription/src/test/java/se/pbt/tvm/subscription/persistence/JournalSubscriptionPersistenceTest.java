@@ -0,0 +1,221 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JournalSubscriptionPersistence")
+class JournalSubscriptionPersistenceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SubscriptionStorage storage = new SubscriptionStorage();
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T08:00:00Z"), ZoneOffset.UTC);
+
+    private Path snapshotFile() {
+        return tempDir.resolve("subscriptions.yml");
+    }
+
+    private Path journalFile() {
+        return tempDir.resolve("subscriptions.yml.journal");
+    }
+
+    private JournalSubscriptionPersistence persistence(int maxEntries, Duration maxAge, Clock clock) {
+        return new JournalSubscriptionPersistence(
+                storage,
+                snapshotFile().toString(),
+                SnapshotFormat.YAML,
+                new SubscriptionJournal(journalFile(), clock),
+                maxEntries,
+                maxAge,
+                clock
+        );
+    }
+
+    private static Subscription subscription(String id) {
+        var sub = SubscriptionTestFactory.subscription(id);
+        sub.setChatId(1);
+        return sub;
+    }
+
+    @Nested
+    @DisplayName("Appending and replaying")
+    class AppendAndReplay {
+
+        @Test
+        @DisplayName("Appends changes without rewriting the snapshot")
+        void persist_belowThreshold_onlyAppendsToJournal() {
+            var persistence = persistence(100, Duration.ofHours(1), clock);
+            var sub = subscription("sub-1");
+
+            persistence.persist(List.of(SubscriptionChange.put(sub)), () -> SubscriptionSnapshot.of(List.of(sub)));
+
+            assertTrue(Files.exists(journalFile()));
+            assertFalse(Files.exists(snapshotFile()));
+        }
+
+        @Test
+        @DisplayName("Replays the journal on top of the last snapshot")
+        void load_replaysJournalOnTopOfSnapshot() {
+            var a = subscription("sub-a");
+            var b = subscription("sub-b");
+            var c = subscription("sub-c");
+            storage.saveSubscriptions(List.of(a, b), snapshotFile().toString());
+
+            persistence(100, Duration.ofHours(1), clock).persist(
+                    List.of(SubscriptionChange.delete("sub-a"), SubscriptionChange.put(c)), () -> SubscriptionSnapshot.of(List.of(b, c)));
+
+            var loaded = persistence(100, Duration.ofHours(1), clock).load().subscriptions();
+
+            assertEquals(List.of("sub-b", "sub-c"), loaded.stream().map(Subscription::getId).toList());
+        }
+
+        @Test
+        @DisplayName("Keeps subscriptions with and without ID in their snapshot positions")
+        void apply_withMixedIds_keepsSnapshotOrder() {
+            var a = subscription("sub-a");
+            var first = subscription(null);
+            var b = subscription("sub-b");
+            var second = subscription(null);
+            var updatedB = subscription("sub-b");
+            var c = subscription("sub-c");
+
+            var result = JournalSubscriptionPersistence.apply(List.of(a, first, b, second), List.of(
+                    SubscriptionChange.put(updatedB), SubscriptionChange.delete("sub-a"), SubscriptionChange.put(c)));
+
+            assertEquals(4, result.size());
+            assertSame(first, result.get(0));
+            assertSame(updatedB, result.get(1));
+            assertSame(second, result.get(2));
+            assertSame(c, result.get(3));
+        }
+
+        @Test
+        @DisplayName("Ignores a torn record at the end of the journal")
+        void load_withTornLastRecord_ignoresIt() throws IOException {
+            var sub = subscription("sub-1");
+            persistence(100, Duration.ofHours(1), clock).persist(List.of(SubscriptionChange.put(sub)), () -> SubscriptionSnapshot.of(List.of(sub)));
+            Files.writeString(journalFile(), "{\"timestamp\":1,\"type\":\"PU", StandardOpenOption.APPEND);
+
+            var loaded = persistence(100, Duration.ofHours(1), clock).load().subscriptions();
+
+            assertEquals(1, loaded.size());
+            assertEquals("sub-1", loaded.get(0).getId());
+        }
+
+        @Test
+        @DisplayName("Keeps records appended after recovering from a torn record")
+        void persist_afterTornLastRecord_survivesReload() throws IOException {
+            var a = subscription("sub-a");
+            var b = subscription("sub-b");
+            persistence(100, Duration.ofHours(1), clock).persist(List.of(SubscriptionChange.put(a)), () -> SubscriptionSnapshot.of(List.of(a)));
+            Files.writeString(journalFile(), "{\"timestamp\":1,\"type\":\"PU", StandardOpenOption.APPEND);
+
+            var recovered = persistence(100, Duration.ofHours(1), clock);
+            recovered.load();
+            recovered.persist(List.of(SubscriptionChange.put(b)), () -> SubscriptionSnapshot.of(List.of(a, b)));
+
+            var loaded = persistence(100, Duration.ofHours(1), clock).load().subscriptions();
+
+            assertEquals(List.of("sub-a", "sub-b"), loaded.stream().map(Subscription::getId).toList());
+        }
+
+        @Test
+        @DisplayName("Fails on an unreadable record in the middle of the journal")
+        void load_withCorruptRecordBeforeLast_fails() throws IOException {
+            var a = subscription("sub-a");
+            var b = subscription("sub-b");
+            var persistence = persistence(100, Duration.ofHours(1), clock);
+            persistence.persist(List.of(SubscriptionChange.put(a)), () -> SubscriptionSnapshot.of(List.of(a)));
+            Files.writeString(journalFile(), "not a record\n", StandardOpenOption.APPEND);
+            persistence.persist(List.of(SubscriptionChange.put(b)), () -> SubscriptionSnapshot.of(List.of(a, b)));
+
+            assertThrows(UncheckedIOException.class, () -> persistence(100, Duration.ofHours(1), clock).load());
+        }
+    }
+
+    @Nested
+    @DisplayName("ID suffixes")
+    class IdSuffixes {
+
+        @Test
+        @DisplayName("Raises the counters for subscriptions put and deleted since the snapshot")
+        void load_withDeletedSubscriptionInJournal_keepsItsSuffix() {
+            var persistence = persistence(100, Duration.ofHours(1), clock);
+            var sub = subscription("sub-a-3");
+            persistence.persist(List.of(SubscriptionChange.put(sub), SubscriptionChange.delete("sub-a-3")),
+                    () -> SubscriptionSnapshot.of(List.of()));
+
+            var loaded = persistence(100, Duration.ofHours(1), clock).load();
+
+            assertTrue(loaded.subscriptions().isEmpty());
+            assertEquals(3, loaded.idSuffixes().get("1/sub-a"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Compaction")
+    class Compaction {
+
+        @Test
+        @DisplayName("Folds the journal into a snapshot when the entry threshold is reached")
+        void persist_atEntryThreshold_compacts() {
+            var persistence = persistence(2, Duration.ofHours(1), clock);
+            var a = subscription("sub-a");
+            var b = subscription("sub-b");
+
+            persistence.persist(List.of(SubscriptionChange.put(a)), () -> SubscriptionSnapshot.of(List.of(a)));
+            persistence.persist(List.of(SubscriptionChange.put(b)), () -> SubscriptionSnapshot.of(List.of(a, b)));
+
+            assertFalse(Files.exists(journalFile()));
+            assertEquals(2, storage.loadSubscriptions(snapshotFile().toString()).size());
+        }
+
+        @Test
+        @DisplayName("Folds the journal into a snapshot when the oldest record is too old")
+        void persist_whenJournalTooOld_compacts() {
+            var a = subscription("sub-a");
+            var b = subscription("sub-b");
+            var later = Clock.offset(clock, Duration.ofHours(2));
+
+            persistence(100, Duration.ofHours(1), clock).persist(List.of(SubscriptionChange.put(a)), () -> SubscriptionSnapshot.of(List.of(a)));
+            var persistence = persistence(100, Duration.ofHours(1), later);
+            persistence.load();
+
+            assertFalse(Files.exists(journalFile()));
+            assertEquals(1, storage.loadSubscriptions(snapshotFile().toString()).size());
+
+            persistence.persist(List.of(SubscriptionChange.put(b)), () -> SubscriptionSnapshot.of(List.of(a, b)));
+            assertTrue(Files.exists(journalFile()));
+        }
+
+        @Test
+        @DisplayName("Writes the ID suffix counters into the compacted snapshot")
+        void persist_whenCompacting_keepsIdSuffixes() {
+            var persistence = persistence(1, Duration.ofHours(1), clock);
+
+            persistence.persist(List.of(SubscriptionChange.delete("sub-a-2")),
+                    () -> new SubscriptionSnapshot(List.of(), Map.of("1/sub-a", 2)));
+
+            assertEquals(Map.of("1/sub-a", 2), persistence(100, Duration.ofHours(1), clock).load().idSuffixes());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MvStoreSubscriptionRepository")
+class MvStoreSubscriptionRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MvStoreSubscriptionRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    private MvStoreSubscriptionRepository open() {
+        repository = new MvStoreSubscriptionRepository(tempDir.resolve("subscriptions.mv").toString());
+        return repository;
+    }
+
+    private static Subscription subscription(String id, long chatId, String language) {
+        var filter = SubscriptionTestFactory.filter(List.of("news"), List.of(), language);
+        var sub = SubscriptionTestFactory.subscription(id, filter, true);
+        sub.setChatId(chatId);
+        return sub;
+    }
+
+    @Nested
+    @DisplayName("Lookups")
+    class Lookups {
+
+        @Test
+        @DisplayName("Derives the next free ID from the chat's stored IDs")
+        void nextFreeId_usesChatIds() {
+            var repo = open();
+            repo.put(subscription("sub-1-news", 1, "en"));
+            repo.put(subscription("sub-1-news-4", 1, "sv"));
+
+            assertEquals("sub-1-news-5", repo.nextFreeId(1, "sub-1-news"));
+            assertEquals("sub-2-news", repo.nextFreeId(2, "sub-2-news"));
+        }
+
+        @Test
+        @DisplayName("Finds a subscription by ID")
+        void findById_returnsStoredSubscription() {
+            var repo = open();
+            repo.put(subscription("sub-1", 1, "en"));
+
+            assertEquals(1, repo.findById("sub-1").orElseThrow().getChatId());
+            assertTrue(repo.findById("missing").isEmpty());
+        }
+
+        @Test
+        @DisplayName("Lists only the subscriptions of the given chat, including negative chat IDs")
+        void findByChatId_usesChatIndex() {
+            var repo = open();
+            repo.put(subscription("a", 1, "en"));
+            repo.put(subscription("b", 12, "en"));
+            repo.put(subscription("c", -100, "en"));
+            repo.put(subscription("d", 1, "sv"));
+
+            assertEquals(List.of("a", "d"), repo.findByChatId(1).stream().map(Subscription::getId).toList());
+            assertEquals(List.of("c"), repo.findByChatId(-100).stream().map(Subscription::getId).toList());
+            assertTrue(repo.findByChatId(2).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Lists subscriptions by language")
+        void findByLanguage_usesLanguageIndex() {
+            var repo = open();
+            repo.put(subscription("a", 1, "en"));
+            repo.put(subscription("b", 2, "en-US"));
+            repo.put(subscription("c", 3, "sv"));
+
+            assertEquals(List.of("a"), repo.findByLanguage("en").stream().map(Subscription::getId).toList());
+        }
+    }
+
+    @Nested
+    @DisplayName("Mutations")
+    class Mutations {
+
+        @Test
+        @DisplayName("Put moves a subscription between chat indexes")
+        void put_withChangedChat_updatesIndex() {
+            var repo = open();
+            repo.put(subscription("sub-1", 1, "en"));
+            repo.put(subscription("sub-1", 2, "sv"));
+
+            assertTrue(repo.findByChatId(1).isEmpty());
+            assertEquals(1, repo.findByChatId(2).size());
+            assertTrue(repo.findByLanguage("en").isEmpty());
+            assertEquals(1, repo.findAll().size());
+        }
+
+        @Test
+        @DisplayName("Delete removes the subscription and its index entries")
+        void delete_removesFromIndexes() {
+            var repo = open();
+            repo.put(subscription("sub-1", 1, "en"));
+
+            assertTrue(repo.delete("sub-1"));
+            assertFalse(repo.delete("sub-1"));
+            assertTrue(repo.findByChatId(1).isEmpty());
+            assertTrue(repo.findByLanguage("en").isEmpty());
+        }
+
+        @Test
+        @DisplayName("Tells change listeners about puts and deletes")
+        void mutations_notifyListeners() {
+            var repo = open();
+            var changes = new ArrayList<SubscriptionChange>();
+            repo.addChangeListener(changes::add);
+
+            var sub = subscription("sub-1", 1, "en");
+            repo.put(sub);
+            repo.delete("sub-1");
+            repo.delete("sub-1");
+
+            assertEquals(List.of(SubscriptionChange.put(sub), SubscriptionChange.delete("sub-1")), changes);
+        }
+
+        @Test
+        @DisplayName("Committed changes survive reopening the store")
+        void commit_persistsAcrossReopen() {
+            var repo = open();
+            repo.put(subscription("sub-1", 1, "en"));
+            repo.commit().join();
+            repo.close();
+
+            var reopened = open();
+
+            assertEquals(1, reopened.findByChatId(1).size());
+            assertFalse(reopened.isEmpty());
+        }
+
+        @Test
+        @DisplayName("Does not reuse the suffix of a deleted subscription, even after reopening")
+        void nextFreeId_afterDeleteAndReopen_doesNotReuseSuffix() {
+            var repo = open();
+            repo.put(subscription("sub-1-news", 1, "en"));
+            repo.put(subscription("sub-1-news-2", 1, "sv"));
+            repo.delete("sub-1-news-2");
+            repo.commit().join();
+            repo.close();
+
+            var reopened = open();
+
+            assertEquals("sub-1-news-3", reopened.nextFreeId(1, "sub-1-news"));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package se.pbt.tvm.subscription.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ShardedSubscriptionPersistence")
+class ShardedSubscriptionPersistenceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final RecordingStorage storage = new RecordingStorage();
+
+    private String file() {
+        return tempDir.resolve("subscriptions.yml").toString();
+    }
+
+    private ShardedSubscriptionPersistence persistence(int shards) {
+        return new ShardedSubscriptionPersistence(storage, file(), SnapshotFormat.YAML, shards, 2);
+    }
+
+    private static Subscription subscription(String id, long chatId) {
+        var sub = SubscriptionTestFactory.subscription(id);
+        sub.setChatId(chatId);
+        return sub;
+    }
+
+    private static List<Subscription> oneSubscriptionPerChat(int chats) {
+        return LongStream.rangeClosed(1, chats)
+                .mapToObj(chatId -> subscription("sub-" + chatId, chatId))
+                .toList();
+    }
+
+    @Nested
+    @DisplayName("Writes")
+    class Writes {
+
+        @Test
+        @DisplayName("A change rewrites only the shard of its chat")
+        void persist_withSingleChange_rewritesOneShard() {
+            var persistence = persistence(4);
+            persistence.load();
+            var sub = subscription("sub-1", 7);
+
+            persistence.persist(List.of(SubscriptionChange.put(sub)), () -> SubscriptionSnapshot.of(List.of(sub)));
+
+            assertEquals(List.of(persistence.shardPath(persistence.shardOf(sub)).toString()), storage.written);
+        }
+
+        @Test
+        @DisplayName("A delete rewrites the shard the subscription was stored in")
+        void persist_withDelete_rewritesPreviousShard() {
+            var persistence = persistence(4);
+            persistence.load();
+            var sub = subscription("sub-1", 7);
+            persistence.persist(List.of(SubscriptionChange.put(sub)), () -> SubscriptionSnapshot.of(List.of(sub)));
+            storage.written.clear();
+
+            persistence.persist(List.of(SubscriptionChange.delete("sub-1")), () -> SubscriptionSnapshot.of(List.of()));
+
+            assertEquals(List.of(persistence.shardPath(persistence.shardOf(sub)).toString()), storage.written);
+            assertTrue(persistence(4).load().subscriptions().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Keeps the ID suffix counters of a chat in its shard")
+        void persist_keepsIdSuffixesOfDeletedSubscriptions() {
+            var persistence = persistence(4);
+            persistence.load();
+            var sub = subscription("sub-1-3", 7);
+            persistence.persist(List.of(SubscriptionChange.put(sub)), () -> SubscriptionSnapshot.of(List.of(sub)));
+
+            persistence.persist(List.of(SubscriptionChange.delete("sub-1-3")), () -> SubscriptionSnapshot.of(List.of()));
+
+            var loaded = persistence(4).load();
+            assertTrue(loaded.subscriptions().isEmpty());
+            assertEquals(3, loaded.idSuffixes().get("7/sub-1"));
+        }
+
+        @Test
+        @DisplayName("Rebuilds a touched shard from its known members without the complete state")
+        void persist_doesNotRequestSnapshot() {
+            var persistence = persistence(4);
+            persistence.load();
+            var first = subscription("sub-1", 7);
+            var second = subscription("sub-2", 7);
+            Supplier<SubscriptionSnapshot> unavailable = () -> {
+                throw new AssertionError("Complete state requested");
+            };
+
+            persistence.persist(List.of(SubscriptionChange.put(first), SubscriptionChange.put(second)), unavailable);
+            persistence.persist(List.of(SubscriptionChange.put(subscription("sub-1", 7))), unavailable);
+
+            assertEquals(List.of("sub-1", "sub-2"),
+                    persistence(4).load().subscriptions().stream().map(Subscription::getId).toList());
+        }
+
+        @Test
+        @DisplayName("Applies the changes of a failed write only once when they are retried")
+        void persist_afterFailedWrite_retriesWithoutDuplicates() {
+            var persistence = persistence(4);
+            persistence.load();
+            var unnamed = subscription(null, 7);
+            var changes = List.of(SubscriptionChange.put(unnamed), SubscriptionChange.put(subscription("sub-1", 7)));
+            storage.failNextWrite = true;
+
+            assertThrows(UncheckedIOException.class, () -> persistence.persist(changes, () -> SubscriptionSnapshot.of(List.of())));
+            persistence.persist(changes, () -> SubscriptionSnapshot.of(List.of()));
+
+            assertEquals(2, persistence(4).load().subscriptions().size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Loading")
+    class Loading {
+
+        @Test
+        @DisplayName("Loads every subscription written to the shards")
+        void load_afterPersist_returnsAllSubscriptions() {
+            var subscriptions = oneSubscriptionPerChat(50);
+            var changes = subscriptions.stream().map(SubscriptionChange::put).toList();
+            persistence(8).persist(changes, () -> SubscriptionSnapshot.of(subscriptions));
+
+            var loaded = persistence(8).load().subscriptions();
+
+            assertEquals(50, loaded.size());
+        }
+
+        @Test
+        @DisplayName("Splits an existing single subscription file into shards")
+        void load_withSingleFile_splitsIntoShards() {
+            storage.saveSubscriptions(oneSubscriptionPerChat(20), file());
+
+            var loaded = persistence(4).load().subscriptions();
+
+            assertEquals(20, loaded.size());
+            assertFalse(Files.exists(Path.of(file())));
+            assertTrue(Files.exists(Path.of(file() + ".bak")));
+            assertEquals(20, persistence(4).load().subscriptions().size());
+        }
+
+        @Test
+        @DisplayName("Redistributes subscriptions when the shard count changes")
+        void load_withChangedShardCount_redistributes() throws IOException {
+            var subscriptions = oneSubscriptionPerChat(30);
+            persistence(8).persist(subscriptions.stream().map(SubscriptionChange::put).toList(), () -> SubscriptionSnapshot.of(subscriptions));
+
+            assertEquals(30, persistence(3).load().subscriptions().size());
+
+            try (var files = Files.list(tempDir)) {
+                assertEquals(3, files.count());
+            }
+            assertEquals(30, persistence(3).load().subscriptions().size());
+        }
+
+        @Test
+        @DisplayName("Drops duplicates left by a redistribution interrupted before the old shards were deleted")
+        void load_afterInterruptedRedistribution_keepsOneCopyPerId() throws IOException {
+            var subscriptions = oneSubscriptionPerChat(30);
+            persistence(8).persist(subscriptions.stream().map(SubscriptionChange::put).toList(), () -> SubscriptionSnapshot.of(subscriptions));
+            var target = persistence(3);
+            for (int shard = 0; shard < 3; shard++) {
+                int index = shard;
+                storage.writeSubscriptions(subscriptions.stream().filter(s -> target.shardOf(s) == index).toList(),
+                        target.shardPath(shard).toString(), SnapshotFormat.YAML);
+            }
+
+            var loaded = persistence(3).load().subscriptions();
+
+            assertEquals(30, loaded.size());
+            assertEquals(30, loaded.stream().map(Subscription::getId).distinct().count());
+            try (var files = Files.list(tempDir)) {
+                assertEquals(3, files.count());
+            }
+        }
+    }
+
+    /**
+     * Storage that records which files are written.
+     */
+    private static class RecordingStorage extends SubscriptionStorage {
+        private final List<String> written = new ArrayList<>();
+        private boolean failNextWrite;
+
+        @Override
+        public void writeSnapshot(SubscriptionSnapshot snapshot, String filePath, SnapshotFormat format) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                throw new IOException("Disk full");
+            }
+            written.add(filePath);
+            super.writeSnapshot(snapshot, filePath, format);
+        }
+    }
+}
@@ -3,12 +3,18 @@ package se.pbt.tvm.subscription.persistence;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import se.pbt.tvm.core.subscription.SchedulePreset;
 import se.pbt.tvm.subscription.model.Subscription;
 import se.pbt.tvm.subscription.model.SubscriptionFilter;
 import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -94,6 +100,90 @@ class SubscriptionStorageTest {
         }
     }
 
+    @Nested
+    @DisplayName("Snapshot formats")
+    class Formats {
+
+        @TempDir
+        Path tempDir;
+
+        private final SubscriptionStorage storage = new SubscriptionStorage();
+
+        @Test
+        @DisplayName("Detects and loads a binary snapshot")
+        void load_withBinaryFile_detectsFormat() throws IOException {
+            String file = tempDir.resolve("subscriptions.bin").toString();
+            storage.writeSubscriptions(SampleSubscriptions.twoSubscriptions(), file, SnapshotFormat.BINARY);
+
+            var loaded = storage.loadSubscriptions(file);
+
+            assertEquals(2, loaded.size());
+            assertEquals("ai-alerts", loaded.get(0).getId());
+            assertEquals(List.of("solar", "wind"), loaded.get(1).getFilter().getKeywords());
+        }
+
+        @Test
+        @DisplayName("Converts a YAML file to binary on first load and keeps a backup")
+        void load_withYamlFileAndBinaryFormat_convertsFile() throws IOException {
+            Path file = tempDir.resolve("subscriptions.yml");
+            storage.writeSubscriptions(SampleSubscriptions.twoSubscriptions(), file.toString());
+
+            var loaded = storage.loadSubscriptions(file.toString(), SnapshotFormat.BINARY);
+
+            assertEquals(2, loaded.size());
+            assertTrue(BinarySubscriptionCodec.hasHeader(Files.readAllBytes(file)));
+            assertTrue(Files.readString(tempDir.resolve("subscriptions.yml.bak")).contains("ai-alerts"));
+            assertEquals(2, storage.loadSubscriptions(file.toString()).size());
+        }
+
+        @Test
+        @DisplayName("Keeps the ID suffix counters when converting a file")
+        void loadSnapshot_withIdSuffixes_keepsThemAcrossConversion() throws IOException {
+            Path file = tempDir.resolve("subscriptions.yml");
+            storage.writeSnapshot(new SubscriptionSnapshot(SampleSubscriptions.twoSubscriptions(), Map.of("1/ai-alerts", 3)),
+                    file.toString(), SnapshotFormat.YAML);
+
+            storage.loadSnapshot(file.toString(), SnapshotFormat.BINARY);
+            var reloaded = storage.loadSnapshot(file.toString(), SnapshotFormat.BINARY);
+
+            assertEquals(2, reloaded.subscriptions().size());
+            assertEquals(Map.of("1/ai-alerts", 3), reloaded.idSuffixes());
+        }
+
+        @Test
+        @DisplayName("Leaves a file that already has the requested format untouched")
+        void load_withMatchingFormat_doesNotConvert() throws IOException {
+            Path file = tempDir.resolve("subscriptions.yml");
+            storage.writeSubscriptions(SampleSubscriptions.twoSubscriptions(), file.toString());
+
+            storage.loadSubscriptions(file.toString(), SnapshotFormat.YAML);
+
+            assertFalse(Files.exists(tempDir.resolve("subscriptions.yml.bak")));
+        }
+
+        @Test
+        @DisplayName("Fails instead of returning an empty snapshot when the file cannot be parsed")
+        void load_withUnparsableFileAndFormat_throws() throws IOException {
+            Path file = tempDir.resolve("subscriptions.yml");
+            Files.writeString(file, "subscriptions: [ {id: broken");
+
+            assertThrows(UncheckedIOException.class, () -> storage.loadSubscriptions(file.toString(), SnapshotFormat.BINARY));
+            assertEquals("subscriptions: [ {id: broken", Files.readString(file));
+        }
+
+        @Test
+        @DisplayName("Exports a binary snapshot as YAML")
+        void exportYaml_withBinarySource_writesYaml() throws IOException {
+            String source = tempDir.resolve("subscriptions.bin").toString();
+            Path target = tempDir.resolve("export.yml");
+            storage.writeSubscriptions(SampleSubscriptions.twoSubscriptions(), source, SnapshotFormat.BINARY);
+
+            storage.exportYaml(source, target.toString());
+
+            assertTrue(Files.readString(target).contains("green-news"));
+        }
+    }
+
     /**
      * Used only for testing actual YAML mapping.
      * Must match the file structure exactly.
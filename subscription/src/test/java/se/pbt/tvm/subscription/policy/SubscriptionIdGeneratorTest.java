@@ -26,41 +26,10 @@ class SubscriptionIdGeneratorTest {
             var sub = SubscriptionTestFactory.subscription(null, filter, true);
             sub.setChatId(123L);
 
-            var id = generator.generateUniqueId(sub, List.of());
+            var id = generator.baseId(sub);
             assertEquals("sub-123-ai", id);
         }
 
-        @Test
-        @DisplayName("Appends -2 for duplicate subscription in same chat")
-            // overlaps with increments_suffixBeyondSecond(), kept for completeness
-        void appends_suffix_onCollision() {
-            var existing = SubscriptionTestFactory.subscription("sub-123-ai");
-            existing.setChatId(123L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
-
-            var id = generator.generateUniqueId(sub, List.of(existing));
-            assertEquals("sub-123-ai-2", id);
-        }
-
-        @Test
-        @DisplayName("Increments suffix when -2 already exists")
-        void increments_suffixBeyondSecond() {
-            var e1 = SubscriptionTestFactory.subscription("sub-123-ai");
-            var e2 = SubscriptionTestFactory.subscription("sub-123-ai-2");
-            e1.setChatId(123L);
-            e2.setChatId(123L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
-
-            var id = generator.generateUniqueId(sub, List.of(e1, e2));
-            assertEquals("sub-123-ai-3", id);
-        }
-
         @Test
         @DisplayName("Produces same ID for identical input when no collisions exist")
             // overlaps with generates_baseId_fromChatAndFirstKeyword(), kept for completeness
@@ -71,45 +40,12 @@ class SubscriptionIdGeneratorTest {
             sub1.setChatId(123L);
             sub2.setChatId(123L);
 
-            var id1 = generator.generateUniqueId(sub1, List.of());
-            var id2 = generator.generateUniqueId(sub2, List.of());
+            var id1 = generator.baseId(sub1);
+            var id2 = generator.baseId(sub2);
 
             assertEquals("sub-123-ai", id1);
             assertEquals(id1, id2);
         }
-
-        @Test
-        @DisplayName("Picks first free numeric suffix when a gap exists")
-        void picks_firstFreeSuffix_whenGapExists() {
-            var e1 = SubscriptionTestFactory.subscription("sub-123-ai");
-            var e3 = SubscriptionTestFactory.subscription("sub-123-ai-3");
-            e1.setChatId(123L);
-            e3.setChatId(123L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
-
-            var id = generator.generateUniqueId(sub, List.of(e1, e3));
-            assertEquals("sub-123-ai-2", id);
-        }
-
-        @Test
-        @DisplayName("Result does not depend on order of existing IDs")
-        void existingOrder_doesNotAffect_result() {
-            var e1 = SubscriptionTestFactory.subscription("sub-123-ai");
-            var e2 = SubscriptionTestFactory.subscription("sub-123-ai-2");
-            e1.setChatId(123L);
-            e2.setChatId(123L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
-
-            var a = generator.generateUniqueId(sub, List.of(e1, e2));
-            var b = generator.generateUniqueId(sub, List.of(e2, e1));
-            assertEquals(a, b);
-        }
     }
 
     @Nested
@@ -124,7 +60,7 @@ class SubscriptionIdGeneratorTest {
             sub.setChatId(123L);
 
             assertThrows(IllegalArgumentException.class,
-                    () -> generator.generateUniqueId(sub, List.of()));
+                    () -> generator.baseId(sub));
         }
 
         @Test
@@ -135,7 +71,7 @@ class SubscriptionIdGeneratorTest {
             sub.setChatId(123L);
 
             assertThrows(IllegalArgumentException.class,
-                    () -> generator.generateUniqueId(sub, List.of()));
+                    () -> generator.baseId(sub));
         }
     }
 
@@ -155,7 +91,7 @@ class SubscriptionIdGeneratorTest {
                 sub.setChatId(123L);
 
                 assertThrows(IllegalArgumentException.class,
-                        () -> generator.generateUniqueId(sub, List.of()));
+                        () -> generator.baseId(sub));
             }
 
             @Test
@@ -166,7 +102,7 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-ai-ml", id);
             }
 
@@ -177,7 +113,7 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-ai-ml", id);
             }
         }
@@ -194,7 +130,7 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-ai-ml", id);
             }
 
@@ -205,7 +141,7 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-ai-ml", id);
             }
 
@@ -216,7 +152,7 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-ai", id);
             }
         }
@@ -232,7 +168,7 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-gteborg", id);
             }
 
@@ -243,7 +179,7 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-ai", id);
             }
 
@@ -254,88 +190,42 @@ class SubscriptionIdGeneratorTest {
                 var sub = SubscriptionTestFactory.subscription(null, filter, true);
                 sub.setChatId(123L);
 
-                var id = generator.generateUniqueId(sub, List.of());
+                var id = generator.baseId(sub);
                 assertEquals("sub-123-mnchen", id);
             }
         }
     }
 
     @Nested
-    @DisplayName("Collision handling")
-    class CollisionHandling {
+    @DisplayName("Base ID")
+    class BaseId {
 
         @Test
-        @DisplayName("Ignores collisions from subscriptions in different chats")
-            // overlaps with sameKeyword_acrossDifferentChats_doesNotCollide(), kept for completeness
-        void ignores_collisions_acrossChats() {
-            var otherChat = SubscriptionTestFactory.subscription("sub-999-ai");
-            otherChat.setChatId(999L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
-
-            var id = generator.generateUniqueId(sub, List.of(otherChat));
-            assertEquals("sub-123-ai", id);
-        }
-
-        @Test
-        @DisplayName("Ignores existing subscriptions with null IDs in collision checks")
-        void ignores_nullIds_inExisting() {
-            var e1 = SubscriptionTestFactory.subscription((String) null);
-            e1.setChatId(123L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
+        @DisplayName("Never adds a suffix")
+        void baseId_returnsUnsuffixedId() {
+            var filter = SubscriptionTestFactory.filter(List.of("Ai / ML"), List.of(), "en");
+            var sub = SubscriptionTestFactory.subscription("sub-123-ai-ml", filter, true);
             sub.setChatId(123L);
 
-            var id = generator.generateUniqueId(sub, List.of(e1));
-            assertEquals("sub-123-ai", id);
+            assertEquals("sub-123-ai-ml", generator.baseId(sub));
         }
 
         @Test
-        @DisplayName("Does not add suffix when keyword differs in same chat")
-            // overlaps with caseSensitive_existingId_doesNotCollide
-        void noSuffix_when_differentKeyword_inSameChat() {
-            var existing = SubscriptionTestFactory.subscription("sub-123-ai");
-            existing.setChatId(123L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("ML"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
-
-            var id = generator.generateUniqueId(sub, List.of(existing));
-            assertEquals("sub-123-ml", id);
-        }
-
-        @Test
-        @DisplayName("String match is case-sensitive")
-        void caseSensitive_existingId_doesNotCollide() {
-            var existing = SubscriptionTestFactory.subscription("sub-123-AI");
-            existing.setChatId(123L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
+        @DisplayName("Throws when the subscription has no keywords")
+        void baseId_withoutKeywords_throws() {
+            var filter = SubscriptionTestFactory.filter(List.of(), List.of(), "en");
             var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
 
-            var id = generator.generateUniqueId(sub, List.of(existing));
-            assertEquals("sub-123-ai", id);
+            assertThrows(IllegalArgumentException.class, () -> generator.baseId(sub));
         }
 
         @Test
-        @DisplayName("Same keyword in different chats never collides or adds suffix")
-        void sameKeyword_acrossDifferentChats_doesNotCollide() {
-            var otherChat1 = SubscriptionTestFactory.subscription("sub-111-ai");
-            var otherChat2 = SubscriptionTestFactory.subscription("sub-222-ai");
-            otherChat1.setChatId(111L);
-            otherChat2.setChatId(222L);
-
-            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
-            var sub = SubscriptionTestFactory.subscription(null, filter, true);
-            sub.setChatId(123L);
-
-            var id = generator.generateUniqueId(sub, List.of(otherChat1, otherChat2));
-            assertEquals("sub-123-ai", id);
+        @DisplayName("Slug keeps ASCII letters and digits and joins words with single dashes")
+        void slug_withMixedInput_producesCleanSlug() {
+            assertEquals("sp-500", SubscriptionIdGenerator.slug("--S&P 500--"));
+            assertEquals("ai-ml", SubscriptionIdGenerator.slug("\tAI._ML\r\n"));
+            assertEquals("gteborg", SubscriptionIdGenerator.slug("Göteborg"));
+            assertEquals("", SubscriptionIdGenerator.slug(null));
         }
     }
 }
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import se.pbt.tvm.core.subscription.SchedulePreset;
+import se.pbt.tvm.subscription.model.KeywordPool;
 import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
 
 import java.util.ArrayList;
@@ -35,6 +36,16 @@ class SubscriptionSanitizerTest {
             assertTrue(result.isEmpty());
         }
 
+        @Test
+        @DisplayName("Returns the pooled instance of every keyword")
+        void normalize_returnsPooledInstances() {
+            unsanitized.add(new String(" Sanitizer-Pool "));
+
+            var result = sanitizer.normalizeKeywords(unsanitized);
+
+            assertSame(KeywordPool.canonical("sanitizer-pool"), result.get(0));
+        }
+
         @Test
         @DisplayName("Removes null values from list")
         void normalize_removesNullValues() {
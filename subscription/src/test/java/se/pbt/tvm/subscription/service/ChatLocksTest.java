@@ -0,0 +1,60 @@
+package se.pbt.tvm.subscription.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ChatLocks")
+class ChatLocksTest {
+
+    @Test
+    @DisplayName("The same chat always maps to the same lock")
+    void lockFor_withSameChat_returnsSameLock() {
+        var locks = new ChatLocks(16);
+        assertSame(locks.lockFor(42), locks.lockFor(42));
+    }
+
+    @Test
+    @DisplayName("Sequential chat IDs are spread over the stripes")
+    void lockFor_withSequentialChats_usesManyStripes() {
+        var locks = new ChatLocks(16);
+        var distinct = new HashSet<>();
+        for (long chatId = 1; chatId <= 64; chatId++) {
+            distinct.add(locks.lockFor(chatId));
+        }
+        assertEquals(16, distinct.size());
+    }
+
+    @Test
+    @DisplayName("Actions for the same chat never run at the same time")
+    void withLock_withSameChat_serializesActions() throws InterruptedException {
+        var locks = new ChatLocks(4);
+        var active = new AtomicInteger();
+        var maxActive = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        var done = new CountDownLatch(200);
+
+        for (int i = 0; i < 200; i++) {
+            pool.execute(() -> {
+                locks.withLock(7, () -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    active.decrementAndGet();
+                    return null;
+                });
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(1, maxActive.get());
+    }
+}
@@ -0,0 +1,200 @@
+package se.pbt.tvm.subscription.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.pbt.tvm.subscription.config.SubscriptionStorageProperties;
+import se.pbt.tvm.subscription.format.SubscriptionFormatter;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.persistence.CachedSubscriptionRepository;
+import se.pbt.tvm.subscription.persistence.SnapshotSubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.SubscriptionChange;
+import se.pbt.tvm.subscription.persistence.SubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.SubscriptionSnapshot;
+import se.pbt.tvm.subscription.persistence.SubscriptionStorage;
+import se.pbt.tvm.subscription.policy.SubscriptionIdGenerator;
+import se.pbt.tvm.subscription.policy.SubscriptionValidator;
+import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SubscriptionBulkTransfer")
+class SubscriptionBulkTransferTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<CachedSubscriptionRepository> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(CachedSubscriptionRepository::close);
+    }
+
+    private CachedSubscriptionRepository repository(String name) {
+        var properties = new SubscriptionStorageProperties();
+        properties.setFlushDelay(Duration.ofMillis(10));
+        var repo = new CachedSubscriptionRepository(
+                new SnapshotSubscriptionPersistence(new SubscriptionStorage(), tempDir.resolve(name).toString()), properties);
+        opened.add(repo);
+        return repo;
+    }
+
+    private static SubscriptionBulkTransfer transfer(CachedSubscriptionRepository repo) {
+        var service = new SubscriptionService(repo, new SubscriptionIdGenerator(),
+                new SubscriptionValidator(), new SubscriptionFormatter());
+        return new SubscriptionBulkTransfer(repo, service);
+    }
+
+    private static Subscription subscription(String id, long chatId, String keyword) {
+        var sub = SubscriptionTestFactory.subscription(id,
+                SubscriptionTestFactory.filter(List.of(keyword), List.of("AAPL"), "en"), true);
+        sub.setChatId(chatId);
+        return sub;
+    }
+
+    private static ByteArrayInputStream yaml(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nested
+    @DisplayName("Export and import")
+    class RoundTrip {
+
+        @Test
+        @DisplayName("Moves all subscriptions between repositories and keeps their IDs")
+        void exportThenImport_copiesSubscriptions() throws IOException {
+            var source = repository("source.yml");
+            for (int i = 1; i <= 25; i++) {
+                source.put(subscription("sub-" + i, i % 4 + 1, "keyword" + i));
+            }
+            var out = new ByteArrayOutputStream();
+
+            assertEquals(25, transfer(source).exportTo(out));
+
+            var target = repository("target.yml");
+            var result = transfer(target).importFrom(new ByteArrayInputStream(out.toByteArray()), 7);
+
+            assertEquals(25, result.imported());
+            assertEquals(0, result.skipped());
+            assertEquals(25, target.findAll().size());
+            assertTrue(target.findById("sub-13").isPresent());
+        }
+
+        @Test
+        @DisplayName("Exported YAML can be read by the subscription storage")
+        void export_writesSubscriptionFileLayout() throws IOException {
+            var source = repository("source.yml");
+            source.put(subscription("sub-1", 1, "AI"));
+            var out = new ByteArrayOutputStream();
+            transfer(source).exportTo(out);
+
+            var file = tempDir.resolve("export.yml");
+            Files.write(file, out.toByteArray());
+
+            assertEquals("sub-1", new SubscriptionStorage().loadSubscriptions(file.toString()).get(0).getId());
+        }
+    }
+
+    @Nested
+    @DisplayName("Import validation")
+    class Validation {
+
+        @Test
+        @DisplayName("Skips duplicates of existing subscriptions and within the same batch")
+        void import_withDuplicates_skipsThem() throws IOException {
+            var target = repository("target.yml");
+            target.put(subscription("existing", 1, "AI"));
+
+            var result = transfer(target).importFrom(yaml("""
+                    subscriptions:
+                      - id: a
+                        chatId: 1
+                        filter: { keywords: [ai], tickers: [], language: en }
+                      - id: b
+                        chatId: 2
+                        filter: { keywords: [tesla], tickers: [], language: en }
+                      - id: c
+                        chatId: 2
+                        filter: { keywords: [Tesla], tickers: [], language: en }
+                    """));
+
+            assertEquals(1, result.imported());
+            assertEquals(2, result.skipped());
+            assertEquals(2, result.errors().size());
+            assertEquals(2, target.findAll().size());
+        }
+
+        @Test
+        @DisplayName("Generates a new ID when the imported ID is already taken")
+        void import_withTakenId_generatesNewId() throws IOException {
+            var target = repository("target.yml");
+            target.put(subscription("a", 1, "AI"));
+
+            transfer(target).importFrom(yaml("""
+                    subscriptions:
+                      - id: a
+                        chatId: 2
+                        filter: { keywords: [crypto], tickers: [], language: en }
+                    """));
+
+            assertEquals("sub-2-crypto", target.findByChatId(2).get(0).getId());
+        }
+
+        @Test
+        @DisplayName("Rejects documents without a subscription list")
+        void import_withWrongLayout_throws() {
+            var target = repository("target.yml");
+            assertThrows(IOException.class, () -> transfer(target).importFrom(yaml("subscriptions: 42")));
+        }
+
+        @Test
+        @DisplayName("Reports a failed commit as an import failure with the committed count")
+        void import_whenCommitFails_throwsImportFailure() {
+            var properties = new SubscriptionStorageProperties();
+            properties.setFlushDelay(Duration.ofMinutes(5));
+            var target = new CachedSubscriptionRepository(new SubscriptionPersistence() {
+                @Override
+                public SubscriptionSnapshot load() {
+                    return SubscriptionSnapshot.of(List.of());
+                }
+
+                @Override
+                public void persist(List<SubscriptionChange> changes, Supplier<SubscriptionSnapshot> snapshot) {
+                    throw new UncheckedIOException(new IOException("Disk full"));
+                }
+            }, properties);
+
+            var error = assertThrows(SubscriptionBulkTransfer.ImportFailedException.class, () -> transfer(target).importFrom(yaml("""
+                    subscriptions:
+                      - id: a
+                        chatId: 1
+                        filter: { keywords: [ai], tickers: [], language: en }
+                    """)));
+
+            assertEquals(0, error.committed());
+            assertEquals(1, target.findAll().size());
+        }
+
+        @Test
+        @DisplayName("Imports nothing from an empty document")
+        void import_withEmptyDocument_importsNothing() throws IOException {
+            var target = repository("target.yml");
+            assertEquals(0, transfer(target).importFrom(yaml("")).imported());
+        }
+    }
+}
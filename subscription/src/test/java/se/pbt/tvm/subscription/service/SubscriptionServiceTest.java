@@ -4,15 +4,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.pbt.tvm.subscription.config.SubscriptionStorageProperties;
 import se.pbt.tvm.subscription.format.SubscriptionFormatter;
+import se.pbt.tvm.subscription.model.Subscription;
+import se.pbt.tvm.subscription.model.SubscriptionFingerprint;
+import se.pbt.tvm.subscription.persistence.CachedSubscriptionRepository;
+import se.pbt.tvm.subscription.persistence.SnapshotSubscriptionPersistence;
+import se.pbt.tvm.subscription.persistence.SubscriptionRepository;
 import se.pbt.tvm.subscription.persistence.SubscriptionStorage;
 import se.pbt.tvm.subscription.policy.SubscriptionIdGenerator;
-import se.pbt.tvm.subscription.policy.SubscriptionSanitizer;
 import se.pbt.tvm.subscription.policy.SubscriptionValidator;
 import se.pbt.tvm.subscription.testutil.SubscriptionTestFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,7 +31,7 @@ import static org.mockito.Mockito.*;
 @DisplayName("SubscriptionService")
 class SubscriptionServiceTest {
 
-    private SubscriptionStorage storage;
+    private SubscriptionRepository repository;
     private SubscriptionIdGenerator idGenerator;
     private SubscriptionValidator validator;
     private SubscriptionFormatter formatter;
@@ -29,12 +39,14 @@ class SubscriptionServiceTest {
 
     @BeforeEach
     void setUp() {
-        storage = mock(SubscriptionStorage.class);
+        repository = mock(SubscriptionRepository.class);
+        when(repository.commit()).thenReturn(CompletableFuture.completedFuture(null));
+        when(repository.nextFreeId(anyLong(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
         idGenerator = new SubscriptionIdGenerator();
-        validator = new SubscriptionValidator(new SubscriptionSanitizer());
+        validator = new SubscriptionValidator();
         formatter = new SubscriptionFormatter();
 
-        service = new SubscriptionService(storage, idGenerator, validator, formatter);
+        service = new SubscriptionService(repository, idGenerator, validator, formatter);
     }
 
     @Nested
@@ -47,36 +59,70 @@ class SubscriptionServiceTest {
             var filter = SubscriptionTestFactory.filter(List.of("Tech"), List.of("TSLA"), "en");
             var sub = SubscriptionTestFactory.subscription("sub-1", filter, true);
 
-            when(storage.loadSubscriptions(anyString())).thenReturn(new ArrayList<>());
+            when(repository.findByChatId(anyLong())).thenReturn(List.of());
 
-            var result = service.save(sub, "subscriptions.yml");
+            var result = service.save(sub);
 
             assertTrue(result.success());
-            assertTrue(result.message().contains("Subscription created with id:"));
-            verify(storage).saveSubscriptions(anyList(), anyString());
+            assertTrue(result.message().contains("Subscription created with id: sub-0-tech"));
+            verify(repository).put(any());
+            verify(repository).commit();
+        }
+
+        @Test
+        @DisplayName("Assigns the next free ID reported by the repository")
+        void save_withTakenBaseId_usesRepositorySuffix() {
+            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en");
+            var sub = SubscriptionTestFactory.subscription(null, filter, true);
+            sub.setChatId(7);
+
+            when(repository.nextFreeId(7, "sub-7-ai")).thenReturn("sub-7-ai-3");
+
+            var result = service.save(sub);
+
+            assertTrue(result.success());
+            assertEquals("sub-7-ai-3", sub.getId());
+            verify(repository, never()).findByChatId(anyLong());
         }
 
         @Test
         @DisplayName("Fails when subscription is null")
         void save_withNullSubscription_returnsFailure() {
-            var result = service.save(null, "subscriptions.yml");
+            var result = service.save(null);
 
             assertFalse(result.success());
             assertEquals("Subscription cannot be null.", result.message());
-            verifyNoInteractions(storage);
+            verifyNoInteractions(repository);
         }
 
         @Test
         @DisplayName("Fails when validator reports invalid data")
         void save_withInvalidSubscription_returnsValidationError() {
             var invalid = SubscriptionTestFactory.subscription("x", null, true);
-            when(storage.loadSubscriptions(anyString())).thenReturn(List.of());
+            when(repository.findByChatId(anyLong())).thenReturn(List.of());
 
-            var result = service.save(invalid, "subscriptions.yml");
+            var result = service.save(invalid);
 
             assertFalse(result.success());
             assertTrue(result.message().contains("filter cannot be null"));
-            verify(storage, never()).saveSubscriptions(anyList(), anyString());
+            verify(repository, never()).put(any());
+        }
+
+        @Test
+        @DisplayName("Rejects a duplicate found through the chat's fingerprints")
+        void save_withKnownFingerprint_returnsDuplicateError() {
+            var existing = SubscriptionTestFactory.subscription("sub-1",
+                    SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en"), true);
+            var candidate = SubscriptionTestFactory.subscription(null,
+                    SubscriptionTestFactory.filter(List.of("ai"), List.of("TSLA"), "EN"), true);
+
+            when(repository.findFingerprintsByChatId(anyLong())).thenReturn(Set.of(SubscriptionFingerprint.of(existing)));
+
+            var result = service.save(candidate);
+
+            assertFalse(result.success());
+            assertTrue(result.message().contains("already exists"));
+            verify(repository, never()).put(any());
         }
 
         @Test
@@ -85,13 +131,89 @@ class SubscriptionServiceTest {
             var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of("GOOG"), "en");
             var sub = SubscriptionTestFactory.subscription("sub-2", filter, true);
 
-            when(storage.loadSubscriptions(anyString())).thenThrow(new RuntimeException("Disk error"));
+            when(repository.findFingerprintsByChatId(anyLong())).thenThrow(new RuntimeException("Disk error"));
 
-            var result = service.save(sub, "subscriptions.yml");
+            var result = service.save(sub);
 
             assertFalse(result.success());
             assertTrue(result.message().contains("Failed to save subscription"));
         }
+
+        @Test
+        @DisplayName("Reports a subscription whose commit fails as saved but not yet durable")
+        void save_whenCommitFails_reportsNotYetDurable() {
+            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of("GOOG"), "en");
+            var sub = SubscriptionTestFactory.subscription("sub-3", filter, true);
+
+            when(repository.findByChatId(anyLong())).thenReturn(List.of());
+            when(repository.commit()).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Disk full")));
+
+            var result = service.save(sub);
+
+            assertTrue(result.success());
+            assertTrue(result.message().endsWith(SubscriptionService.NOT_YET_DURABLE));
+            verify(repository, never()).delete(anyString());
+        }
+
+        @Test
+        @DisplayName("Keeps a subscription whose commit times out and reports it as not yet durable")
+        void save_whenCommitTimesOut_keepsSubscription() {
+            var filter = SubscriptionTestFactory.filter(List.of("AI"), List.of("GOOG"), "en");
+            var sub = SubscriptionTestFactory.subscription("sub-4", filter, true);
+
+            when(repository.commit()).thenReturn(new CompletableFuture<Void>().orTimeout(10, TimeUnit.MILLISECONDS));
+
+            var result = service.save(sub);
+
+            assertTrue(result.success());
+            assertEquals("Subscription created with id: sub-0-ai" + SubscriptionService.NOT_YET_DURABLE, result.message());
+            verify(repository).put(sub);
+            verify(repository, never()).delete(anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch save operations")
+    class BatchSaveOperation {
+
+        @Test
+        @DisplayName("Saves valid candidates, rejects duplicates within the batch and commits once")
+        void saveAll_withDuplicateInBatch_reportsPerCandidate() {
+            var first = SubscriptionTestFactory.subscription(null,
+                    SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en"), true);
+            var duplicate = SubscriptionTestFactory.subscription(null,
+                    SubscriptionTestFactory.filter(List.of("ai"), List.of(), "EN"), true);
+            var other = SubscriptionTestFactory.subscription(null,
+                    SubscriptionTestFactory.filter(List.of("Tesla"), List.of(), "en"), true);
+
+            var results = service.saveAll(List.of(first, duplicate, other));
+
+            assertEquals(List.of(true, false, true), results.stream().map(SubscriptionService.SaveResult::success).toList());
+            assertTrue(results.get(1).message().contains("already exists"));
+            verify(repository, times(2)).put(any());
+            verify(repository, times(1)).findFingerprintsByChatId(0);
+            verify(repository, times(1)).commit();
+        }
+
+        @Test
+        @DisplayName("Reports stored candidates as not yet durable when the commit fails")
+        void saveAll_whenCommitFails_reportsNotYetDurable() {
+            var sub = SubscriptionTestFactory.subscription(null,
+                    SubscriptionTestFactory.filter(List.of("AI"), List.of(), "en"), true);
+            when(repository.commit()).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Disk full")));
+
+            var results = service.saveAll(List.of(sub));
+
+            assertTrue(results.get(0).success());
+            assertTrue(results.get(0).message().endsWith(SubscriptionService.NOT_YET_DURABLE));
+        }
+
+        @Test
+        @DisplayName("Returns no results for an empty batch")
+        void saveAll_withEmptyBatch_returnsEmptyList() {
+            assertTrue(service.saveAll(List.of()).isEmpty());
+            verifyNoInteractions(repository);
+        }
     }
 
     @Nested
@@ -108,7 +230,8 @@ class SubscriptionServiceTest {
             var sub2 = SubscriptionTestFactory.subscription("id-2", filter, false);
             sub2.setChatId(200);
 
-            when(storage.loadSubscriptions(anyString())).thenReturn(List.of(sub1, sub2));
+            when(repository.findByChatId(100)).thenReturn(List.of(sub1));
+            when(repository.findByChatId(200)).thenReturn(List.of(sub2));
 
             var result = service.listByChatId(100);
 
@@ -120,7 +243,7 @@ class SubscriptionServiceTest {
         @Test
         @DisplayName("Returns empty list when no subscriptions exist")
         void list_withNoSubscriptions_returnsEmptyList() {
-            when(storage.loadSubscriptions(anyString())).thenReturn(List.of());
+            when(repository.findByChatId(anyLong())).thenReturn(List.of());
 
             var result = service.listByChatId(123);
 
@@ -130,13 +253,55 @@ class SubscriptionServiceTest {
         @Test
         @DisplayName("Throws runtime exception on storage error")
         void list_whenStorageFails_throwsRuntimeException() {
-            when(storage.loadSubscriptions(anyString())).thenThrow(new RuntimeException("Corrupted file"));
+            when(repository.findByChatId(anyLong())).thenThrow(new RuntimeException("Corrupted file"));
 
             var ex = assertThrows(RuntimeException.class, () -> service.listByChatId(1));
             assertTrue(ex.getMessage().contains("Failed to list subscriptions"));
         }
     }
 
+    @Nested
+    @DisplayName("Concurrent commands")
+    class Concurrency {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("Parallel saves in the same chat never lose an update")
+        void save_inParallelForSameChat_keepsEveryUpdate() throws Exception {
+            var properties = new SubscriptionStorageProperties();
+            properties.setFlushDelay(Duration.ofMillis(10));
+            String file = tempDir.resolve("subscriptions.yml").toString();
+            try (var repo = new CachedSubscriptionRepository(
+                    new SnapshotSubscriptionPersistence(new SubscriptionStorage(), file), properties)) {
+                var realService = new SubscriptionService(repo, idGenerator, validator, formatter);
+                List<String> languages = List.of("en", "sv", "de", "fr", "es", "it", "nl", "fi");
+                ExecutorService pool = Executors.newFixedThreadPool(languages.size());
+                var start = new CountDownLatch(1);
+
+                List<Future<SubscriptionService.SaveResult>> results = new ArrayList<>();
+                for (String language : languages) {
+                    results.add(pool.submit(() -> {
+                        var sub = SubscriptionTestFactory.subscription(null,
+                                SubscriptionTestFactory.filter(List.of("AI"), List.of(), language), true);
+                        sub.setChatId(1);
+                        start.await();
+                        return realService.save(sub);
+                    }));
+                }
+                start.countDown();
+                for (var result : results) {
+                    assertTrue(result.get(5, TimeUnit.SECONDS).success());
+                }
+                pool.shutdown();
+
+                var ids = repo.findByChatId(1).stream().map(Subscription::getId).distinct().toList();
+                assertEquals(languages.size(), ids.size());
+            }
+        }
+    }
+
     @Nested
     @DisplayName("Remove operations")
     class RemoveOperation {
@@ -148,12 +313,13 @@ class SubscriptionServiceTest {
             var sub = SubscriptionTestFactory.subscription("sub-1", filter, true);
             sub.setChatId(1);
 
-            when(storage.loadSubscriptions(anyString())).thenReturn(List.of(sub));
+            when(repository.findByChatId(1)).thenReturn(List.of(sub));
+            when(repository.delete("sub-1")).thenReturn(true);
 
             boolean result = service.removeByIdOrKeyword(1, "sub-1");
 
             assertTrue(result);
-            verify(storage).saveSubscriptions(anyList(), anyString());
+            verify(repository).delete("sub-1");
         }
 
         @Test
@@ -163,12 +329,13 @@ class SubscriptionServiceTest {
             var sub = SubscriptionTestFactory.subscription("sub-2", filter, true);
             sub.setChatId(99);
 
-            when(storage.loadSubscriptions(anyString())).thenReturn(List.of(sub));
+            when(repository.findByChatIdAndKeyword(99, "market")).thenReturn(List.of(sub));
+            when(repository.delete("sub-2")).thenReturn(true);
 
             boolean result = service.removeByIdOrKeyword(99, "market");
 
             assertTrue(result);
-            verify(storage).saveSubscriptions(anyList(), anyString());
+            verify(repository).delete("sub-2");
         }
 
         @Test
@@ -178,12 +345,12 @@ class SubscriptionServiceTest {
             var sub = SubscriptionTestFactory.subscription("sub-3", filter, true);
             sub.setChatId(5);
 
-            when(storage.loadSubscriptions(anyString())).thenReturn(List.of(sub));
+            when(repository.findByChatId(anyLong())).thenReturn(List.of(sub));
 
             boolean result = service.removeByIdOrKeyword(5, "Crypto");
 
             assertFalse(result);
-            verify(storage, never()).saveSubscriptions(anyList(), anyString());
+            verify(repository, never()).delete(anyString());
         }
 
         @Test
@@ -191,13 +358,13 @@ class SubscriptionServiceTest {
         void remove_withBlankArgument_returnsFalse() {
             boolean result = service.removeByIdOrKeyword(10, "  ");
             assertFalse(result);
-            verifyNoInteractions(storage);
+            verifyNoInteractions(repository);
         }
 
         @Test
         @DisplayName("Throws runtime exception if storage fails")
         void remove_whenStorageFails_throwsRuntimeException() {
-            when(storage.loadSubscriptions(anyString())).thenThrow(new RuntimeException("Read error"));
+            when(repository.findByChatId(anyLong())).thenThrow(new RuntimeException("Read error"));
 
             assertThrows(RuntimeException.class, () -> service.removeByIdOrKeyword(1, "Tech"));
         }